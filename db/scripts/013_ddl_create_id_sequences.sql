@@ -0,0 +1,35 @@
+--liquibase formatted sql
+
+--changeset cars:013-1
+create sequence auto_user_seq start with 100 increment by 50;
+create sequence auto_post_seq start with 100 increment by 50;
+create sequence price_history_seq start with 100 increment by 50;
+create sequence participates_seq start with 100 increment by 50;
+create sequence engine_seq start with 100 increment by 50;
+create sequence car_seq start with 100 increment by 50;
+create sequence owners_seq start with 100 increment by 50;
+create sequence history_owners_seq start with 100 increment by 50;
+create sequence file_seq start with 100 increment by 50;
+create sequence auto_post_photo_seq start with 100 increment by 50;
+
+--changeset cars:013-2 dbms:postgresql
+select setval('auto_user_seq', (select coalesce(max(id), 0) + 50 from auto_user), false);
+select setval('auto_post_seq', (select coalesce(max(id), 0) + 50 from auto_post), false);
+select setval('price_history_seq', (select coalesce(max(id), 0) + 50 from price_history), false);
+select setval('participates_seq', (select coalesce(max(id), 0) + 50 from participates), false);
+select setval('engine_seq', (select coalesce(max(id), 0) + 50 from engine), false);
+select setval('car_seq', (select coalesce(max(id), 0) + 50 from car), false);
+select setval('owners_seq', (select coalesce(max(id), 0) + 50 from owners), false);
+select setval('history_owners_seq', (select coalesce(max(id), 0) + 50 from history_owners), false);
+select setval('file_seq', (select coalesce(max(id), 0) + 50 from file), false);
+select setval('auto_post_photo_seq', (select coalesce(max(id), 0) + 50 from auto_post_photo), false);
+alter table auto_user alter column id set default nextval('auto_user_seq');
+alter table auto_post alter column id set default nextval('auto_post_seq');
+alter table price_history alter column id set default nextval('price_history_seq');
+alter table participates alter column id set default nextval('participates_seq');
+alter table engine alter column id set default nextval('engine_seq');
+alter table car alter column id set default nextval('car_seq');
+alter table owners alter column id set default nextval('owners_seq');
+alter table history_owners alter column id set default nextval('history_owners_seq');
+alter table file alter column id set default nextval('file_seq');
+alter table auto_post_photo alter column id set default nextval('auto_post_photo_seq');
\ No newline at end of file
@@ -0,0 +1 @@
+create index auto_post_created_id_idx on auto_post (created desc, id desc);
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset cars:015-1 dbms:postgresql
+create extension if not exists pg_trgm;
+create index car_name_trgm_idx on car using gin (lower(name) gin_trgm_ops);
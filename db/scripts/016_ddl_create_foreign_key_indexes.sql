@@ -0,0 +1,16 @@
+--liquibase formatted sql
+
+--changeset cars:016-1
+create index auto_post_car_id_idx on auto_post (car_id);
+create index auto_post_auto_user_id_idx on auto_post (auto_user_id);
+create index price_history_auto_post_id_created_idx on price_history (auto_post_id, created);
+create index history_owners_car_id_start_at_idx on history_owners (car_id, start_at);
+create index history_owners_owner_id_idx on history_owners (owner_id);
+create index auto_post_photo_auto_post_id_sort_idx on auto_post_photo (auto_post_id, sort);
+create index auto_post_photo_file_id_idx on auto_post_photo (file_id);
+create index participates_post_id_idx on participates (post_id);
+create index car_engine_id_idx on car (engine_id);
+
+--changeset cars:016-2
+alter table participates alter column user_id set data type int;
+alter table participates alter column post_id set data type int;
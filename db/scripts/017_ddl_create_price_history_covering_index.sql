@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset cars:017-1 dbms:postgresql
+drop index price_history_auto_post_id_created_idx;
+create index price_history_auto_post_id_created_idx on price_history (auto_post_id, created, id) include (before, after);
@@ -0,0 +1,37 @@
+--liquibase formatted sql
+
+--changeset cars:018-1
+create table post_feed
+(
+    post_id      int primary key references auto_post (id) on delete cascade,
+    created      timestamp without time zone not null,
+    excerpt      text                        not null,
+    seller_login text                        not null,
+    car_name     text,
+    engine_name  text,
+    price        bigint,
+    photo_count  int                         not null default 0,
+    cover_path   text
+);
+create index post_feed_created_post_id_idx on post_feed (created desc, post_id desc);
+
+--changeset cars:018-2 dbms:postgresql
+create index post_feed_with_photos_created_post_id_idx on post_feed (created desc, post_id desc) where photo_count > 0;
+create index post_feed_car_name_trgm_idx on post_feed using gin (lower(car_name) gin_trgm_ops);
+
+--changeset cars:018-3
+insert into post_feed (post_id, created, excerpt, seller_login, car_name, engine_name, price, photo_count, cover_path)
+select p.id, p.created, substring(p.description, 1, 200), u.login, c.name, e.name,
+    (select ph.after from price_history ph
+     where ph.auto_post_id = p.id
+     order by ph.created desc, ph.id desc
+     limit 1),
+    (select count(*) from auto_post_photo pp where pp.auto_post_id = p.id),
+    (select f.path from auto_post_photo pp join file f on f.id = pp.file_id
+     where pp.auto_post_id = p.id
+     order by pp.sort, pp.id
+     limit 1)
+from auto_post p
+join auto_user u on u.id = p.auto_user_id
+left join car c on c.id = p.car_id
+left join engine e on e.id = c.engine_id;
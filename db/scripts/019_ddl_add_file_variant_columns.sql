@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset cars:019-1
+alter table file add column thumbnail_path text;
+alter table file add column medium_path text;
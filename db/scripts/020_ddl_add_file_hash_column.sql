@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset cars:020-1
+alter table file add column hash varchar(64);
+create unique index file_hash_idx on file (hash);
@@ -0,0 +1,124 @@
+package ru.job4j.cars.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.JdbcSettings;
+import ru.job4j.cars.config.SessionFactoryConfig;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+
+/**
+ * База для бенчмарков. По умолчанию H2 в памяти со схемой из маппинга (hbm2ddl create-drop).
+ * Для PostgreSQL: -Dbench.url=jdbc:postgresql://localhost:5432/cars_bench -Dbench.user -Dbench.password,
+ * схема создается Liquibase заранее, таблицы дополнительных сущностей бенчмарка - hbm2ddl update.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+    public static final int DEFAULT_POOL_SIZE = 10;
+
+    private static final String H2_URL = "jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+
+    private final SessionFactory sessionFactory;
+    private final HikariDataSource dataSource;
+    private final TransferCounter transfer;
+
+    private BenchmarkDatabase(SessionFactory sessionFactory, HikariDataSource dataSource, TransferCounter transfer) {
+        this.sessionFactory = sessionFactory;
+        this.dataSource = dataSource;
+        this.transfer = transfer;
+    }
+
+    /**
+     * Открыть базу.
+     *
+     * @param pooled true - соединения из HikariCP, false - встроенный пул Hibernate.
+     * @return база.
+     */
+    public static BenchmarkDatabase open(boolean pooled) {
+        return open(pooled, DEFAULT_POOL_SIZE, false);
+    }
+
+    /**
+     * Открыть базу.
+     *
+     * @param pooled true - соединения из HikariCP, false - встроенный пул Hibernate.
+     * @param poolSize размер пула HikariCP.
+     * @param countTransfer считать строки и байты, прочитанные из ResultSet, только с pooled = true.
+     * @param entities дополнительные сущности бенчмарка.
+     * @return база.
+     */
+    public static BenchmarkDatabase open(boolean pooled, int poolSize, boolean countTransfer, Class<?>... entities) {
+        String url = System.getProperty("bench.url", H2_URL);
+        String user = System.getProperty("bench.user", "");
+        String password = System.getProperty("bench.password", "");
+        StandardServiceRegistryBuilder registryBuilder = new StandardServiceRegistryBuilder().configure()
+                .applySetting(AvailableSettings.SHOW_SQL, false)
+                .applySetting(AvailableSettings.FORMAT_SQL, false)
+                .applySetting(AvailableSettings.HIGHLIGHT_SQL, false);
+        if (H2_URL.equals(url)) {
+            registryBuilder.applySetting(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        } else {
+            registryBuilder.applySetting(JdbcSettings.JAKARTA_JDBC_DRIVER, "org.postgresql.Driver");
+            if (entities.length > 0) {
+                registryBuilder.applySetting(AvailableSettings.HBM2DDL_AUTO, "update");
+            }
+        }
+        HikariDataSource dataSource = null;
+        TransferCounter transfer = null;
+        if (pooled) {
+            dataSource = pool(url, user, password, poolSize);
+            if (countTransfer) {
+                transfer = new TransferCounter(dataSource);
+            }
+            registryBuilder.applySetting(JdbcSettings.JAKARTA_NON_JTA_DATASOURCE,
+                    transfer != null ? transfer.dataSource() : dataSource);
+            SessionFactoryConfig.withoutCredentials(registryBuilder);
+        } else {
+            registryBuilder.applySetting(JdbcSettings.JAKARTA_JDBC_URL, url)
+                    .applySetting(JdbcSettings.JAKARTA_JDBC_USER, user)
+                    .applySetting(JdbcSettings.JAKARTA_JDBC_PASSWORD, password);
+        }
+        MetadataSources sources = new MetadataSources(registryBuilder.build());
+        for (Class<?> entity : entities) {
+            sources.addAnnotatedClass(entity);
+        }
+        SessionFactory sessionFactory = sources.buildMetadata().buildSessionFactory();
+        return new BenchmarkDatabase(sessionFactory, dataSource, transfer);
+    }
+
+    private static HikariDataSource pool(String url, String user, String password, int poolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(user);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(poolSize);
+        return dataSource;
+    }
+
+    public SessionFactory sessionFactory() {
+        return sessionFactory;
+    }
+
+    public CrudRepository crudRepository() {
+        return new CrudRepository(sessionFactory);
+    }
+
+    /**
+     * @return счетчик прочитанных строк и байтов, если база открыта с countTransfer.
+     */
+    public TransferCounter transfer() {
+        if (transfer == null) {
+            throw new IllegalStateException("Database is opened without transfer counting");
+        }
+        return transfer;
+    }
+
+    @Override
+    public void close() {
+        sessionFactory.close();
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+}
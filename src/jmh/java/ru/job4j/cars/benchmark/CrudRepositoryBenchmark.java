@@ -0,0 +1,67 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.job4j.cars.model.Engine;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+import ru.job4j.cars.repository.hibernate.HibernateEngineRepository;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы CrudRepository: сессия и транзакция, read-only сессия,
+ * поиск по id запросом и через кэш второго уровня, встроенный пул против HikariCP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CrudRepositoryBenchmark {
+    @Param({"hibernate", "hikari"})
+    public String pool;
+
+    private BenchmarkDatabase database;
+    private CrudRepository crudRepository;
+    private int engineId;
+
+    @Setup
+    public void setUp() {
+        database = BenchmarkDatabase.open("hikari".equals(pool));
+        crudRepository = database.crudRepository();
+        engineId = new HibernateEngineRepository(crudRepository).create(new Engine(null, "bench")).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Object emptyTx() {
+        return crudRepository.tx(session -> session);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object emptyTxConcurrent() {
+        return crudRepository.tx(session -> session);
+    }
+
+    @Benchmark
+    public Object emptyReadOnly() {
+        return crudRepository.readOnly(session -> session);
+    }
+
+    @Benchmark
+    public Optional<Engine> findByIdQuery() {
+        return crudRepository.optional("from Engine where id = :id", Engine.class, Map.of("id", engineId));
+    }
+
+    @Benchmark
+    public Optional<Engine> findByIdSecondLevelCache() {
+        return crudRepository.get(Engine.class, engineId);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.job4j.cars.benchmark;
+
+import org.hibernate.StatelessSession;
+import ru.job4j.cars.model.*;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+import ru.job4j.cars.repository.hibernate.HibernateEngineRepository;
+import ru.job4j.cars.repository.hibernate.HibernateFileRepository;
+import ru.job4j.cars.repository.hibernate.HibernateUserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Тестовые данные бенчмарков: объявления с пользователями, автомобилями
+ * и фото, у объявления id % 8 фото (в среднем 3.5). Автомобиль у объявления
+ * свой (Post.car - один к одному, car_id уникален).
+ */
+public final class Dataset {
+    public static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    public static final int MAX_PHOTOS = 8;
+
+    private Dataset() {
+    }
+
+    /**
+     * Заполнить базу.
+     *
+     * @param crudRepository репозиторий.
+     * @param posts число объявлений.
+     * @return объявление из середины ленты.
+     */
+    public static Post seed(CrudRepository crudRepository, int posts) {
+        List<Engine> engines = IntStream.range(0, 10)
+                .mapToObj(i -> new HibernateEngineRepository(crudRepository).create(new Engine(null, "bench-engine-" + i)))
+                .toList();
+        List<User> users = IntStream.range(0, 100)
+                .mapToObj(i -> new HibernateUserRepository(crudRepository).create(new User(0, "bench-" + i, "password")))
+                .toList();
+        List<File> files = IntStream.range(0, MAX_PHOTOS)
+                .mapToObj(i -> new HibernateFileRepository(crudRepository).create(new File(null, "bench-" + i, "bench/" + i)))
+                .toList();
+        List<Car> cars = IntStream.range(0, posts)
+                .mapToObj(i -> Car.builder().name("bench-car-" + i).engine(engines.get(i % engines.size())).build())
+                .toList();
+        crudRepository.bulk(cars, CrudRepository.DEFAULT_CHUNK_SIZE, StatelessSession::insert, chunk -> { });
+        crudRepository.bulk(IntStream.range(0, posts).mapToObj(i -> Post.builder()
+                .description("bench post " + i)
+                .created(BASE.minusMinutes(i))
+                .user(users.get(i % users.size()))
+                .car(cars.get(i))
+                .build()), CrudRepository.DEFAULT_CHUNK_SIZE, (session, post) -> {
+                    session.insert(post);
+                    for (int photo = 0; photo < post.getId() % MAX_PHOTOS; photo++) {
+                        session.insert(new PostPhoto(null, post, files.get(photo), photo));
+                    }
+                }, chunk -> { });
+        return crudRepository.readOnly(session -> session.createQuery("""
+                        select p from Post p
+                        left join fetch p.user
+                        left join fetch p.car c
+                        left join fetch c.engine
+                        order by p.created desc, p.id desc""", Post.class)
+                .setFirstResult(posts / 2)
+                .setMaxResults(1)
+                .uniqueResult());
+    }
+}
@@ -0,0 +1,58 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.Page;
+import ru.job4j.cars.repository.hibernate.HibernatePostRepository;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лента под смешанной нагрузкой 95/5: 19 потоков читают первую страницу,
+ * 1 поток создает объявления (без автомобиля, car_id уникален) и сбрасывает кэш запросов ленты.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FeedMixBenchmark {
+    @Param({"10000"})
+    public int posts;
+
+    private BenchmarkDatabase database;
+    private HibernatePostRepository postRepository;
+    private Post sample;
+
+    @Setup
+    public void setUp() {
+        database = BenchmarkDatabase.open(true);
+        postRepository = new HibernatePostRepository(database.crudRepository());
+        sample = Dataset.seed(database.crudRepository(), posts);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    @Group("feed")
+    @GroupThreads(19)
+    public Page<Post> read() {
+        return postRepository.findPageOrderByCreated(null, 20);
+    }
+
+    @Benchmark
+    @Group("feed")
+    @GroupThreads(1)
+    public Post write() {
+        return postRepository.create(Post.builder()
+                .description("bench mix")
+                .created(LocalDateTime.now())
+                .user(sample.getUser())
+                .build());
+    }
+}
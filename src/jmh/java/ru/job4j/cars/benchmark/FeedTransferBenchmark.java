@@ -0,0 +1,93 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+import ru.job4j.cars.repository.hibernate.HibernatePostRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лента в три запроса (findAllOrderByCreated) против прежнего одного fetch join с фото:
+ * строки и байты, прочитанные из ResultSet, и задержка. Режим - пропускная способность,
+ * счетчики rows и bytes выводятся в секунду как и основной результат, на одну загрузку
+ * ленты - rows / score и bytes / score. Кэш ленты и коллекций фото сбрасывается,
+ * чтобы фото читались из базы, как в fetch join. Задержку в мс дает PostFinderBenchmark
+ * (findAllOrderByCreated и findAllCartesianFetchJoin).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FeedTransferBenchmark {
+    private static final String CARTESIAN_FEED = """
+            select p from Post p
+            left join fetch p.user
+            left join fetch p.car c
+            left join fetch c.engine
+            left join fetch p.photos phs
+            left join fetch phs.photo ph
+            order by p.created desc""";
+
+    @Param({"1000", "10000"})
+    public int posts;
+
+    private BenchmarkDatabase database;
+    private CrudRepository crudRepository;
+    private HibernatePostRepository postRepository;
+
+    /**
+     * Строки и байты, прочитанные из ResultSet за итерацию.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Transfer {
+        public long rows;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            rows = 0;
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        database = BenchmarkDatabase.open(true, BenchmarkDatabase.DEFAULT_POOL_SIZE, true);
+        crudRepository = database.crudRepository();
+        postRepository = new HibernatePostRepository(crudRepository);
+        Dataset.seed(crudRepository, posts);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Collection<Post> threeQueryFeed(Transfer transfer) {
+        long rows = database.transfer().rows();
+        long bytes = database.transfer().bytes();
+        crudRepository.evictQueryRegion(HibernatePostRepository.FEED_CACHE_REGION);
+        crudRepository.evictCollection(Post.PHOTOS_ROLE);
+        Collection<Post> feed = postRepository.findAllOrderByCreated();
+        transfer.rows += database.transfer().rows() - rows;
+        transfer.bytes += database.transfer().bytes() - bytes;
+        return feed;
+    }
+
+    @Benchmark
+    public List<Post> cartesianFetchJoinFeed(Transfer transfer) {
+        long rows = database.transfer().rows();
+        long bytes = database.transfer().bytes();
+        List<Post> feed = crudRepository.query(CARTESIAN_FEED, Post.class);
+        transfer.rows += database.transfer().rows() - rows;
+        transfer.bytes += database.transfer().bytes() - bytes;
+        return feed;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.job4j.cars.benchmark;
+
+import jakarta.persistence.*;
+import ru.job4j.cars.model.File;
+import ru.job4j.cars.model.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Объявление, фото объявления и история цены с id GenerationType.IDENTITY, как до перехода
+ * на последовательности, в отдельных таблицах bench_identity_*. Только для сравнения записи
+ * в PostWriteBenchmark: с IDENTITY Hibernate не группирует вставки в JDBC batch.
+ */
+public final class IdentityEntities {
+    private IdentityEntities() {
+    }
+
+    @Entity(name = "IdentityPost")
+    @Table(name = "bench_identity_post")
+    public static class IdentityPost {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Integer id;
+        private String description;
+        private LocalDateTime created;
+        @ManyToOne
+        @JoinColumn(name = "auto_user_id")
+        private User user;
+
+        protected IdentityPost() {
+        }
+
+        public IdentityPost(String description, LocalDateTime created, User user) {
+            this.description = description;
+            this.created = created;
+            this.user = user;
+        }
+    }
+
+    @Entity(name = "IdentityPostPhoto")
+    @Table(name = "bench_identity_post_photo")
+    public static class IdentityPostPhoto {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Integer id;
+        @ManyToOne
+        @JoinColumn(name = "auto_post_id")
+        private IdentityPost post;
+        @ManyToOne
+        @JoinColumn(name = "file_id")
+        private File photo;
+        private Integer sort;
+
+        protected IdentityPostPhoto() {
+        }
+
+        public IdentityPostPhoto(IdentityPost post, File photo, Integer sort) {
+            this.post = post;
+            this.photo = photo;
+            this.sort = sort;
+        }
+    }
+
+    @Entity(name = "IdentityPriceHistory")
+    @Table(name = "bench_identity_price_history")
+    public static class IdentityPriceHistory {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Integer id;
+        private long before;
+        private long after;
+        private LocalDateTime created;
+        @ManyToOne
+        @JoinColumn(name = "auto_post_id")
+        private IdentityPost post;
+
+        protected IdentityPriceHistory() {
+        }
+
+        public IdentityPriceHistory(long before, long after, LocalDateTime created, IdentityPost post) {
+            this.before = before;
+            this.after = after;
+            this.created = created;
+            this.post = post;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+import ru.job4j.cars.repository.hibernate.HibernatePostRepository;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность 16 потоков, одновременно читающих ленту findAllOrderByCreated,
+ * в зависимости от размера пула HikariCP. Кэш запросов ленты сбрасывается перед каждым
+ * вызовом, чтобы каждый вызов брал соединение из пула.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class PoolSizeBenchmark {
+    @Param({"1", "2", "4", "8", "16"})
+    public int poolSize;
+
+    @Param({"1000"})
+    public int posts;
+
+    private BenchmarkDatabase database;
+    private CrudRepository crudRepository;
+    private HibernatePostRepository postRepository;
+
+    @Setup
+    public void setUp() {
+        database = BenchmarkDatabase.open(true, poolSize, false);
+        crudRepository = database.crudRepository();
+        postRepository = new HibernatePostRepository(crudRepository);
+        Dataset.seed(crudRepository, posts);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Collection<Post> findAllOrderByCreated() {
+        crudRepository.evictQueryRegion(HibernatePostRepository.FEED_CACHE_REGION);
+        return postRepository.findAllOrderByCreated();
+    }
+}
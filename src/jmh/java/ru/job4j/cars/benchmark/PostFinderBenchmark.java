@@ -0,0 +1,131 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.job4j.cars.dto.PostCard;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.Cursor;
+import ru.job4j.cars.repository.Page;
+import ru.job4j.cars.repository.SearchMode;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+import ru.job4j.cars.repository.hibernate.HibernatePostRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Методы HibernatePostRepository на 1k/100k/1M объявлений, с кэшем запросов ленты и без него.
+ * Выделение памяти на операцию: gc.alloc.rate.norm профайлера gc.
+ * База H2 здесь в той же куче, поэтому постоянство памяти при чтении 1M объявлений
+ * проверяет не бенчмарк, а PostStreamHeapTest в выполнении surefire "heap".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PostFinderBenchmark {
+    /**
+     * Прежний запрос ленты одним fetch join, для сравнения с загрузкой в три запроса.
+     */
+    private static final String CARTESIAN_FEED = """
+            select p from Post p
+            left join fetch p.user
+            left join fetch p.car c
+            left join fetch c.engine
+            left join fetch p.photos phs
+            left join fetch phs.photo ph
+            order by p.created desc""";
+
+    @Param({"1000", "100000", "1000000"})
+    public int posts;
+
+    @Param({"true", "false"})
+    public boolean queryCache;
+
+    private BenchmarkDatabase database;
+    private CrudRepository crudRepository;
+    private HibernatePostRepository postRepository;
+    private Post sample;
+
+    @Setup
+    public void setUp() {
+        database = BenchmarkDatabase.open(true);
+        crudRepository = database.crudRepository();
+        postRepository = new HibernatePostRepository(crudRepository);
+        sample = Dataset.seed(crudRepository, posts);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    private HibernatePostRepository repository() {
+        if (!queryCache) {
+            crudRepository.evictQueryRegion(HibernatePostRepository.FEED_CACHE_REGION);
+        }
+        return postRepository;
+    }
+
+    @Benchmark
+    public Optional<Post> findById() {
+        return repository().findById(sample.getId());
+    }
+
+    @Benchmark
+    public Collection<Post> findAllOrderByCreated() {
+        return repository().findAllOrderByCreated();
+    }
+
+    @Benchmark
+    public List<Post> findAllCartesianFetchJoin() {
+        return crudRepository.query(CARTESIAN_FEED, Post.class);
+    }
+
+    @Benchmark
+    public Page<Post> findPageOrderByCreated() {
+        return repository().findPageOrderByCreated(Cursor.of(sample.getCreated(), sample.getId()), 20);
+    }
+
+    @Benchmark
+    public Page<Post> findEntityPageOf1000() {
+        return repository().findPageOrderByCreated(null, 1000);
+    }
+
+    @Benchmark
+    public Page<PostCard> findCardPageOf1000() {
+        return repository().findCardPageOrderByCreated(null, 1000);
+    }
+
+    @Benchmark
+    public void streamAllOrderByCreated(Blackhole blackhole) {
+        try (Stream<Post> stream = repository().streamAllOrderByCreated()) {
+            stream.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public Collection<Post> findAllByCreatedBetween() {
+        return repository().findAllByCreatedBetween(sample.getCreated().minusHours(1), sample.getCreated());
+    }
+
+    @Benchmark
+    public Collection<Post> findAllWherePhotoIsNotNull() {
+        return repository().findAllWherePhotoIsNotNull();
+    }
+
+    @Benchmark
+    public Collection<Post> findAllByCarNameLike() {
+        return repository().findAllByCarNameLike(sample.getCar().getName());
+    }
+
+    @Benchmark
+    public List<Post> searchByCarNamePrefix() {
+        return repository().searchByCarName(sample.getCar().getName(), SearchMode.PREFIX, 20);
+    }
+}
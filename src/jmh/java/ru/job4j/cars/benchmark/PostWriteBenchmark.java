@@ -0,0 +1,126 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.job4j.cars.benchmark.IdentityEntities.IdentityPost;
+import ru.job4j.cars.benchmark.IdentityEntities.IdentityPostPhoto;
+import ru.job4j.cars.benchmark.IdentityEntities.IdentityPriceHistory;
+import ru.job4j.cars.model.File;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.model.PriceHistory;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+import ru.job4j.cars.repository.hibernate.HibernateFileRepository;
+import ru.job4j.cars.repository.hibernate.HibernatePostRepository;
+import ru.job4j.cars.repository.hibernate.HibernateUserRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Создание объявлений: по одному через Session против createAll через StatelessSession с JDBC batch.
+ * Объявление с 10 фото и 5 записями истории цены в одной транзакции: id из последовательностей
+ * с pooled-оптимизатором против IDENTITY (IdentityEntities), результат - строк в секунду.
+ * Объявления создаются без автомобиля: Post.car - один к одному, car_id уникален.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostWriteBenchmark {
+    private static final int CHUNK = 1000;
+    private static final int PHOTOS = 10;
+    private static final int PRICES = 5;
+    private static final int POST_ROWS = 1 + PHOTOS + PRICES;
+
+    private BenchmarkDatabase database;
+    private CrudRepository crudRepository;
+    private HibernatePostRepository postRepository;
+    private User user;
+    private List<File> files;
+
+    @Setup
+    public void setUp() {
+        database = BenchmarkDatabase.open(true, BenchmarkDatabase.DEFAULT_POOL_SIZE, false,
+                IdentityPost.class, IdentityPostPhoto.class, IdentityPriceHistory.class);
+        crudRepository = database.crudRepository();
+        postRepository = new HibernatePostRepository(crudRepository);
+        user = new HibernateUserRepository(crudRepository).create(new User(0, "bench-writer", "password"));
+        HibernateFileRepository fileRepository = new HibernateFileRepository(crudRepository);
+        files = IntStream.range(0, PHOTOS)
+                .mapToObj(i -> fileRepository.create(new File(null, "bench-write-" + i, "bench/write/" + i)))
+                .toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    private Post newPost() {
+        return Post.builder()
+                .description("bench write")
+                .created(LocalDateTime.now())
+                .user(user)
+                .build();
+    }
+
+    @Benchmark
+    public Post create() {
+        return postRepository.create(newPost());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK)
+    public Collection<Post> createAll() {
+        List<Post> posts = IntStream.range(0, CHUNK).mapToObj(i -> newPost()).toList();
+        return postRepository.createAll(posts);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(POST_ROWS)
+    public Post createPostWithPhotosAndPricesSequence() {
+        return crudRepository.tx(session -> {
+            Post post = newPost();
+            session.persist(post);
+            for (int i = 0; i < PHOTOS; i++) {
+                session.persist(new PostPhoto(null, post, files.get(i), i));
+            }
+            for (int i = 0; i < PRICES; i++) {
+                session.persist(PriceHistory.builder()
+                        .before(1_000_000L + i)
+                        .after(1_000_000L + i + 1)
+                        .created(post.getCreated())
+                        .post(post)
+                        .build());
+            }
+            return post;
+        });
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(POST_ROWS)
+    public IdentityPost createPostWithPhotosAndPricesIdentity() {
+        return crudRepository.tx(session -> {
+            IdentityPost post = new IdentityPost("bench write", LocalDateTime.now(), user);
+            session.persist(post);
+            for (int i = 0; i < PHOTOS; i++) {
+                session.persist(new IdentityPostPhoto(post, files.get(i), i));
+            }
+            for (int i = 0; i < PRICES; i++) {
+                session.persist(new IdentityPriceHistory(1_000_000L + i, 1_000_000L + i + 1,
+                        LocalDateTime.now(), post));
+            }
+            return post;
+        });
+    }
+}
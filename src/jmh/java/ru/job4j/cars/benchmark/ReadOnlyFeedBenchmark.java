@@ -0,0 +1,56 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка большой ленты в транзакции чтения-записи (tx) против read-only сессии (readOnly):
+ * в tx Hibernate хранит снимок каждой сущности для dirty checking и делает flush перед commit.
+ * Сравнивать gc.alloc.rate.norm профайлера gc - байты, выделенные на одну загрузку ленты.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReadOnlyFeedBenchmark {
+    private static final String FEED = """
+            select p from Post p
+            left join fetch p.user
+            left join fetch p.car c
+            left join fetch c.engine
+            order by p.created desc, p.id desc""";
+
+    @Param({"10000", "100000"})
+    public int posts;
+
+    private BenchmarkDatabase database;
+    private CrudRepository crudRepository;
+
+    @Setup
+    public void setUp() {
+        database = BenchmarkDatabase.open(true);
+        crudRepository = database.crudRepository();
+        Dataset.seed(crudRepository, posts);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Post> feedInTx() {
+        return crudRepository.tx(session -> session.createQuery(FEED, Post.class).list());
+    }
+
+    @Benchmark
+    public List<Post> feedInReadOnly() {
+        return crudRepository.readOnly(session -> session.createQuery(FEED, Post.class).list());
+    }
+}
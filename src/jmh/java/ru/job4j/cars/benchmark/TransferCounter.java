@@ -0,0 +1,105 @@
+package ru.job4j.cars.benchmark;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчик строк и байтов, которые Hibernate прочитал из ResultSet, - то, что база передала приложению.
+ * Байты - оценка по значениям колонок: строки в UTF-8, числа и даты по размеру двоичного типа.
+ * Соединения, запросы и ResultSet оборачиваются прокси поверх пула.
+ */
+public final class TransferCounter {
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final DataSource dataSource;
+
+    TransferCounter(DataSource target) {
+        this.dataSource = proxy(DataSource.class, target);
+    }
+
+    DataSource dataSource() {
+        return dataSource;
+    }
+
+    public long rows() {
+        return rows.get();
+    }
+
+    public long bytes() {
+        return bytes.get();
+    }
+
+    private <T> T proxy(Class<T> type, T target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object result = invoke(method, target, args);
+            if (result instanceof ResultSet) {
+                if (type != ResultSet.class) {
+                    return proxy(ResultSet.class, (ResultSet) result);
+                }
+            } else if (type == ResultSet.class) {
+                count(method, args, result);
+            } else if (result instanceof CallableStatement) {
+                return proxy(CallableStatement.class, (CallableStatement) result);
+            } else if (result instanceof PreparedStatement) {
+                return proxy(PreparedStatement.class, (PreparedStatement) result);
+            } else if (result instanceof Statement) {
+                return proxy(Statement.class, (Statement) result);
+            } else if (result instanceof Connection) {
+                return proxy(Connection.class, (Connection) result);
+            }
+            return result;
+        };
+        return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void count(Method method, Object[] args, Object result) {
+        if ("next".equals(method.getName())) {
+            if (Boolean.TRUE.equals(result)) {
+                rows.incrementAndGet();
+            }
+        } else if (method.getName().startsWith("get") && args != null && args.length > 0 && result != null) {
+            bytes.addAndGet(size(result));
+        }
+    }
+
+    private static long size(Object value) {
+        if (value instanceof String string) {
+            return string.getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (value instanceof byte[] array) {
+            return array.length;
+        }
+        if (value instanceof Boolean || value instanceof Byte) {
+            return 1;
+        }
+        if (value instanceof Short) {
+            return 2;
+        }
+        if (value instanceof Integer || value instanceof Float) {
+            return 4;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString().length();
+        }
+        return 8;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.job4j.cars.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.job4j.cars.repository.hibernate.HibernatePostRepository;
+
+import javax.cache.CacheManager;
+
+@Configuration
+public class CacheMetricsConfig {
+    private static final Tags TAGS = Tags.of("cacheManager", "hibernate");
+
+    /**
+     * Метрики регионов кэша второго уровня и кэша запросов: cache.gets{result=hit|miss},
+     * cache.puts, cache.removals, cache.evictions и cache.hit.ratio с тегом cache = имя региона.
+     *
+     * @param sessionFactory фабрика сессий.
+     * @return binder метрик.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(SessionFactory sessionFactory) {
+        return registry -> {
+            CacheImplementor cache = sessionFactory.unwrap(SessionFactoryImplementor.class).getCache();
+            cache.getQueryResultsCache(HibernatePostRepository.FEED_CACHE_REGION);
+            CacheManager cacheManager = ((JCacheRegionFactory) cache.getRegionFactory()).getCacheManager();
+            for (String name : cacheManager.getCacheNames()) {
+                JCacheMetrics.monitor(registry, cacheManager.getCache(name), TAGS);
+                Gauge.builder("cache.hit.ratio", registry, r -> hitRatio(r, name))
+                        .tags(TAGS.and("cache", name))
+                        .register(registry);
+            }
+        };
+    }
+
+    private static double hitRatio(MeterRegistry registry, String cache) {
+        double hits = gets(registry, cache, "hit");
+        double total = hits + gets(registry, cache, "miss");
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private static double gets(MeterRegistry registry, String cache, String result) {
+        FunctionCounter counter = registry.find("cache.gets")
+                .tags("cache", cache, "result", result)
+                .functionCounter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,25 @@
+package ru.job4j.cars.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.photo.PackCompactor;
+
+/**
+ * Actuator endpoint photopacks: compact запускает сжатие pack-файлов, не дожидаясь
+ * очередного прохода по расписанию. Открыт только через JMX, не по HTTP.
+ */
+@Component
+@Endpoint(id = "photopacks")
+public class PhotoPacksEndpoint {
+    private final PackCompactor packCompactor;
+
+    public PhotoPacksEndpoint(PackCompactor packCompactor) {
+        this.packCompactor = packCompactor;
+    }
+
+    @WriteOperation
+    public PackCompactor.Result compact() {
+        return packCompactor.compact();
+    }
+}
@@ -0,0 +1,27 @@
+package ru.job4j.cars.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.photo.PhotoService;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint photovariants: backfill создает уменьшенные копии
+ * для фото, загруженных до появления копий. Открыт только через JMX, не по HTTP.
+ */
+@Component
+@Endpoint(id = "photovariants")
+public class PhotoVariantsEndpoint {
+    private final PhotoService photoService;
+
+    public PhotoVariantsEndpoint(PhotoService photoService) {
+        this.photoService = photoService;
+    }
+
+    @WriteOperation
+    public Map<String, Integer> backfill() {
+        return Map.of("files", photoService.backfill());
+    }
+}
@@ -0,0 +1,55 @@
+package ru.job4j.cars.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.job4j.cars.photo.PhotoVolume;
+import ru.job4j.cars.photo.PhotoVolumes;
+
+@Configuration
+public class PhotoVolumeMetricsConfig {
+    /**
+     * Метрики томов хранилища фото с тегом volume = каталог тома:
+     * photo.volume.io.operations и photo.volume.io.bytes{direction=read|write},
+     * photo.volume.capacity, photo.volume.usable и photo.volume.weight.
+     *
+     * @param volumes тома.
+     * @return binder метрик.
+     */
+    @Bean
+    public MeterBinder photoVolumeMetrics(PhotoVolumes volumes) {
+        return registry -> {
+            for (PhotoVolume volume : volumes.all()) {
+                Tags tags = Tags.of("volume", volume.name());
+                FunctionCounter.builder("photo.volume.io.operations", volume, PhotoVolume::reads)
+                        .tags(tags.and("direction", "read"))
+                        .register(registry);
+                FunctionCounter.builder("photo.volume.io.operations", volume, PhotoVolume::writes)
+                        .tags(tags.and("direction", "write"))
+                        .register(registry);
+                FunctionCounter.builder("photo.volume.io.bytes", volume, PhotoVolume::readBytes)
+                        .tags(tags.and("direction", "read"))
+                        .baseUnit("bytes")
+                        .register(registry);
+                FunctionCounter.builder("photo.volume.io.bytes", volume, PhotoVolume::writtenBytes)
+                        .tags(tags.and("direction", "write"))
+                        .baseUnit("bytes")
+                        .register(registry);
+                Gauge.builder("photo.volume.capacity", volume, PhotoVolume::totalSpace)
+                        .tags(tags)
+                        .baseUnit("bytes")
+                        .register(registry);
+                Gauge.builder("photo.volume.usable", volume, PhotoVolume::usableSpace)
+                        .tags(tags)
+                        .baseUnit("bytes")
+                        .register(registry);
+                Gauge.builder("photo.volume.weight", volume, PhotoVolume::weight)
+                        .tags(tags)
+                        .register(registry);
+            }
+        };
+    }
+}
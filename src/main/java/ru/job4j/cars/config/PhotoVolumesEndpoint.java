@@ -0,0 +1,53 @@
+package ru.job4j.cars.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.photo.PhotoVolumes;
+import ru.job4j.cars.photo.VolumeRebalancer;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint photovolumes: volumes - тома хранилища фото, место и ввод-вывод,
+ * rebalance - перенос фото на тома-владельцы, не дожидаясь очередного прохода по расписанию.
+ * Открыт только через JMX, не по HTTP.
+ */
+@Component
+@Endpoint(id = "photovolumes")
+public class PhotoVolumesEndpoint {
+    private final PhotoVolumes volumes;
+    private final VolumeRebalancer rebalancer;
+
+    public PhotoVolumesEndpoint(PhotoVolumes volumes, VolumeRebalancer rebalancer) {
+        this.volumes = volumes;
+        this.rebalancer = rebalancer;
+    }
+
+    @ReadOperation
+    public List<Volume> volumes() {
+        return volumes.all().stream()
+                .map(volume -> new Volume(
+                        volume.name(),
+                        volume.root().toString(),
+                        volume.weight(),
+                        volume.totalSpace(),
+                        volume.usableSpace(),
+                        volume.reads(),
+                        volume.readBytes(),
+                        volume.writes(),
+                        volume.writtenBytes()
+                ))
+                .toList();
+    }
+
+    @WriteOperation
+    public VolumeRebalancer.Result rebalance() {
+        return rebalancer.rebalance();
+    }
+
+    public record Volume(String name, String root, int weight, long totalSpace, long usableSpace,
+                         long reads, long readBytes, long writes, long writtenBytes) {
+    }
+}
@@ -0,0 +1,27 @@
+package ru.job4j.cars.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.repository.PostFeedRepository;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint postfeed: rebuild пересобирает ленту post_feed целиком.
+ * Нужен после записи в базу в обход репозиториев. Открыт только через JMX, не по HTTP.
+ */
+@Component
+@Endpoint(id = "postfeed")
+public class PostFeedEndpoint {
+    private final PostFeedRepository postFeedRepository;
+
+    public PostFeedEndpoint(PostFeedRepository postFeedRepository) {
+        this.postFeedRepository = postFeedRepository;
+    }
+
+    @WriteOperation
+    public Map<String, Integer> rebuild() {
+        return Map.of("rows", postFeedRepository.rebuild());
+    }
+}
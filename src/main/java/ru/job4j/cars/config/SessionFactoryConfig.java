@@ -1,16 +1,98 @@
 package ru.job4j.cars.config;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.JdbcSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jmx.export.MBeanExporter;
+import ru.job4j.cars.repository.metrics.SlowQueryStatisticsFactory;
+
+import javax.sql.DataSource;
 
 @Configuration
 public class SessionFactoryConfig {
+    private static final String DATA_SOURCE = "dataSource";
+
+    /**
+     * Пул соединений, настройки datasource.* из application.properties.
+     * Метрики пула (hikaricp.connections.*) публикует actuator.
+     *
+     * @return пул соединений.
+     */
+    @Bean(name = DATA_SOURCE, destroyMethod = "close")
+    @ConfigurationProperties(prefix = "datasource")
+    public HikariDataSource dataSource() {
+        return new HikariDataSource();
+    }
+
+    /**
+     * Убрать пул из экспорта MBean Spring: при datasource.register-mbeans=true HikariCP сам
+     * регистрирует MBean пула и его настроек, повторная регистрация прерывает запуск приложения.
+     *
+     * @return обработчик, исключающий бин dataSource из MBeanExporter.
+     */
+    @Bean
+    public static BeanPostProcessor dataSourceMBeanExclusion() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof MBeanExporter exporter) {
+                    exporter.addExcludedBean(DATA_SOURCE);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Фабрика сессий поверх пула соединений.
+     * Порог и доля журнала медленных запросов - slow-query.* из application.properties.
+     *
+     * @param dataSource пул соединений.
+     * @param thresholdMillis порог медленного запроса, мс.
+     * @param sampleRate доля журналируемых медленных запросов от 0 до 1.
+     * @return фабрика сессий.
+     */
     @Bean(destroyMethod = "close")
+    public SessionFactory sessionFactory(DataSource dataSource,
+                                         @Value("${slow-query.threshold-ms:200}") long thresholdMillis,
+                                         @Value("${slow-query.sample-rate:1.0}") double sampleRate) {
+        StandardServiceRegistryBuilder registryBuilder = new StandardServiceRegistryBuilder().configure()
+                .applySetting(JdbcSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource)
+                .applySetting(SlowQueryStatisticsFactory.THRESHOLD_MS, thresholdMillis)
+                .applySetting(SlowQueryStatisticsFactory.SAMPLE_RATE, sampleRate);
+        withoutCredentials(registryBuilder);
+        return buildSessionFactory(registryBuilder);
+    }
+
+    /**
+     * Убрать логин и пароль hibernate.cfg.xml, они для встроенного пула. С ними Hibernate
+     * берет соединения через DataSource.getConnection(user, password), а HikariCP его не поддерживает.
+     *
+     * @param registryBuilder настройки фабрики сессий с DataSource.
+     */
+    public static void withoutCredentials(StandardServiceRegistryBuilder registryBuilder) {
+        registryBuilder.getSettings().remove(JdbcSettings.JAKARTA_JDBC_USER);
+        registryBuilder.getSettings().remove(JdbcSettings.JAKARTA_JDBC_PASSWORD);
+    }
+
+    /**
+     * Фабрика сессий на соединениях из hibernate.cfg.xml, для тестов и демо.
+     *
+     * @return фабрика сессий.
+     */
     public SessionFactory createSessionFactory() {
-        return new MetadataSources(new StandardServiceRegistryBuilder().configure().build())
+        return buildSessionFactory(new StandardServiceRegistryBuilder().configure());
+    }
+
+    private SessionFactory buildSessionFactory(StandardServiceRegistryBuilder registryBuilder) {
+        return new MetadataSources(registryBuilder.build())
                 .buildMetadata().buildSessionFactory();
     }
 }
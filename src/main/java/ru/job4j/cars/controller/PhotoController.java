@@ -0,0 +1,130 @@
+package ru.job4j.cars.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Globals;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.job4j.cars.model.File;
+import ru.job4j.cars.photo.ByteRange;
+import ru.job4j.cars.photo.PhotoStore;
+import ru.job4j.cars.photo.PhotoVariant;
+import ru.job4j.cars.photo.StoredPhoto;
+import ru.job4j.cars.repository.FileRepository;
+
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.util.Optional;
+
+/**
+ * Отдача фото: ETag, Last-Modified, долгий Cache-Control и Range.
+ * Параметр variant=thumbnail|medium отдает уменьшенную копию, пока копии нет - оригинал
+ * с Cache-Control: no-cache, чтобы кэш не закрепил оригинал по адресу копии.
+ * Тело отдается через sendfile Tomcat, если коннектор его поддерживает,
+ * иначе через FileChannel.transferTo в поток ответа, без byte[] размером с файл.
+ */
+@RestController
+public class PhotoController {
+    static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    static final String FALLBACK_CACHE_CONTROL = "no-cache";
+
+    private final FileRepository fileRepository;
+    private final PhotoStore photoStore;
+
+    public PhotoController(FileRepository fileRepository, PhotoStore photoStore) {
+        this.fileRepository = fileRepository;
+        this.photoStore = photoStore;
+    }
+
+    @GetMapping("/photos/{id}")
+    public void photo(@PathVariable int id,
+                      @RequestParam(required = false) String variant,
+                      HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        Optional<PhotoVariant> photoVariant = PhotoVariant.parse(variant);
+        if (variant != null && photoVariant.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        Optional<File> file = fileRepository.findById(id);
+        Optional<String> path = file.map(value -> photoVariant.map(v -> v.pathOf(value)).orElse(value.getPath()));
+        Optional<StoredPhoto> photo = path.flatMap(photoStore::open);
+        if (photo.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        boolean fallback = photoVariant.isPresent() && path.get().equals(file.get().getPath());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, fallback ? FALLBACK_CACHE_CONTROL : CACHE_CONTROL);
+        serve(photo.get(), contentType(path.get(), file.get().getName()), request, response);
+    }
+
+    private void serve(StoredPhoto photo, String contentType, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, photo.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, photo.lastModified().toEpochMilli());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (isNotModified(photo, request)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        Optional<ByteRange> range = rangeOf(photo, request);
+        long start = 0;
+        long length = photo.size();
+        if (range.isPresent()) {
+            if (!range.get().isSatisfiable()) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + photo.size());
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            start = range.get().start();
+            length = range.get().length();
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.get().contentRange());
+        }
+        response.setContentType(contentType);
+        response.setContentLengthLong(length);
+        if (!"HEAD".equals(request.getMethod())) {
+            write(photo, start, length, request, response);
+        }
+    }
+
+    private static boolean isNotModified(StoredPhoto photo, HttpServletRequest request) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return "*".equals(ifNoneMatch.strip()) || ifNoneMatch.contains(photo.etag());
+        }
+        long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && photo.lastModified().toEpochMilli() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static Optional<ByteRange> rangeOf(StoredPhoto photo, HttpServletRequest request) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.strip().equals(photo.etag())) {
+            return Optional.empty();
+        }
+        return ByteRange.parse(request.getHeader(HttpHeaders.RANGE), photo.size());
+    }
+
+    private static void write(StoredPhoto photo, long start, long length, HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(Globals.SENDFILE_SUPPORTED_ATTR))) {
+            request.setAttribute(Globals.SENDFILE_FILENAME_ATTR, photo.file().toString());
+            request.setAttribute(Globals.SENDFILE_FILE_START_ATTR, photo.offset() + start);
+            request.setAttribute(Globals.SENDFILE_FILE_END_ATTR, photo.offset() + start + length);
+            return;
+        }
+        photo.transferTo(start, length, Channels.newChannel(response.getOutputStream()));
+    }
+
+    private static String contentType(String path, String name) {
+        String type = URLConnection.guessContentTypeFromName(path);
+        if (type == null && name != null) {
+            type = URLConnection.guessContentTypeFromName(name);
+        }
+        return type == null ? "application/octet-stream" : type;
+    }
+}
@@ -0,0 +1,134 @@
+package ru.job4j.cars.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadException;
+import org.apache.commons.fileupload2.core.FileUploadFileCountLimitException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.job4j.cars.dto.UploadedPhoto;
+import ru.job4j.cars.model.File;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.photo.AttachedPhoto;
+import ru.job4j.cars.photo.PhotoNotSavedException;
+import ru.job4j.cars.photo.PhotoRejectedException;
+import ru.job4j.cars.photo.PhotoService;
+import ru.job4j.cars.repository.PostRepository;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Загрузка фото объявления multipart/form-data.
+ * Тело запроса читается потоком: каждая часть идет через канал прямо в PhotoStore,
+ * без MultipartFile и без буфера размером с файл, поэтому разбор multipart
+ * в Spring выключен (spring.servlet.multipart.enabled=false).
+ * File и PostPhoto создаются только после того, как байты части сброшены на диск.
+ * Фото, уже прикрепленное к объявлению, повторно не прикрепляется, в ответе
+ * возвращается существующее.
+ * Загрузка - все или ничего: если часть отклонена, файловых частей больше
+ * photo.upload.max-files или фото не удалось сохранить, прикрепленные
+ * в этом запросе фото открепляются, а их файлы освобождаются.
+ */
+@RestController
+public class PhotoUploadController {
+    private final PostRepository postRepository;
+    private final PhotoService photoService;
+    private final long maxSize;
+    private final int maxFiles;
+
+    public PhotoUploadController(PostRepository postRepository,
+                                 PhotoService photoService,
+                                 @Value("${photo.upload.max-size:20971520}") long maxSize,
+                                 @Value("${photo.upload.max-files:20}") int maxFiles) {
+        this.postRepository = postRepository;
+        this.photoService = photoService;
+        this.maxSize = maxSize;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Загрузить фото объявления.
+     *
+     * @param postId id объявления.
+     * @param sort порядок первого фото, следующие получают sort + 1, sort + 2...
+     * @param request запрос multipart/form-data, все файловые части - фото.
+     * @return 201 и загруженные фото, 400 - не multipart или файлов больше photo.upload.max-files,
+     * 404 - нет объявления, 413 - фото больше photo.upload.max-size, 415 - формат не jpeg/png/gif/webp,
+     * 500 - File или фото объявления не удалось сохранить.
+     * @throws IOException ошибка чтения запроса или записи в хранилище.
+     */
+    @PostMapping("/posts/{postId}/photos")
+    public ResponseEntity<List<UploadedPhoto>> upload(@PathVariable int postId,
+                                                      @RequestParam(defaultValue = "0") int sort,
+                                                      HttpServletRequest request) throws IOException {
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<Post> post = postRepository.findById(postId);
+        if (post.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        List<UploadedPhoto> uploaded = new ArrayList<>();
+        List<Integer> created = new ArrayList<>();
+        boolean attached = false;
+        try {
+            upload(post.get(), sort, request, uploaded, created);
+            attached = true;
+        } catch (PhotoNotSavedException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (PhotoRejectedException e) {
+            return ResponseEntity.status(e.reason() == PhotoRejectedException.Reason.TOO_LARGE
+                    ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        } catch (FileUploadException e) {
+            return ResponseEntity.badRequest().build();
+        } finally {
+            if (!attached) {
+                created.forEach(photoService::detach);
+            }
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploaded);
+    }
+
+    /**
+     * @param created id фото, прикрепленных в этом запросе, их открепляет откат.
+     */
+    private void upload(Post post, int sort, HttpServletRequest request,
+                        List<UploadedPhoto> uploaded, List<Integer> created) throws IOException {
+        FileItemInputIterator parts = new JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory>()
+                .getItemIterator(request);
+        int files = 0;
+        while (parts.hasNext()) {
+            FileItemInput part = parts.next();
+            if (part.isFormField()) {
+                continue;
+            }
+            files++;
+            if (files > maxFiles) {
+                throw new FileUploadFileCountLimitException("Too many files in request", files, maxFiles);
+            }
+            try (ReadableByteChannel input = Channels.newChannel(part.getInputStream())) {
+                AttachedPhoto attached = photoService.attach(post, part.getName(), input, maxSize,
+                        sort + uploaded.size());
+                File file = attached.postPhoto().getPhoto();
+                if (attached.created()) {
+                    created.add(attached.postPhoto().getId());
+                }
+                uploaded.add(new UploadedPhoto(attached.postPhoto().getId(), file.getId(), file.getHash()));
+            }
+        }
+    }
+}
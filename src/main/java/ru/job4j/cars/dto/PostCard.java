@@ -0,0 +1,23 @@
+package ru.job4j.cars.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Карточка объявления для ленты, только поля для отображения.
+ *
+ * @param id id объявления.
+ * @param excerpt первые 200 символов описания.
+ * @param created дата создания.
+ * @param login login продавца.
+ * @param carName название автомобиля, null если автомобиль не указан.
+ * @param engineName название двигателя, null если автомобиль не указан.
+ * @param coverPath путь к миниатюре первого фото или к самому фото, пока миниатюры нет, null если фото нет.
+ */
+public record PostCard(int id,
+                       String excerpt,
+                       LocalDateTime created,
+                       String login,
+                       String carName,
+                       String engineName,
+                       String coverPath) {
+}
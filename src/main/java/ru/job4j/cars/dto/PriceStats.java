@@ -0,0 +1,19 @@
+package ru.job4j.cars.dto;
+
+/**
+ * Сводка изменений цены объявления за период.
+ *
+ * @param postId id объявления.
+ * @param changes число изменений цены за период.
+ * @param min минимальная цена после изменения.
+ * @param max максимальная цена после изменения.
+ * @param first цена после первого изменения за период.
+ * @param last цена после последнего изменения за период.
+ */
+public record PriceStats(int postId,
+                         long changes,
+                         long min,
+                         long max,
+                         long first,
+                         long last) {
+}
@@ -0,0 +1,11 @@
+package ru.job4j.cars.dto;
+
+/**
+ * Загруженное фото объявления.
+ *
+ * @param postPhotoId id фото объявления.
+ * @param fileId id файла, одинаковые байты дают один и тот же файл.
+ * @param hash SHA-256 байтов в hex.
+ */
+public record UploadedPhoto(int postPhotoId, int fileId, String hash) {
+}
@@ -2,6 +2,8 @@ package ru.job4j.cars.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -12,10 +14,15 @@ import java.util.Set;
 @AllArgsConstructor
 @Builder
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "car")
 @Table(name = "car")
 public class Car {
+    public static final String HISTORY_OWNERS_ROLE = Car.class.getName() + ".historyOwners";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "car_seq")
+    @SequenceGenerator(name = "car_seq", sequenceName = "car_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Integer id;
     private String name;
@@ -23,5 +30,6 @@ public class Car {
     @JoinColumn(name = "engine_id")
     private Engine engine;
     @OneToMany(mappedBy = "car")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "car_history_owners")
     private Set<HistoryOwner> historyOwners = new HashSet<>();
 }
@@ -2,6 +2,8 @@ package ru.job4j.cars.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -9,12 +11,24 @@ import lombok.*;
 @Builder
 @AllArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "file")
 @Table(name = "file")
 public class File {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "file_seq")
+    @SequenceGenerator(name = "file_seq", sequenceName = "file_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Integer id;
     private String name;
     private String path;
+    @Column(name = "thumbnail_path")
+    private String thumbnailPath;
+    @Column(name = "medium_path")
+    private String mediumPath;
+    private String hash;
+
+    public File(Integer id, String name, String path) {
+        this(id, name, path, null, null, null);
+    }
 }
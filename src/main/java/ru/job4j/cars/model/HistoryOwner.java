@@ -2,6 +2,8 @@ package ru.job4j.cars.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
@@ -11,10 +13,13 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "history_owners")
 @Table(name = "history_owners")
 public class HistoryOwner {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "history_owners_seq")
+    @SequenceGenerator(name = "history_owners_seq", sequenceName = "history_owners_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Integer id;
     @ManyToOne
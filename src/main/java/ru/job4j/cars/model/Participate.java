@@ -12,7 +12,8 @@ import lombok.*;
 @Table(name = "participates")
 public class Participate {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "participates_seq")
+    @SequenceGenerator(name = "participates_seq", sequenceName = "participates_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Integer id;
     @ManyToOne
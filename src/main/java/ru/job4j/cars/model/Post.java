@@ -2,6 +2,8 @@ package ru.job4j.cars.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -17,13 +19,17 @@ import java.util.Set;
 @Entity
 @Table(name = "auto_post")
 public class Post {
+    public static final String PHOTOS_ROLE = Post.class.getName() + ".photos";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "auto_post_seq")
+    @SequenceGenerator(name = "auto_post_seq", sequenceName = "auto_post_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
     private String description;
     private LocalDateTime created;
     @OneToMany(mappedBy = "post")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "auto_post_photos")
     private Set<PostPhoto> photos = new HashSet<>();
     @ManyToOne
     @JoinColumn(name = "auto_user_id")
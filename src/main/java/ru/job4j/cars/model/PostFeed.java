@@ -0,0 +1,39 @@
+package ru.job4j.cars.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка денормализованной ленты post_feed. Только для чтения,
+ * таблицу обновляет PostFeeds при записи объявлений, фото, цен и автомобилей.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Immutable
+@Table(name = "post_feed")
+public class PostFeed {
+    @Id
+    @Column(name = "post_id")
+    @EqualsAndHashCode.Include
+    private int postId;
+    private LocalDateTime created;
+    private String excerpt;
+    @Column(name = "seller_login")
+    private String sellerLogin;
+    @Column(name = "car_name")
+    private String carName;
+    @Column(name = "engine_name")
+    private String engineName;
+    private Long price;
+    @Column(name = "photo_count")
+    private int photoCount;
+    @Column(name = "cover_path")
+    private String coverPath;
+}
@@ -2,6 +2,8 @@ package ru.job4j.cars.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -9,10 +11,13 @@ import lombok.*;
 @AllArgsConstructor
 @Builder
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "auto_post_photo")
 @Table(name = "auto_post_photo")
 public class PostPhoto {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "auto_post_photo_seq")
+    @SequenceGenerator(name = "auto_post_photo_seq", sequenceName = "auto_post_photo_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Integer id;
     @ManyToOne
@@ -14,7 +14,8 @@ import java.time.LocalDateTime;
 @Table(name = "price_history")
 public class PriceHistory {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "price_history_seq")
+    @SequenceGenerator(name = "price_history_seq", sequenceName = "price_history_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
     private long before;
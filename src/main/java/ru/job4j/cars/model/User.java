@@ -2,6 +2,8 @@ package ru.job4j.cars.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -9,11 +11,14 @@ import lombok.*;
 @AllArgsConstructor
 @Builder
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "auto_user")
 @Table(name = "auto_user")
 public class User {
     @EqualsAndHashCode.Include
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "auto_user_seq")
+    @SequenceGenerator(name = "auto_user_seq", sequenceName = "auto_user_seq", allocationSize = 50)
     private int id;
     private String login;
     private String password;
@@ -0,0 +1,13 @@
+package ru.job4j.cars.photo;
+
+import ru.job4j.cars.model.PostPhoto;
+
+/**
+ * Фото, прикрепленное к объявлению при загрузке.
+ *
+ * @param postPhoto фото объявления с id.
+ * @param created false, если те же байты уже были прикреплены к объявлению
+ *                и возвращено существующее фото.
+ */
+public record AttachedPhoto(PostPhoto postPhoto, boolean created) {
+}
@@ -0,0 +1,65 @@
+package ru.job4j.cars.photo;
+
+import java.util.Optional;
+
+/**
+ * Один диапазон заголовка Range: bytes=start-end, bytes=start- или bytes=-suffix.
+ *
+ * @param start первый байт.
+ * @param end последний байт включительно.
+ * @param size размер ресурса.
+ */
+public record ByteRange(long start, long end, long size) {
+    private static final String PREFIX = "bytes=";
+
+    /**
+     * Разобрать заголовок Range. Несколько диапазонов и некорректный заголовок
+     * игнорируются, как разрешает RFC 9110: отдается ресурс целиком.
+     *
+     * @param header значение заголовка или null.
+     * @param size размер ресурса.
+     * @return диапазон, конец обрезается по размеру ресурса.
+     */
+    public static Optional<ByteRange> parse(String header, long size) {
+        if (header == null || !header.startsWith(PREFIX) || header.indexOf(',') >= 0) {
+            return Optional.empty();
+        }
+        String spec = header.substring(PREFIX.length()).strip();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return Optional.empty();
+        }
+        try {
+            String first = spec.substring(0, dash).strip();
+            String last = spec.substring(dash + 1).strip();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                return Optional.of(new ByteRange(Math.max(0, size - suffix), size - 1, size));
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            return start <= end || last.isEmpty() || start >= size
+                    ? Optional.of(new ByteRange(start, end, size))
+                    : Optional.empty();
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Диапазон пересекается с ресурсом, иначе ответ 416.
+     *
+     * @return true, если есть хотя бы один байт.
+     */
+    public boolean isSatisfiable() {
+        return start >= 0 && start < size && start <= end;
+    }
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public String contentRange() {
+        return "bytes %d-%d/%d".formatted(start, end, size);
+    }
+}
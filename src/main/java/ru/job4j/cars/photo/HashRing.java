@@ -0,0 +1,60 @@
+package ru.job4j.cars.photo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Согласованное хэширование фото по томам с весами. У тома weight * POINTS_PER_WEIGHT
+ * точек на кольце, точка - первые 8 байт SHA-256 от "имя#номер". Фото принадлежит тому
+ * первой точки не меньше первых 8 байт хэша фото. При добавлении тома переезжают только
+ * фото, попавшие на дуги его точек, - доля, равная доле его веса.
+ */
+public final class HashRing {
+    static final int POINTS_PER_WEIGHT = 128;
+
+    private final NavigableMap<Long, PhotoVolume> points = new TreeMap<>();
+    private final List<PhotoVolume> volumes;
+
+    public HashRing(Collection<PhotoVolume> volumes) {
+        if (volumes.isEmpty()) {
+            throw new IllegalArgumentException("Hash ring needs at least one volume");
+        }
+        this.volumes = List.copyOf(volumes);
+        for (PhotoVolume volume : this.volumes) {
+            for (int i = 0; i < volume.weight() * POINTS_PER_WEIGHT; i++) {
+                points.putIfAbsent(point(volume.name() + "#" + i), volume);
+            }
+        }
+    }
+
+    public List<PhotoVolume> volumes() {
+        return volumes;
+    }
+
+    /**
+     * Том фото.
+     *
+     * @param hash SHA-256 байтов фото в hex.
+     * @return том, в котором фото должно лежать.
+     */
+    public PhotoVolume locate(String hash) {
+        Map.Entry<Long, PhotoVolume> entry = points.ceilingEntry(Long.parseUnsignedLong(hash.substring(0, 16), 16));
+        return entry == null ? points.firstEntry().getValue() : entry.getValue();
+    }
+
+    private static long point(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package ru.job4j.cars.photo;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Обработка изображений средствами JDK: ориентация EXIF, уменьшение, запись JPEG.
+ */
+final class Images {
+    private static final String JPEG_METADATA = "javax_imageio_jpeg_image_1.0";
+    private static final int APP1 = 0xE1;
+    private static final byte[] EXIF_HEADER = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+    private static final int ORIENTATION_TAG = 0x0112;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private Images() {
+    }
+
+    /**
+     * Ориентация EXIF из метаданных JPEG, 1 для остальных форматов.
+     *
+     * @param metadata метаданные изображения ImageIO.
+     * @return ориентация от 1 до 8.
+     */
+    static int orientation(IIOMetadata metadata) {
+        if (metadata == null || !Arrays.asList(metadata.getMetadataFormatNames()).contains(JPEG_METADATA)) {
+            return 1;
+        }
+        Node root = metadata.getAsTree(JPEG_METADATA);
+        for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if ("markerSequence".equals(node.getNodeName())) {
+                for (Node marker = node.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                    if (marker instanceof IIOMetadataNode unknown && "unknown".equals(marker.getNodeName())
+                            && String.valueOf(APP1).equals(unknown.getAttribute("MarkerTag"))
+                            && unknown.getUserObject() instanceof byte[] data) {
+                        return exifOrientation(data);
+                    }
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Ориентация из сегмента APP1: заголовок Exif, TIFF заголовок и IFD0.
+     *
+     * @param app1 данные сегмента APP1.
+     * @return ориентация от 1 до 8, 1 если тега нет или сегмент поврежден.
+     */
+    static int exifOrientation(byte[] app1) {
+        if (app1.length < EXIF_HEADER.length + 8
+                || !Arrays.equals(app1, 0, EXIF_HEADER.length, EXIF_HEADER, 0, EXIF_HEADER.length)) {
+            return 1;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(app1, EXIF_HEADER.length, app1.length - EXIF_HEADER.length).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifd = tiff.getInt(4);
+        if (ifd < 8 || ifd + 2 > tiff.limit()) {
+            return 1;
+        }
+        int entries = Short.toUnsignedInt(tiff.getShort(ifd));
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                return 1;
+            }
+            if (Short.toUnsignedInt(tiff.getShort(entry)) == ORIENTATION_TAG) {
+                int orientation = Short.toUnsignedInt(tiff.getShort(entry + 8));
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Повернуть и отразить изображение по ориентации EXIF, результат в RGB.
+     *
+     * @param image изображение как записано в файле.
+     * @param orientation ориентация EXIF.
+     * @return изображение как его нужно показывать.
+     */
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> {
+                transform.translate(width, 0);
+                transform.scale(-1, 1);
+            }
+            case 3 -> {
+                transform.translate(width, height);
+                transform.rotate(Math.PI);
+            }
+            case 4 -> {
+                transform.translate(0, height);
+                transform.scale(1, -1);
+            }
+            case 5 -> {
+                transform.rotate(-Math.PI / 2);
+                transform.scale(-1, 1);
+            }
+            case 6 -> {
+                transform.translate(height, 0);
+                transform.rotate(Math.PI / 2);
+            }
+            case 7 -> {
+                transform.scale(-1, 1);
+                transform.translate(-height, width);
+                transform.rotate(3 * Math.PI / 2);
+            }
+            case 8 -> {
+                transform.translate(0, width);
+                transform.rotate(3 * Math.PI / 2);
+            }
+            default -> {
+            }
+        }
+        boolean swap = orientation >= 5 && orientation <= 8;
+        return draw(image, swap ? height : width, swap ? width : height, transform, false);
+    }
+
+    /**
+     * Уменьшить изображение так, чтобы большая сторона была не больше maxSide.
+     * Уменьшение идет шагами в два раза, затем билинейной интерполяцией до размера,
+     * так мелкие детали не теряются, как при одном шаге.
+     *
+     * @param image изображение.
+     * @param maxSide максимальная сторона.
+     * @return уменьшенное изображение или исходное, если оно уже меньше.
+     */
+    static BufferedImage scale(BufferedImage image, int maxSide) {
+        int side = Math.max(image.getWidth(), image.getHeight());
+        if (side <= maxSide) {
+            return image;
+        }
+        double ratio = (double) maxSide / side;
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return resize(current, width, height);
+    }
+
+    /**
+     * Записать JPEG без метаданных: EXIF исходного файла в копию не попадает.
+     *
+     * @param image изображение.
+     * @param file файл.
+     * @throws IOException ошибка записи.
+     */
+    static void writeJpeg(BufferedImage image, Path file) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        AffineTransform transform = AffineTransform.getScaleInstance(
+                (double) width / image.getWidth(), (double) height / image.getHeight());
+        return draw(image, width, height, transform, true);
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height,
+                                      AffineTransform transform, boolean interpolate) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolate
+                    ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+                    : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,133 @@
+package ru.job4j.cars.photo;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.repository.FileRepository;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сжатие pack-файлов в фоне: место фото удаленных File освобождается,
+ * когда доля мусора в pack-файле не меньше photo.pack.compact-garbage-ratio.
+ * Живые фото переписываются в последний pack-файл, пути в File заменяются,
+ * а сам pack-файл удаляется на следующем проходе, если на него больше
+ * нет ссылок, так читатели со старым путем успевают дочитать фото.
+ * Проход раз в photo.pack.compact-interval-ms, только при photo.pack.enabled=true.
+ */
+@Component
+@Slf4j
+public class PackCompactor {
+    private final PackStore packStore;
+    private final FileRepository fileRepository;
+    private final double garbageRatio;
+    private final ScheduledExecutorService scheduler;
+
+    public PackCompactor(PackStore packStore,
+                         FileRepository fileRepository,
+                         @Value("${photo.pack.compact-garbage-ratio:0.5}") double garbageRatio,
+                         @Value("${photo.pack.compact-interval-ms:3600000}") long intervalMs) {
+        this.packStore = packStore;
+        this.fileRepository = fileRepository;
+        this.garbageRatio = garbageRatio;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pack-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (packStore.isEnabled() && intervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    log.error("Error compact packs", e);
+                }
+            }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Результат прохода.
+     *
+     * @param compacted pack-файлов, из которых переписаны живые фото.
+     * @param deleted удаленных pack-файлов.
+     * @param reclaimedBytes байтов мусора в сжатых pack-файлах.
+     */
+    public record Result(int compacted, int deleted, long reclaimedBytes) {
+    }
+
+    /**
+     * Один проход: удалить сжатые на прошлом проходе pack-файлы без ссылок
+     * и сжать pack-файлы с долей мусора не меньше photo.pack.compact-garbage-ratio.
+     *
+     * @return результат прохода.
+     */
+    public synchronized Result compact() {
+        int deleted = 0;
+        for (int pack : packStore.retiredPacks()) {
+            if (move(pack) == 0) {
+                try {
+                    packStore.delete(pack);
+                    deleted++;
+                } catch (IOException e) {
+                    log.error("Error delete pack {}", pack, e);
+                }
+            }
+        }
+        int compacted = 0;
+        long reclaimed = 0;
+        for (int pack : packStore.sealedPacks()) {
+            long size = packStore.size(pack);
+            long live = liveBytes(fileRepository.findPathsStartingWith(PackLocation.prefix(pack)));
+            if (size > 0 && size - live >= size * garbageRatio) {
+                packStore.retire(pack);
+                move(pack);
+                compacted++;
+                reclaimed += size - live;
+            }
+        }
+        log.info("Compacted {} packs, deleted {} packs, reclaimed {} bytes", compacted, deleted, reclaimed);
+        return new Result(compacted, deleted, reclaimed);
+    }
+
+    /**
+     * Переписать фото pack-файла, на которые есть ссылки, и заменить пути.
+     *
+     * @return число путей, которые ссылались на pack-файл.
+     */
+    private int move(int pack) {
+        Set<String> paths = fileRepository.findPathsStartingWith(PackLocation.prefix(pack));
+        List<PackLocation> locations = paths.stream()
+                .map(PackLocation::parse)
+                .flatMap(Optional::stream)
+                .toList();
+        try {
+            Map<PackLocation, PackLocation> moved = packStore.relocate(pack, locations);
+            moved.forEach((from, to) -> fileRepository.replacePath(from.path(), to.path()));
+        } catch (IOException e) {
+            log.error("Error move photos from pack {}", pack, e);
+        }
+        return paths.size();
+    }
+
+    private static long liveBytes(Set<String> paths) {
+        return paths.stream()
+                .map(PackLocation::parse)
+                .flatMap(Optional::stream)
+                .mapToLong(PackLocation::length)
+                .sum();
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,61 @@
+package ru.job4j.cars.photo;
+
+import java.util.Optional;
+
+/**
+ * Место фото в pack-файле. В File.path записывается как pack:номер:смещение:длина,
+ * например pack:000012:1048576:20480.
+ *
+ * @param pack номер pack-файла.
+ * @param offset начало фото в pack-файле.
+ * @param length размер фото.
+ */
+public record PackLocation(int pack, long offset, int length) {
+    public static final String SCHEME = "pack:";
+
+    public static boolean isPack(String path) {
+        return path != null && path.startsWith(SCHEME);
+    }
+
+    /**
+     * Разобрать путь pack:номер:смещение:длина.
+     *
+     * @param path File.path.
+     * @return место или пусто, если путь не в pack-файле или записан с ошибкой.
+     */
+    public static Optional<PackLocation> parse(String path) {
+        if (!isPack(path)) {
+            return Optional.empty();
+        }
+        String[] parts = path.substring(SCHEME.length()).split(":");
+        if (parts.length != 3) {
+            return Optional.empty();
+        }
+        try {
+            PackLocation location = new PackLocation(
+                    Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+            return location.pack() >= 0 && location.offset() >= 0 && location.length() >= 0
+                    ? Optional.of(location) : Optional.empty();
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Префикс путей всех фото pack-файла, для поиска ссылок на него.
+     *
+     * @param pack номер pack-файла.
+     * @return pack:номер:
+     */
+    public static String prefix(int pack) {
+        return String.format("%s%06d:", SCHEME, pack);
+    }
+
+    public String path() {
+        return prefix(pack) + offset + ":" + length;
+    }
+
+    public long end() {
+        return offset + length;
+    }
+}
@@ -0,0 +1,400 @@
+package ru.job4j.cars.photo;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище мелких фото в pack-файлах: фото дописываются подряд в
+ * photo.root/packs/pack-NNNNNN.dat, в pack-NNNNNN.idx на каждое фото пишется
+ * запись INDEX_RECORD_SIZE байт: SHA-256, смещение и длина. Запись идет только
+ * в последний pack-файл, остальные не изменяются. Когда pack-файл достигает
+ * photo.pack.max-size, начинается следующий.
+ * Чтение идет через отображение pack-файла в память, фото - срез этого отображения.
+ * Место фото удаленных File освобождает PackCompactor.
+ * При photo.pack.enabled=false новые фото в pack-файлы не пишутся,
+ * но уже записанные читаются.
+ */
+@Component
+@Slf4j
+public class PackStore {
+    static final int INDEX_RECORD_SIZE = 44;
+    private static final int HASH_SIZE = 32;
+    private static final String DIRECTORY = "packs";
+    private static final Pattern INDEX = Pattern.compile("pack-(\\d{6})\\.idx");
+
+    private final Path directory;
+    private final boolean enabled;
+    private final long maxObjectSize;
+    private final long maxPackSize;
+    private final NavigableMap<Integer, Pack> packs = new ConcurrentSkipListMap<>();
+    private final Map<String, PackLocation> locations = new ConcurrentHashMap<>();
+    private Pack active;
+
+    public PackStore(@Value("${photo.root:photos}") Path root,
+                     @Value("${photo.pack.enabled:false}") boolean enabled,
+                     @Value("${photo.pack.max-object-size:262144}") long maxObjectSize,
+                     @Value("${photo.pack.max-size:1073741824}") long maxPackSize) {
+        this.directory = root.toAbsolutePath().normalize().resolve(DIRECTORY);
+        this.enabled = enabled;
+        this.maxObjectSize = maxObjectSize;
+        this.maxPackSize = Math.min(maxPackSize, Integer.MAX_VALUE);
+        try {
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Писать ли фото такого размера в pack-файл.
+     *
+     * @param size размер фото.
+     * @return true, если pack-файлы включены и фото не больше photo.pack.max-object-size.
+     */
+    public boolean accepts(long size) {
+        return enabled && size <= maxObjectSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Дописать фото в pack-файл. Если фото с таким хэшем уже есть в pack-файле,
+     * который не сжимается, возвращается его место.
+     *
+     * @param source файл с байтами фото.
+     * @param hash SHA-256 байтов в hex.
+     * @param size размер фото.
+     * @return место фото, байты и запись индекса уже на диске.
+     * @throws IOException ошибка чтения или записи.
+     */
+    public synchronized PackLocation append(Path source, String hash, long size) throws IOException {
+        PackLocation existing = locations.get(hash);
+        if (existing != null) {
+            return existing;
+        }
+        Pack pack = writable(size);
+        long offset = pack.size;
+        try (FileChannel input = FileChannel.open(source, StandardOpenOption.READ)) {
+            long written = 0;
+            while (written < size) {
+                long transferred = pack.dataChannel.transferFrom(input, offset + written, size - written);
+                if (transferred <= 0) {
+                    throw new IOException("Unexpected end of " + source + " at " + written);
+                }
+                written += transferred;
+            }
+        }
+        return index(pack, hash, offset, size);
+    }
+
+    /**
+     * Переписать фото из сжимаемого pack-файла в последний pack-файл.
+     * Если такие же байты уже есть в другом pack-файле, фото не копируется.
+     *
+     * @param pack номер сжимаемого pack-файла.
+     * @param from места фото в нем.
+     * @return новые места фото по старым.
+     * @throws IOException фото не найдено или ошибка записи.
+     */
+    public synchronized Map<PackLocation, PackLocation> relocate(int pack, Collection<PackLocation> from)
+            throws IOException {
+        Map<Long, String> hashes = hashes(pack);
+        Map<PackLocation, PackLocation> moved = new HashMap<>();
+        for (PackLocation location : from) {
+            ByteBuffer bytes = slice(location).orElseThrow(() -> new IOException("Photo not found " + location.path()));
+            String hash = hashes.get(location.offset());
+            if (location.pack() != pack || hash == null) {
+                throw new IOException("Photo not indexed in pack " + pack + ": " + location.path());
+            }
+            PackLocation existing = locations.get(hash);
+            if (existing != null) {
+                moved.put(location, existing);
+                continue;
+            }
+            Pack target = writable(location.length());
+            long offset = target.size;
+            while (bytes.hasRemaining()) {
+                target.dataChannel.write(bytes, offset + bytes.position());
+            }
+            moved.put(location, index(target, hash, offset, location.length()));
+        }
+        return moved;
+    }
+
+    /**
+     * Открыть фото. ETag - путь фото: байты по этому пути не изменяются.
+     *
+     * @param location место фото.
+     * @return фото со срезом отображения pack-файла или пусто, если фото нет.
+     */
+    public Optional<StoredPhoto> open(PackLocation location) {
+        Pack pack = packs.get(location.pack());
+        return slice(location).map(content -> new StoredPhoto(
+                pack.dataFile,
+                location.offset(),
+                location.length(),
+                pack.created,
+                "\"" + location.path() + "\"",
+                content
+        ));
+    }
+
+    /**
+     * Срез отображения pack-файла с байтами фото.
+     *
+     * @param location место фото.
+     * @return байты фото только для чтения или пусто, если фото нет.
+     */
+    public Optional<ByteBuffer> slice(PackLocation location) {
+        Pack pack = packs.get(location.pack());
+        if (pack == null || location.end() > pack.size) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(pack.map(location.end()).slice((int) location.offset(), location.length()));
+        } catch (IOException e) {
+            log.error("Error map pack {}", pack.id, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Pack-файлы, в которые больше не пишут, кроме уже сжимаемых.
+     *
+     * @return номера pack-файлов.
+     */
+    public synchronized List<Integer> sealedPacks() {
+        return packs.values().stream()
+                .filter(pack -> pack != active && !pack.retired)
+                .map(pack -> pack.id)
+                .toList();
+    }
+
+    /**
+     * Сжимаемые pack-файлы: живые фото из них переписываются, файлы будут удалены.
+     *
+     * @return номера pack-файлов.
+     */
+    public List<Integer> retiredPacks() {
+        return packs.values().stream().filter(pack -> pack.retired).map(pack -> pack.id).toList();
+    }
+
+    public long size(int pack) {
+        Pack value = packs.get(pack);
+        return value == null ? 0 : value.size;
+    }
+
+    /**
+     * Начать сжатие pack-файла: новые фото с теми же байтами больше не ссылаются на него,
+     * а пишутся заново. Чтение из pack-файла продолжает работать до delete.
+     *
+     * @param pack номер pack-файла.
+     */
+    public synchronized void retire(int pack) {
+        Pack value = packs.get(pack);
+        if (value != null && value != active) {
+            value.retired = true;
+            locations.values().removeIf(location -> location.pack() == pack);
+        }
+    }
+
+    /**
+     * Удалить сжатый pack-файл и его индекс.
+     *
+     * @param pack номер pack-файла.
+     * @throws IOException ошибка удаления.
+     */
+    public synchronized void delete(int pack) throws IOException {
+        Pack value = packs.get(pack);
+        if (value == null || !value.retired) {
+            return;
+        }
+        packs.remove(pack);
+        Files.deleteIfExists(value.indexFile);
+        Files.deleteIfExists(value.dataFile);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            active.close();
+            active = null;
+        }
+    }
+
+    private PackLocation index(Pack pack, String hash, long offset, long size) throws IOException {
+        pack.dataChannel.force(false);
+        ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_SIZE)
+                .put(HexFormat.of().parseHex(hash))
+                .putLong(offset)
+                .putInt((int) size)
+                .flip();
+        while (record.hasRemaining()) {
+            pack.indexChannel.write(record);
+        }
+        pack.indexChannel.force(false);
+        pack.size = offset + size;
+        PackLocation location = new PackLocation(pack.id, offset, (int) size);
+        locations.put(hash, location);
+        return location;
+    }
+
+    private Pack writable(long size) throws IOException {
+        if (active != null && active.size + size <= maxPackSize) {
+            return active;
+        }
+        if (active != null) {
+            active.close();
+        }
+        Files.createDirectories(directory);
+        int id = packs.isEmpty() ? 1 : packs.lastKey() + 1;
+        Pack pack = new Pack(id, directory, Instant.now());
+        pack.open(true);
+        packs.put(id, pack);
+        active = pack;
+        return pack;
+    }
+
+    private Map<Long, String> hashes(int pack) throws IOException {
+        Map<Long, String> hashes = new HashMap<>();
+        Pack value = packs.get(pack);
+        if (value == null) {
+            return hashes;
+        }
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(value.indexFile));
+        byte[] hash = new byte[HASH_SIZE];
+        while (index.remaining() >= INDEX_RECORD_SIZE) {
+            index.get(hash);
+            hashes.put(index.getLong(), HexFormat.of().formatHex(hash));
+            index.getInt();
+        }
+        return hashes;
+    }
+
+    /**
+     * Прочитать индексы. Хвост последнего pack-файла без записи в индексе
+     * (запись оборвалась при сбое) отрезается, дописывание продолжается в него.
+     */
+    private void load() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                Matcher matcher = INDEX.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    loadPack(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        if (!packs.isEmpty() && packs.lastEntry().getValue().size < maxPackSize) {
+            active = packs.lastEntry().getValue();
+            active.open(false);
+        }
+    }
+
+    private void loadPack(int id) throws IOException {
+        Pack pack = new Pack(id, directory, null);
+        if (!Files.exists(pack.dataFile)) {
+            return;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(pack.dataFile, BasicFileAttributes.class);
+        pack.created = attributes.creationTime().toInstant();
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(pack.indexFile));
+        byte[] hash = new byte[HASH_SIZE];
+        long end = 0;
+        while (index.remaining() >= INDEX_RECORD_SIZE) {
+            index.get(hash);
+            PackLocation location = new PackLocation(id, index.getLong(), index.getInt());
+            if (location.end() > attributes.size()) {
+                index.position(index.position() - INDEX_RECORD_SIZE);
+                break;
+            }
+            locations.put(HexFormat.of().formatHex(hash), location);
+            end = Math.max(end, location.end());
+        }
+        truncate(pack.indexFile, index.position());
+        truncate(pack.dataFile, end);
+        pack.size = end;
+        packs.put(id, pack);
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > size) {
+                log.warn("Truncate {} from {} to {} bytes", file, channel.size(), size);
+                channel.truncate(size);
+            }
+        }
+    }
+
+    /**
+     * Pack-файл: данные, индекс и отображение в память, которое растет вместе с файлом.
+     * Каналы записи открыты только у последнего pack-файла.
+     */
+    private static final class Pack {
+        private final int id;
+        private final Path dataFile;
+        private final Path indexFile;
+        private Instant created;
+        private volatile long size;
+        private volatile boolean retired;
+        private FileChannel dataChannel;
+        private FileChannel indexChannel;
+        private MappedByteBuffer mapped;
+
+        Pack(int id, Path directory, Instant created) {
+            this.id = id;
+            this.dataFile = directory.resolve(String.format("pack-%06d.dat", id));
+            this.indexFile = directory.resolve(String.format("pack-%06d.idx", id));
+            this.created = created;
+        }
+
+        void open(boolean create) throws IOException {
+            StandardOpenOption mode = create ? StandardOpenOption.CREATE_NEW : StandardOpenOption.WRITE;
+            dataChannel = FileChannel.open(dataFile, StandardOpenOption.WRITE, mode);
+            indexChannel = FileChannel.open(indexFile, StandardOpenOption.APPEND, mode);
+        }
+
+        void close() throws IOException {
+            dataChannel.close();
+            indexChannel.close();
+        }
+
+        synchronized MappedByteBuffer map(long end) throws IOException {
+            if (mapped == null || mapped.capacity() < end) {
+                try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+            }
+            return mapped;
+        }
+    }
+}
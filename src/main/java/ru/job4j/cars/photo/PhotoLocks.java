@@ -0,0 +1,32 @@
+package ru.job4j.cars.photo;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Блокировки фото по хэшу, общие для PhotoService и VolumeRebalancer:
+ * загрузка, освобождение и перенос одних и тех же байтов идут по очереди.
+ * Хэши делят LOCK_STRIPES блокировок.
+ */
+@Component
+public class PhotoLocks {
+    private static final int LOCK_STRIPES = 64;
+
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+
+    public PhotoLocks() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @param key хэш байтов или путь файла без хэша.
+     * @return блокировка ключа.
+     */
+    public Lock lock(String key) {
+        return locks[Math.floorMod(key.hashCode(), locks.length)];
+    }
+}
@@ -0,0 +1,13 @@
+package ru.job4j.cars.photo;
+
+import java.io.IOException;
+
+/**
+ * Байты записаны, но File или PostPhoto не удалось сохранить в базе.
+ * Байты, на которые не ссылается ни один File, к этому моменту уже удалены.
+ */
+public class PhotoNotSavedException extends IOException {
+    public PhotoNotSavedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,25 @@
+package ru.job4j.cars.photo;
+
+import java.io.IOException;
+
+/**
+ * Загружаемые байты не приняты хранилищем: файл больше лимита
+ * или формат не поддерживается. Байты такого файла в хранилище не остаются.
+ */
+public class PhotoRejectedException extends IOException {
+    public enum Reason {
+        TOO_LARGE,
+        UNSUPPORTED_TYPE
+    }
+
+    private final Reason reason;
+
+    public PhotoRejectedException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason reason() {
+        return reason;
+    }
+}
@@ -0,0 +1,316 @@
+package ru.job4j.cars.photo;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.model.File;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.repository.FileRepository;
+import ru.job4j.cars.repository.PostPhotoRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Фото и их уменьшенные копии. Копии создаются после создания File
+ * в ограниченном пуле: photo.variants.threads потоков и очередь
+ * photo.variants.queue-capacity задач, при заполненной очереди задачу
+ * выполняет вызывающий поток, так загрузка фото притормаживается,
+ * а не копит задачи в памяти.
+ * Байты хранятся по содержимому: одинаковые фото - один File и один файл
+ * на диске, File удаляется вместе с байтами, когда на него не ссылается
+ * ни одно объявление. Загрузка и освобождение одного хэша идут под одной
+ * блокировкой из PhotoLocks: проверка, что байты уже есть, и создание File
+ * выполняются под ней вместе, поэтому release не удалит байты между ними.
+ * Под той же блокировкой VolumeRebalancer переносит байты между томами.
+ */
+@Service
+@Slf4j
+public class PhotoService {
+    private static final int BACKFILL_THRESHOLD = 8;
+
+    private final FileRepository fileRepository;
+    private final PostPhotoRepository postPhotoRepository;
+    private final PhotoStore photoStore;
+    private final PhotoVariantGenerator generator;
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final PhotoLocks locks;
+
+    @Autowired
+    public PhotoService(FileRepository fileRepository,
+                        PostPhotoRepository postPhotoRepository,
+                        PhotoStore photoStore,
+                        PhotoVariantGenerator generator,
+                        PhotoLocks locks,
+                        @Value("${photo.variants.threads:2}") int threads,
+                        @Value("${photo.variants.queue-capacity:64}") int queueCapacity) {
+        this.fileRepository = fileRepository;
+        this.postPhotoRepository = postPhotoRepository;
+        this.photoStore = photoStore;
+        this.generator = generator;
+        this.locks = locks;
+        this.threads = threads;
+        AtomicInteger number = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "photo-variants-" + number.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public PhotoService(FileRepository fileRepository,
+                        PostPhotoRepository postPhotoRepository,
+                        PhotoStore photoStore,
+                        PhotoVariantGenerator generator,
+                        int threads,
+                        int queueCapacity) {
+        this(fileRepository, postPhotoRepository, photoStore, generator, new PhotoLocks(), threads, queueCapacity);
+    }
+
+    /**
+     * Создать File и поставить создание копий в очередь.
+     *
+     * @param file файл, байты которого уже лежат в хранилище.
+     * @return созданный файл, пути копий появятся после обработки.
+     */
+    public File create(File file) {
+        File created = fileRepository.create(file);
+        if (created.getId() != null) {
+            generateVariants(created);
+        }
+        return created;
+    }
+
+    /**
+     * Сохранить фото. Если такие байты уже есть, возвращается существующий File,
+     * новая строка и копии не создаются.
+     *
+     * @param name имя файла.
+     * @param input байты фото.
+     * @return новый или существующий File с теми же байтами.
+     * @throws IOException ошибка записи в хранилище.
+     */
+    public File store(String name, InputStream input) throws IOException {
+        return photoStore.put(input, locks::lock, content -> createFile(name, content));
+    }
+
+    /**
+     * Сохранить загружаемое фото: байты пишутся в хранилище через канал
+     * с проверкой размера и формата, строка File создается только после того,
+     * как байты сброшены на диск.
+     *
+     * @param name имя файла.
+     * @param input байты фото.
+     * @param maxSize наибольший допустимый размер в байтах.
+     * @return новый или существующий File с теми же байтами.
+     * @throws PhotoRejectedException файл больше maxSize или формат не поддерживается.
+     * @throws IOException ошибка записи в хранилище.
+     */
+    public File store(String name, ReadableByteChannel input, long maxSize) throws IOException {
+        return photoStore.put(input, maxSize, locks::lock, content -> createFile(name, content));
+    }
+
+    /**
+     * Сохранить загружаемое фото и прикрепить его к объявлению. File и PostPhoto
+     * создаются под той же блокировкой хэша, что и release, поэтому открепление
+     * тех же байтов в другом объявлении не удалит File между созданием и прикреплением.
+     * Если те же байты уже прикреплены к объявлению, возвращается существующее фото.
+     *
+     * @param post объявление.
+     * @param name имя файла.
+     * @param input байты фото.
+     * @param maxSize наибольший допустимый размер в байтах.
+     * @param sort порядок фото в объявлении.
+     * @return новое или существующее фото объявления.
+     * @throws PhotoRejectedException файл больше maxSize или формат не поддерживается.
+     * @throws PhotoNotSavedException File или PostPhoto не удалось сохранить.
+     * @throws IOException ошибка записи в хранилище.
+     */
+    public AttachedPhoto attach(Post post, String name, ReadableByteChannel input,
+                                long maxSize, int sort) throws IOException {
+        return photoStore.put(input, maxSize, locks::lock, content -> {
+            File file = createFile(name, content);
+            Optional<PostPhoto> existing = postPhotoRepository.findByPostAndFile(post.getId(), file.getId());
+            if (existing.isPresent()) {
+                return new AttachedPhoto(existing.get(), false);
+            }
+            PostPhoto postPhoto = postPhotoRepository.create(PostPhoto.builder()
+                    .post(post)
+                    .photo(file)
+                    .sort(sort)
+                    .build());
+            if (postPhoto.getId() == null) {
+                release(file.getId());
+                throw new PhotoNotSavedException("PostPhoto not created for File " + file.getId());
+            }
+            return new AttachedPhoto(postPhoto, true);
+        });
+    }
+
+    /**
+     * Выполняется под блокировкой хэша из PhotoStore.put.
+     * Если File не создан, байты удаляются, пока блокировка еще взята.
+     */
+    private File createFile(String name, StoredContent content) throws IOException {
+        Optional<File> existing = fileRepository.findByHash(content.hash());
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        File created = fileRepository.create(File.builder()
+                .name(name)
+                .path(content.path())
+                .hash(content.hash())
+                .build());
+        File stored = fileRepository.findByHash(content.hash()).orElse(created);
+        if (stored.getId() == null) {
+            photoStore.delete(content.path());
+            throw new PhotoNotSavedException("File not created for " + content.hash());
+        }
+        if (stored.getId().equals(created.getId())) {
+            generateVariants(stored);
+        }
+        return stored;
+    }
+
+    /**
+     * Удалить File и его байты, если на него не ссылается ни одно объявление.
+     *
+     * @param fileId id файла.
+     * @return true, если строка и байты файла удалены, false - файл не найден, на него ссылаются
+     * или байты не удалось удалить.
+     */
+    public boolean release(int fileId) {
+        Optional<File> file = fileRepository.findById(fileId);
+        if (file.isEmpty()) {
+            return false;
+        }
+        String key = file.get().getHash() == null ? file.get().getPath() : file.get().getHash();
+        Lock lock = locks.lock(key);
+        lock.lock();
+        try {
+            if (!fileRepository.deleteIfUnreferenced(fileId)) {
+                return false;
+            }
+            photoStore.delete(file.get().getPath());
+            return true;
+        } catch (IOException e) {
+            log.error("Error delete bytes of File {}", fileId, e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Открепить фото от объявления и освободить файл, если это была последняя ссылка.
+     *
+     * @param postPhotoId id фото объявления.
+     */
+    public void detach(int postPhotoId) {
+        Optional<PostPhoto> postPhoto = postPhotoRepository.findById(postPhotoId);
+        if (postPhoto.isEmpty()) {
+            return;
+        }
+        postPhotoRepository.delete(postPhotoId);
+        release(postPhoto.get().getPhoto().getId());
+    }
+
+    /**
+     * Создать копии фото в пуле.
+     *
+     * @param file файл.
+     * @return файл с путями копий.
+     */
+    public CompletableFuture<File> generateVariants(File file) {
+        return CompletableFuture.supplyAsync(() -> applyVariants(file), executor)
+                .whenComplete((value, error) -> {
+                    if (error != null) {
+                        log.error("Error generate variants of File {}", file.getId(), error);
+                    }
+                });
+    }
+
+    /**
+     * Создать копии для всех файлов без копий, параллельно в ForkJoinPool.
+     * Ошибки отдельных файлов пишутся в журнал и не прерывают остальные.
+     *
+     * @return число обработанных файлов.
+     */
+    public int backfill() {
+        List<File> files = List.copyOf(fileRepository.findAllWithoutVariants());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            int done = pool.invoke(new BackfillTask(files));
+            log.info("Backfilled variants of {} of {} files", done, files.size());
+            return done;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private File applyVariants(File file) {
+        try {
+            Map<PhotoVariant, String> variants = generator.generate(file.getPath());
+            file.setThumbnailPath(variants.get(PhotoVariant.THUMBNAIL));
+            file.setMediumPath(variants.get(PhotoVariant.MEDIUM));
+            fileRepository.updateVariants(file.getId(), file.getThumbnailPath(), file.getMediumPath());
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    private class BackfillTask extends RecursiveTask<Integer> {
+        private final List<File> files;
+
+        BackfillTask(List<File> files) {
+            this.files = files;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (files.size() > BACKFILL_THRESHOLD) {
+                int middle = files.size() / 2;
+                BackfillTask left = new BackfillTask(files.subList(0, middle));
+                BackfillTask right = new BackfillTask(files.subList(middle, files.size()));
+                left.fork();
+                return right.compute() + left.join();
+            }
+            int done = 0;
+            for (File file : files) {
+                try {
+                    applyVariants(file);
+                    done++;
+                } catch (RuntimeException e) {
+                    log.warn("Skip variants of File {}: {}", file.getId(), e.getMessage());
+                }
+            }
+            return done;
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package ru.job4j.cars.photo;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Хранилище байтов фото. File.path - путь относительно каталога photo.root.
+ * Новые фото хранятся по содержимому: путь ab/cd/abcd... из SHA-256 байтов,
+ * два уровня каталогов по 256 подкаталогов, одинаковые байты хранятся один раз.
+ * Запись идет через буфер BUFFER_SIZE байт независимо от размера фото,
+ * байты и каталог сбрасываются на диск до возврата из put.
+ * Мелкие фото при включенных pack-файлах дописываются в PackStore,
+ * их File.path - pack:номер:смещение:длина, open и отдача работают одинаково.
+ * Фото по содержимому раскладываются по томам PhotoVolumes, File.path от тома не зависит.
+ */
+@Component
+@Slf4j
+public class PhotoStore {
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String TEMP = ".tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Действие с записанными байтами под блокировкой хэша.
+     * Если оно бросает исключение, put бросает его дальше.
+     *
+     * @param <T> тип результата.
+     */
+    @FunctionalInterface
+    public interface Commit<T> {
+        T apply(StoredContent content) throws IOException;
+    }
+
+    private final Path root;
+    private final PackStore packStore;
+    private final PhotoVolumes volumes;
+
+    @Autowired
+    public PhotoStore(@Value("${photo.root:photos}") Path root, PackStore packStore, PhotoVolumes volumes) {
+        this.root = root.toAbsolutePath().normalize();
+        this.packStore = packStore;
+        this.volumes = volumes;
+    }
+
+    public PhotoStore(Path root, PackStore packStore) {
+        this(root, packStore, PhotoVolumes.single(root));
+    }
+
+    public PhotoStore(Path root) {
+        this(root, new PackStore(root, false, 0, 0));
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    /**
+     * Открыть фото по File.path.
+     *
+     * @param path путь фото относительно корня хранилища.
+     * @return фото или Optional.empty(), если файла нет или путь выходит за корень.
+     */
+    public Optional<StoredPhoto> open(String path) {
+        if (PackLocation.isPack(path)) {
+            return PackLocation.parse(path).flatMap(packStore::open);
+        }
+        return resolve(path).flatMap(file -> {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) {
+                    return Optional.empty();
+                }
+                volumes.volumeOf(file).ifPresent(volume -> volume.recordRead(attributes.size()));
+                return Optional.of(new StoredPhoto(
+                        file,
+                        0,
+                        attributes.size(),
+                        attributes.lastModifiedTime().toInstant(),
+                        etag(file, attributes)
+                ));
+            } catch (NoSuchFileException e) {
+                return Optional.empty();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Записать байты по содержимому без проверки формата и размера.
+     *
+     * @param input байты, поток не закрывается.
+     * @return хэш, путь и размер.
+     * @throws IOException ошибка чтения или записи.
+     */
+    public StoredContent put(InputStream input) throws IOException {
+        return write(Channels.newChannel(input), Long.MAX_VALUE, false, hash -> new ReentrantLock(), content -> content);
+    }
+
+    /**
+     * Записать байты по содержимому без проверки формата и размера и под блокировкой хэша
+     * выполнить commit: проверка, что такие байты уже есть, перенос на место и commit
+     * идут под одной блокировкой, поэтому удаление тех же байтов под ней же не может
+     * вклиниться между ними.
+     *
+     * @param input байты, поток не закрывается.
+     * @param locks блокировка по хэшу.
+     * @param commit действие с записанными байтами, например создание File.
+     * @param <T> тип результата.
+     * @return результат commit.
+     * @throws IOException ошибка чтения или записи.
+     */
+    public <T> T put(InputStream input, Function<String, Lock> locks,
+                     Commit<T> commit) throws IOException {
+        return write(Channels.newChannel(input), Long.MAX_VALUE, false, locks, commit);
+    }
+
+    /**
+     * Записать загружаемое фото по содержимому. SHA-256, размер и формат
+     * проверяются на лету при записи во временный файл, затем файл сбрасывается
+     * на диск и переносится по пути из хэша. Если такие байты уже есть,
+     * временный файл удаляется, повторной записи нет.
+     *
+     * @param input байты, канал не закрывается.
+     * @param maxSize наибольший допустимый размер в байтах.
+     * @return хэш, путь и размер, байты уже на диске.
+     * @throws PhotoRejectedException файл больше maxSize или формат не из PhotoType.
+     * @throws IOException ошибка чтения или записи.
+     */
+    public StoredContent put(ReadableByteChannel input, long maxSize) throws IOException {
+        return write(input, maxSize, true, hash -> new ReentrantLock(), content -> content);
+    }
+
+    /**
+     * Записать загружаемое фото как put(input, maxSize) и под блокировкой хэша
+     * выполнить commit, как put(input, locks, commit).
+     *
+     * @param input байты, канал не закрывается.
+     * @param maxSize наибольший допустимый размер в байтах.
+     * @param locks блокировка по хэшу.
+     * @param commit действие с записанными байтами, например создание File.
+     * @param <T> тип результата.
+     * @return результат commit.
+     * @throws PhotoRejectedException файл больше maxSize или формат не из PhotoType.
+     * @throws IOException ошибка чтения или записи.
+     */
+    public <T> T put(ReadableByteChannel input, long maxSize, Function<String, Lock> locks,
+                     Commit<T> commit) throws IOException {
+        return write(input, maxSize, true, locks, commit);
+    }
+
+    private <T> T write(ReadableByteChannel input, long maxSize, boolean photo,
+                        Function<String, Lock> locks, Commit<T> commit) throws IOException {
+        Path temp = temp();
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                size = copy(input, out, digest, maxSize, photo);
+                out.force(true);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Lock lock = locks.apply(hash);
+            lock.lock();
+            try {
+                return commit.apply(place(temp, hash, size));
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private StoredContent place(Path temp, String hash, long size) throws IOException {
+        if (packStore.accepts(size)) {
+            return new StoredContent(hash, packStore.append(temp, hash, size).path(), size);
+        }
+        String path = contentPath(hash);
+        if (volumes.candidates(path).stream().noneMatch(Files::exists)) {
+            PhotoVolume volume = volumes.owner(hash);
+            Path target = volume.root().resolve(path);
+            Files.createDirectories(target.getParent());
+            moveInto(temp, target);
+            forceDirectory(target.getParent());
+            volume.recordWrite(size);
+        }
+        return new StoredContent(hash, path, size);
+    }
+
+    /**
+     * Дописать готовый файл в pack-файл независимо от его размера и photo.pack.enabled.
+     * Так пишутся уменьшенные копии фото, которое само лежит в pack-файле.
+     *
+     * @param file файл, после записи его можно удалить.
+     * @return хэш, путь pack:... и размер.
+     * @throws IOException ошибка чтения или записи.
+     */
+    StoredContent pack(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (input.read(buffer) >= 0) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        long size = Files.size(file);
+        return new StoredContent(hash, packStore.append(file, hash, size).path(), size);
+    }
+
+    /**
+     * Копирование через один буфер: формат проверяется по первым
+     * PhotoType.HEADER_SIZE байтам, размер - до записи каждого куска.
+     */
+    private static long copy(ReadableByteChannel input, FileChannel out, MessageDigest digest,
+                             long maxSize, boolean photo) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        boolean checked = !photo;
+        boolean eof = false;
+        long size = 0;
+        while (!eof) {
+            eof = input.read(buffer) < 0;
+            if (!checked && (eof || buffer.position() >= PhotoType.HEADER_SIZE)) {
+                if (PhotoType.detect(buffer.duplicate().flip()).isEmpty()) {
+                    throw new PhotoRejectedException(PhotoRejectedException.Reason.UNSUPPORTED_TYPE,
+                            "Unsupported photo type");
+                }
+                checked = true;
+            }
+            if (checked && (eof || !buffer.hasRemaining())) {
+                buffer.flip();
+                size += buffer.remaining();
+                if (size > maxSize) {
+                    throw new PhotoRejectedException(PhotoRejectedException.Reason.TOO_LARGE,
+                            "Photo is larger than " + maxSize + " bytes");
+                }
+                digest.update(buffer);
+                buffer.rewind();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Атомарно перенести файл на место. Если том на другой файловой системе,
+     * файл сначала копируется во временный файл рядом с местом и сбрасывается на диск.
+     *
+     * @param file файл, уже сброшенный на диск.
+     * @param target место.
+     * @throws IOException ошибка копирования или переноса.
+     */
+    static void moveInto(Path file, Path target) throws IOException {
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Path staged = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                Files.copy(file, staged, StandardCopyOption.REPLACE_EXISTING);
+                try (FileChannel channel = FileChannel.open(staged, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(staged);
+            }
+        }
+    }
+
+    /**
+     * Сбросить на диск запись каталога, чтобы перенос файла пережил сбой питания.
+     * Не все файловые системы позволяют открыть каталог, тогда сброс пропускается.
+     */
+    static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Skip fsync of directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Удалить байты фото и его уменьшенных копий. Фото в pack-файле
+     * не удаляется, его место освобождает PackCompactor.
+     *
+     * @param path путь фото относительно корня хранилища.
+     * @throws IOException ошибка удаления.
+     */
+    public void delete(String path) throws IOException {
+        if (PackLocation.isPack(path)) {
+            return;
+        }
+        for (String value : new String[] {
+                path, PhotoVariant.THUMBNAIL.path(path), PhotoVariant.MEDIUM.path(path)}) {
+            List<Path> files = PhotoVolumes.hashOf(value).isPresent()
+                    ? volumes.candidates(value) : resolve(value).stream().toList();
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Путь по содержимому: ab/cd/abcd...
+     *
+     * @param hash SHA-256 в hex.
+     * @return путь относительно корня хранилища.
+     */
+    public static String contentPath(String hash) {
+        return hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+
+    Path temp() throws IOException {
+        Path directory = root.resolve(TEMP);
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, "upload-", ".tmp");
+    }
+
+    /**
+     * Строгий ETag: хэш содержимого для файлов по содержимому,
+     * иначе размер и время изменения.
+     */
+    private static String etag(Path file, BasicFileAttributes attributes) {
+        String name = file.getFileName().toString();
+        String value = HASH.matcher(name).matches() ? name : Long.toHexString(attributes.size())
+                + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis());
+        return "\"" + value + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Путь на диске для File.path. Фото по содержимому ищется на всех томах,
+     * начиная с тома-владельца, если его нет нигде - путь на томе-владельце.
+     *
+     * @param path путь фото относительно корня хранилища.
+     * @return путь или Optional.empty(), если путь выходит за корень или фото в pack-файле.
+     */
+    public Optional<Path> resolve(String path) {
+        if (PackLocation.isPack(path)) {
+            return Optional.empty();
+        }
+        if (PhotoVolumes.hashOf(path).isPresent()) {
+            return volumes.locate(path);
+        }
+        try {
+            Path file = root.resolve(path).normalize();
+            return file.startsWith(root) && !file.equals(root) ? Optional.of(file) : Optional.empty();
+        } catch (InvalidPathException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.job4j.cars.photo;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Допустимые форматы фото, определяются по первым байтам, а не по имени
+ * или Content-Type части запроса.
+ */
+public enum PhotoType {
+    JPEG("image/jpeg", 0, 0xFF, 0xD8, 0xFF),
+    PNG("image/png", 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A),
+    GIF("image/gif", 0, 'G', 'I', 'F', '8'),
+    WEBP("image/webp", 8, 'W', 'E', 'B', 'P');
+
+    /**
+     * Сколько первых байтов нужно для определения формата.
+     */
+    public static final int HEADER_SIZE = 12;
+
+    private final String contentType;
+    private final int offset;
+    private final int[] magic;
+
+    PhotoType(String contentType, int offset, int... magic) {
+        this.contentType = contentType;
+        this.offset = offset;
+        this.magic = magic;
+    }
+
+    /**
+     * Определить формат по началу файла.
+     *
+     * @param header первые байты, от position до limit, буфер не изменяется.
+     * @return формат или пусто, если формат не поддерживается.
+     */
+    public static Optional<PhotoType> detect(ByteBuffer header) {
+        for (PhotoType type : values()) {
+            if (type.matches(header)) {
+                return Optional.of(type);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private boolean matches(ByteBuffer header) {
+        if (header.remaining() < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((header.get(header.position() + offset + i) & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return this != WEBP || header.getInt(header.position()) == 0x52494646;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,68 @@
+package ru.job4j.cars.photo;
+
+import ru.job4j.cars.model.File;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Уменьшенные копии фото. Копия лежит рядом с оригиналом:
+ * a/b/photo.png - a/b/photo.thumb.jpg и a/b/photo.medium.jpg.
+ */
+public enum PhotoVariant {
+    THUMBNAIL("thumb", 320),
+    MEDIUM("medium", 1024);
+
+    private final String suffix;
+    private final int maxSide;
+
+    PhotoVariant(String suffix, int maxSide) {
+        this.suffix = suffix;
+        this.maxSide = maxSide;
+    }
+
+    /**
+     * Копия по имени без учета регистра: thumbnail, medium.
+     *
+     * @param name имя копии или null.
+     * @return копия или Optional.empty(), если имя null или неизвестно.
+     */
+    public static Optional<PhotoVariant> parse(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(valueOf(name.strip().toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Путь копии из File, оригинал, пока копия не создана.
+     *
+     * @param file файл.
+     * @return путь относительно корня хранилища.
+     */
+    public String pathOf(File file) {
+        String path = this == THUMBNAIL ? file.getThumbnailPath() : file.getMediumPath();
+        return path == null ? file.getPath() : path;
+    }
+
+    public int maxSide() {
+        return maxSide;
+    }
+
+    /**
+     * Путь копии для пути оригинала.
+     *
+     * @param original путь оригинала относительно корня хранилища.
+     * @return путь копии относительно корня хранилища.
+     */
+    public String path(String original) {
+        int slash = original.lastIndexOf('/');
+        int dot = original.lastIndexOf('.');
+        String base = dot > slash ? original.substring(0, dot) : original;
+        return base + "." + suffix + ".jpg";
+    }
+}
@@ -0,0 +1,134 @@
+package ru.job4j.cars.photo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Создает уменьшенные копии фото: декодирование ImageIO, поворот по EXIF,
+ * уменьшение и запись JPEG без метаданных. Копия пишется во временный файл
+ * и переносится на место атомарно, читатели не видят недописанный файл.
+ * Копии фото из pack-файла тоже дописываются в pack-файл.
+ * Размер изображения читается из заголовка до декодирования: фото больше
+ * photo.variants.max-pixels пикселей отклоняется, остальные декодируются
+ * с прореживанием до размера наибольшей копии. Декодирование может идти
+ * в потоке запроса (CallerRunsPolicy в PhotoService), поэтому память
+ * на одно фото ограничена и не зависит от размера оригинала.
+ */
+@Component
+public class PhotoVariantGenerator {
+    static final long DEFAULT_MAX_PIXELS = 50_000_000L;
+
+    private final PhotoStore photoStore;
+    private final long maxPixels;
+    private final int maxSide;
+
+    @Autowired
+    public PhotoVariantGenerator(PhotoStore photoStore,
+                                 @Value("${photo.variants.max-pixels:50000000}") long maxPixels) {
+        this.photoStore = photoStore;
+        this.maxPixels = maxPixels;
+        this.maxSide = Arrays.stream(PhotoVariant.values()).mapToInt(PhotoVariant::maxSide).max().orElseThrow();
+    }
+
+    public PhotoVariantGenerator(PhotoStore photoStore) {
+        this(photoStore, DEFAULT_MAX_PIXELS);
+    }
+
+    /**
+     * Создать все копии фото.
+     *
+     * @param path путь оригинала относительно корня хранилища.
+     * @return пути копий относительно корня хранилища.
+     * @throws IOException оригинал не найден, не изображение, больше photo.variants.max-pixels
+     * пикселей или ошибка записи.
+     */
+    public Map<PhotoVariant, String> generate(String path) throws IOException {
+        StoredPhoto original = photoStore.open(path)
+                .orElseThrow(() -> new IOException("Photo not found: " + path));
+        BufferedImage image = read(original);
+        Map<PhotoVariant, String> variants = new EnumMap<>(PhotoVariant.class);
+        for (PhotoVariant variant : PhotoVariant.values()) {
+            BufferedImage scaled = Images.scale(image, variant.maxSide());
+            if (PackLocation.isPack(path)) {
+                variants.put(variant, pack(scaled));
+            } else {
+                String variantPath = variant.path(path);
+                write(scaled, photoStore.resolve(variantPath).orElseThrow());
+                variants.put(variant, variantPath);
+            }
+        }
+        return variants;
+    }
+
+    private BufferedImage read(StoredPhoto photo) throws IOException {
+        try (ImageInputStream input = photo.content() == null
+                ? ImageIO.createImageInputStream(photo.file().toFile())
+                : new MemoryCacheImageInputStream(photo.newInputStream())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image " + photo.file());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, false);
+                BufferedImage image = reader.read(0, subsampled(reader, photo));
+                return Images.orient(image, Images.orientation(reader.getImageMetadata(0)));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Параметры чтения с прореживанием: каждый step-й пиксель, чтобы большая сторона
+     * осталась не меньше стороны наибольшей копии.
+     */
+    private ImageReadParam subsampled(ImageReader reader, StoredPhoto photo) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        if ((long) width * height > maxPixels) {
+            throw new IOException("Image %s is %dx%d, more than %d pixels".formatted(
+                    photo.file(), width, height, maxPixels));
+        }
+        ImageReadParam param = reader.getDefaultReadParam();
+        int step = Math.max(1, Math.max(width, height) / maxSide);
+        param.setSourceSubsampling(step, step, 0, 0);
+        return param;
+    }
+
+    private String pack(BufferedImage image) throws IOException {
+        Path temp = photoStore.temp();
+        try {
+            Images.writeJpeg(image, temp);
+            return photoStore.pack(temp).path();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void write(BufferedImage image, Path file) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Images.writeJpeg(image, temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
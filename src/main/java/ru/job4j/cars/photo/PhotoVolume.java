@@ -0,0 +1,103 @@
+package ru.job4j.cars.photo;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Том хранилища фото: каталог на отдельном диске, его имя и вес в кольце HashRing.
+ * Кольцо строится по имени, а не по пути, поэтому перенос тома в другую точку монтирования
+ * не меняет распределение фото.
+ * Счетчики ввода-вывода считают байты, записанные в том и открытые из него на чтение.
+ */
+public class PhotoVolume {
+    private final String name;
+    private final Path root;
+    private final int weight;
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong readBytes = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+
+    /**
+     * @param name имя тома в кольце и метриках.
+     * @param root каталог тома.
+     * @param weight вес, доля фото тома пропорциональна весу.
+     */
+    public PhotoVolume(String name, Path root, int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Volume weight must be positive: " + root + "=" + weight);
+        }
+        this.name = name;
+        this.root = root.toAbsolutePath().normalize();
+        this.weight = weight;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public int weight() {
+        return weight;
+    }
+
+    public void recordRead(long bytes) {
+        reads.incrementAndGet();
+        readBytes.addAndGet(bytes);
+    }
+
+    public void recordWrite(long bytes) {
+        writes.incrementAndGet();
+        writtenBytes.addAndGet(bytes);
+    }
+
+    public long reads() {
+        return reads.get();
+    }
+
+    public long readBytes() {
+        return readBytes.get();
+    }
+
+    public long writes() {
+        return writes.get();
+    }
+
+    public long writtenBytes() {
+        return writtenBytes.get();
+    }
+
+    /**
+     * @return размер файловой системы тома в байтах, 0 - если каталога тома нет.
+     */
+    public long totalSpace() {
+        return space(true);
+    }
+
+    /**
+     * @return свободное место тома в байтах, 0 - если каталога тома нет.
+     */
+    public long usableSpace() {
+        return space(false);
+    }
+
+    private long space(boolean total) {
+        try {
+            FileStore store = Files.getFileStore(root);
+            return total ? store.getTotalSpace() : store.getUsableSpace();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + "@" + root + "=" + weight;
+    }
+}
@@ -0,0 +1,157 @@
+package ru.job4j.cars.photo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Тома хранилища фото из photo.volumes=disk1@/mnt/photos1=1,disk2@/mnt/photos2=2 (имя@путь=вес,
+ * вес по умолчанию 1). Без имени том называется volume и номер в списке, поэтому новые тома без имени
+ * добавляются в конец. Без photo.volumes единственный том - photo.root.
+ * По томам раскладываются фото по содержимому ab/cd/hash и их копии ab/cd/hash.thumb.jpg:
+ * том выбирает HashRing по хэшу. Старые пути, pack-файлы и временные файлы остаются в photo.root.
+ * Пока VolumeRebalancer не перенес фото на его том, фото читается с прежнего тома
+ * или из photo.root, если photo.root не среди томов.
+ */
+@Component
+public class PhotoVolumes {
+    private static final Pattern CONTENT = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/([0-9a-f]{64})(\\.\\w+\\.jpg)?");
+
+    private static final String DEFAULT_NAME = "volume";
+
+    private final Path root;
+    private final HashRing ring;
+
+    @Autowired
+    public PhotoVolumes(@Value("${photo.root:photos}") Path root, @Value("${photo.volumes:}") String volumes) {
+        this(root, parse(root, volumes));
+    }
+
+    public PhotoVolumes(Path root, List<PhotoVolume> volumes) {
+        this.root = root.toAbsolutePath().normalize();
+        this.ring = new HashRing(volumes);
+    }
+
+    /**
+     * Один том - корень хранилища.
+     *
+     * @param root корень хранилища.
+     * @return тома.
+     */
+    public static PhotoVolumes single(Path root) {
+        return new PhotoVolumes(root, List.of(new PhotoVolume(DEFAULT_NAME + 0, root, 1)));
+    }
+
+    static List<PhotoVolume> parse(Path root, String volumes) {
+        List<PhotoVolume> result = new ArrayList<>();
+        for (String volume : volumes.split(",")) {
+            String value = volume.strip();
+            if (!value.isEmpty()) {
+                result.add(parseVolume(value, result.size()));
+            }
+        }
+        return result.isEmpty() ? List.of(new PhotoVolume(DEFAULT_NAME + 0, root, 1)) : result;
+    }
+
+    private static PhotoVolume parseVolume(String value, int index) {
+        int nameEnd = value.indexOf('@');
+        String name = nameEnd < 0 ? DEFAULT_NAME + index : value.substring(0, nameEnd).strip();
+        int separator = value.lastIndexOf('=');
+        String path = value.substring(nameEnd + 1, separator < 0 ? value.length() : separator).strip();
+        int weight = separator < 0 ? 1 : Integer.parseInt(value.substring(separator + 1).strip());
+        return new PhotoVolume(name, Path.of(path), weight);
+    }
+
+    public List<PhotoVolume> all() {
+        return ring.volumes();
+    }
+
+    /**
+     * Каталоги, где могут лежать фото по содержимому: тома и photo.root, если он не том.
+     *
+     * @return каталоги.
+     */
+    public List<Path> roots() {
+        List<Path> roots = new ArrayList<>(all().stream().map(PhotoVolume::root).toList());
+        if (!roots.contains(root)) {
+            roots.add(root);
+        }
+        return roots;
+    }
+
+    /**
+     * Хэш фото из пути по содержимому.
+     *
+     * @param path путь относительно корня хранилища.
+     * @return хэш или пусто, если путь не по содержимому.
+     */
+    public static Optional<String> hashOf(String path) {
+        Matcher matcher = CONTENT.matcher(path);
+        return matcher.matches() ? Optional.of(matcher.group(1)) : Optional.empty();
+    }
+
+    /**
+     * Том, в котором фото должно лежать.
+     *
+     * @param hash SHA-256 байтов фото в hex.
+     * @return том.
+     */
+    public PhotoVolume owner(String hash) {
+        return ring.locate(hash);
+    }
+
+    /**
+     * Места пути по содержимому на всех томах: сначала том-владелец, затем остальные тома и photo.root.
+     *
+     * @param path путь по содержимому.
+     * @return пути на дисках, пусто - путь не по содержимому.
+     */
+    public List<Path> candidates(String path) {
+        Optional<String> hash = hashOf(path);
+        if (hash.isEmpty()) {
+            return List.of();
+        }
+        Path owner = owner(hash.get()).root();
+        List<Path> candidates = new ArrayList<>();
+        candidates.add(owner.resolve(path));
+        for (Path volume : roots()) {
+            if (!volume.equals(owner)) {
+                candidates.add(volume.resolve(path));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Путь по содержимому на диске: первый том, где файл есть, начиная с владельца,
+     * или место на томе-владельце, если файла нет нигде.
+     *
+     * @param path путь по содержимому.
+     * @return путь на диске или пусто, если путь не по содержимому.
+     */
+    public Optional<Path> locate(String path) {
+        List<Path> candidates = candidates(path);
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(candidates.stream().filter(Files::exists).findFirst().orElse(candidates.get(0)));
+    }
+
+    /**
+     * Том, в котором лежит файл.
+     *
+     * @param file путь на диске.
+     * @return том или пусто, если файл вне томов.
+     */
+    public Optional<PhotoVolume> volumeOf(Path file) {
+        return all().stream().filter(volume -> file.startsWith(volume.root())).findFirst();
+    }
+}
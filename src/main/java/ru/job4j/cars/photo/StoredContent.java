@@ -0,0 +1,11 @@
+package ru.job4j.cars.photo;
+
+/**
+ * Байты, записанные в хранилище по содержимому.
+ *
+ * @param hash SHA-256 байтов в hex.
+ * @param path путь относительно корня хранилища, вычисляется из hash.
+ * @param size размер в байтах.
+ */
+public record StoredContent(String hash, String path, long size) {
+}
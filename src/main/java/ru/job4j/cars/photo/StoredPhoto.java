@@ -0,0 +1,76 @@
+package ru.job4j.cars.photo;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Байты фото на диске: участок [offset, offset + size) файла file.
+ *
+ * @param file файл на диске.
+ * @param offset начало фото в файле.
+ * @param size размер фото.
+ * @param lastModified время изменения.
+ * @param etag строгий ETag в кавычках.
+ * @param content срез отображения файла в память с байтами фото, null - фото занимает файл целиком
+ *                и читается через канал.
+ */
+public record StoredPhoto(Path file, long offset, long size, Instant lastModified, String etag, ByteBuffer content) {
+    public StoredPhoto(Path file, long offset, long size, Instant lastModified, String etag) {
+        this(file, offset, size, lastModified, etag, null);
+    }
+
+    /**
+     * Передать участок фото в канал через FileChannel.transferTo:
+     * ядро копирует байты без буферов в куче, если канал это поддерживает.
+     * Фото из отображения в память пишется в канал прямо из среза.
+     *
+     * @param position начало участка относительно начала фото.
+     * @param count длина участка.
+     * @param target канал.
+     * @throws IOException ошибка чтения или записи.
+     */
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        if (content != null) {
+            ByteBuffer slice = content.slice((int) position, (int) count);
+            while (slice.hasRemaining()) {
+                target.write(slice);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long start = offset + position;
+            long sent = 0;
+            while (sent < count) {
+                long transferred = channel.transferTo(start + sent, count - sent, target);
+                if (transferred <= 0) {
+                    throw new IOException("Unexpected end of " + file + " at " + (start + sent));
+                }
+                sent += transferred;
+            }
+        }
+    }
+
+    /**
+     * Поток байтов фото для декодирования.
+     * Байты среза копируются в кучу: в pack-файлах только фото не больше photo.pack.max-object-size.
+     *
+     * @return поток, закрывает вызывающий.
+     * @throws IOException ошибка открытия файла.
+     */
+    public InputStream newInputStream() throws IOException {
+        if (content != null) {
+            byte[] bytes = new byte[content.remaining()];
+            content.duplicate().get(bytes);
+            return new ByteArrayInputStream(bytes);
+        }
+        return Files.newInputStream(file);
+    }
+}
@@ -0,0 +1,179 @@
+package ru.job4j.cars.photo;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * Перенос фото по содержимому на тома-владельцы после изменения photo.volumes.
+ * Фото копируется на том-владелец через временный файл и атомарный перенос,
+ * и только потом удаляется с прежнего тома, поэтому чтение не прерывается:
+ * PhotoStore ищет фото на всех томах. Если фото удалили во время переноса,
+ * копия тоже удаляется. Перенос идет под блокировкой хэша из PhotoLocks, как загрузка
+ * и освобождение в PhotoService, поэтому байты, загруженные заново во время переноса,
+ * не удаляются вместе с копией. Проход раз в photo.rebalance.interval-ms, если томов больше одного.
+ */
+@Component
+@Slf4j
+public class VolumeRebalancer {
+    private static final int CONTENT_DEPTH = 3;
+
+    private final PhotoVolumes volumes;
+    private final PhotoLocks locks;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public VolumeRebalancer(PhotoVolumes volumes, PhotoLocks locks,
+                            @Value("${photo.rebalance.interval-ms:600000}") long intervalMs) {
+        this.volumes = volumes;
+        this.locks = locks;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "volume-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (volumes.roots().size() > 1 && intervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    rebalance();
+                } catch (RuntimeException e) {
+                    log.error("Error rebalance photo volumes", e);
+                }
+            }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public VolumeRebalancer(PhotoVolumes volumes, long intervalMs) {
+        this(volumes, new PhotoLocks(), intervalMs);
+    }
+
+    /**
+     * Результат прохода.
+     *
+     * @param scanned просмотрено файлов по содержимому.
+     * @param moved перенесено файлов.
+     * @param movedBytes перенесено байтов.
+     */
+    public record Result(int scanned, int moved, long movedBytes) {
+    }
+
+    /**
+     * Перенести все файлы по содержимому, лежащие не на своем томе. Списки файлов всех томов
+     * снимаются до переноса, чтобы перенесенный файл не просматривался второй раз на новом томе.
+     *
+     * @return результат прохода.
+     */
+    public synchronized Result rebalance() {
+        Map<Path, List<String>> contents = new LinkedHashMap<>();
+        for (Path root : volumes.roots()) {
+            contents.put(root, contentPaths(root));
+        }
+        int scanned = 0;
+        int moved = 0;
+        long movedBytes = 0;
+        for (Map.Entry<Path, List<String>> entry : contents.entrySet()) {
+            Path root = entry.getKey();
+            for (String path : entry.getValue()) {
+                scanned++;
+                String hash = PhotoVolumes.hashOf(path).orElseThrow();
+                PhotoVolume owner = volumes.owner(hash);
+                if (owner.root().equals(root)) {
+                    continue;
+                }
+                Path file = root.resolve(path);
+                Lock lock = locks.lock(hash);
+                lock.lock();
+                try {
+                    long size = move(file, owner, path);
+                    if (size >= 0) {
+                        moved++;
+                        movedBytes += size;
+                    }
+                } catch (IOException e) {
+                    log.error("Error move {} to volume {}", file, owner.name(), e);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        log.info("Rebalanced photo volumes: scanned {}, moved {} files, {} bytes", scanned, moved, movedBytes);
+        return new Result(scanned, moved, movedBytes);
+    }
+
+    /**
+     * Выполняется под блокировкой хэша.
+     *
+     * @return размер перенесенного файла или -1, если файл уже удален.
+     */
+    private long move(Path source, PhotoVolume owner, String path) throws IOException {
+        if (!Files.exists(source)) {
+            return -1;
+        }
+        Path target = owner.root().resolve(path);
+        long size = Files.size(source);
+        boolean copied = false;
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                PhotoStore.moveInto(temp, target);
+                PhotoStore.forceDirectory(target.getParent());
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            volumes.volumeOf(source).ifPresent(volume -> volume.recordRead(size));
+            owner.recordWrite(size);
+            copied = true;
+        }
+        if (!Files.deleteIfExists(source) && copied) {
+            Files.deleteIfExists(target);
+            return -1;
+        }
+        return size;
+    }
+
+    /**
+     * Пути по содержимому ab/cd/hash и ab/cd/hash.thumb.jpg в каталоге тома.
+     */
+    private static List<String> contentPaths(Path root) {
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(root, CONTENT_DEPTH)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> root.relativize(file).toString().replace(File.separatorChar, '/'))
+                    .filter(path -> PhotoVolumes.hashOf(path).isPresent())
+                    .toList();
+        } catch (IOException e) {
+            log.error("Error list volume {}", root, e);
+            return List.of();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
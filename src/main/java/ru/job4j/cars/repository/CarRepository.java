@@ -9,8 +9,12 @@ import java.util.Optional;
 public interface CarRepository {
     Car create(Car car);
 
+    Collection<Car> createAll(Iterable<Car> cars);
+
     Collection<Car> findAll();
 
+    Page<Car> findPageOrderById(Cursor after, int limit);
+
     Optional<Car> findById(int id);
 
     void update(Car car);
@@ -0,0 +1,60 @@
+package ru.job4j.cars.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Позиция для keyset пагинации: последний элемент предыдущей страницы.
+ * Для списков по id используется только id, для ленты объявлений
+ * пара (created, id). Значение null вместо курсора означает первую страницу.
+ *
+ * @param created дата создания последнего элемента или null.
+ * @param id id последнего элемента.
+ */
+public record Cursor(LocalDateTime created, int id) {
+    private static final String SEPARATOR = "|";
+
+    public static Cursor of(int id) {
+        return new Cursor(null, id);
+    }
+
+    public static Cursor of(LocalDateTime created, int id) {
+        return new Cursor(created, id);
+    }
+
+    /**
+     * Непрозрачный токен курсора для передачи клиенту.
+     *
+     * @return токен.
+     */
+    public String token() {
+        String value = (created == null ? "" : created.toString()) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разобрать токен, полученный от клиента.
+     *
+     * @param token токен.
+     * @return курсор или пустой Optional, если токен некорректный.
+     */
+    public static Optional<Cursor> parse(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int index = value.lastIndexOf(SEPARATOR);
+            if (index < 0) {
+                return Optional.empty();
+            }
+            String created = value.substring(0, index);
+            return Optional.of(new Cursor(
+                    created.isEmpty() ? null : LocalDateTime.parse(created),
+                    Integer.parseInt(value.substring(index + 1))
+            ));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -10,6 +10,8 @@ public interface EngineRepository {
 
     Collection<Engine> findAll();
 
+    Page<Engine> findPageOrderById(Cursor after, int limit);
+
     Optional<Engine> findById(int id);
 
     void update(Engine engine);
@@ -4,13 +4,31 @@ import ru.job4j.cars.model.File;
 
 import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface FileRepository {
     File create(File file);
 
     Optional<File> findById(int id);
 
+    Optional<File> findByHash(String hash);
+
     Collection<File> findAll();
 
+    Page<File> findPageOrderById(Cursor after, int limit);
+
+    Stream<File> streamAll();
+
+    Collection<File> findAllWithoutVariants();
+
+    void updateVariants(int id, String thumbnailPath, String mediumPath);
+
+    Set<String> findPathsStartingWith(String prefix);
+
+    void replacePath(String oldPath, String newPath);
+
+    boolean deleteIfUnreferenced(int id);
+
     void delete(int id);
 }
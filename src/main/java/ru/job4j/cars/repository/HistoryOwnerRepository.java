@@ -10,6 +10,8 @@ public interface HistoryOwnerRepository {
 
     Collection<HistoryOwner> findAll();
 
+    Page<HistoryOwner> findPageOrderById(Cursor after, int limit);
+
     Optional<HistoryOwner> findById(int id);
 
     void update(HistoryOwner historyOwner);
@@ -10,6 +10,8 @@ public interface OwnerRepository {
 
     Collection<Owner> findAll();
 
+    Page<Owner> findPageOrderById(Cursor after, int limit);
+
     Optional<Owner> findById(int id);
 
     void update(Owner owner);
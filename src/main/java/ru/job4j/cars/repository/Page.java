@@ -0,0 +1,39 @@
+package ru.job4j.cars.repository;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница keyset пагинации.
+ *
+ * @param items элементы страницы.
+ * @param next курсор следующей страницы или null, если страница последняя.
+ * @param <T> тип элементов.
+ */
+public record Page<T>(List<T> items, Cursor next) {
+    public static <T> Page<T> empty() {
+        return new Page<>(List.of(), null);
+    }
+
+    /**
+     * Собрать страницу из выборки размером до limit + 1 элементов:
+     * лишний элемент означает, что есть следующая страница.
+     *
+     * @param rows выборка.
+     * @param limit размер страницы.
+     * @param cursor курсор по элементу.
+     * @param <T> тип элементов.
+     * @return страница.
+     */
+    public static <T> Page<T> of(List<T> rows, int limit, Function<T, Cursor> cursor) {
+        if (rows.size() <= limit) {
+            return new Page<>(List.copyOf(rows), null);
+        }
+        List<T> items = List.copyOf(rows.subList(0, limit));
+        return new Page<>(items, cursor.apply(items.get(limit - 1)));
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
@@ -10,6 +10,8 @@ public interface ParticipateRepository {
 
     Collection<Participate> findAll();
 
+    Page<Participate> findPageOrderById(Cursor after, int limit);
+
     Optional<Participate> findById(int id);
 
     void delete(int id);
@@ -0,0 +1,17 @@
+package ru.job4j.cars.repository;
+
+import ru.job4j.cars.model.PostFeed;
+
+import java.util.Optional;
+
+public interface PostFeedRepository {
+    Optional<PostFeed> findById(int postId);
+
+    Page<PostFeed> findPageOrderByCreated(Cursor after, int limit);
+
+    Page<PostFeed> findPageWithPhotosOrderByCreated(Cursor after, int limit);
+
+    Page<PostFeed> findPageByCarNameLike(String name, Cursor after, int limit);
+
+    int rebuild();
+}
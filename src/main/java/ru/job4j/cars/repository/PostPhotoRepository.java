@@ -8,9 +8,15 @@ import java.util.Optional;
 public interface PostPhotoRepository {
     PostPhoto create(PostPhoto postPhoto);
 
+    Collection<PostPhoto> createAll(Iterable<PostPhoto> postPhotos);
+
     Optional<PostPhoto> findById(int id);
 
+    Optional<PostPhoto> findByPostAndFile(int postId, int fileId);
+
     Collection<PostPhoto> findAll();
 
+    Page<PostPhoto> findPageOrderById(Cursor after, int limit);
+
     void delete(int id);
 }
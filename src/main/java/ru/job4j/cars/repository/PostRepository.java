@@ -1,25 +1,38 @@
 package ru.job4j.cars.repository;
 
+import ru.job4j.cars.dto.PostCard;
 import ru.job4j.cars.model.Post;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PostRepository {
     Post create(Post post);
 
+    Collection<Post> createAll(Iterable<Post> posts);
+
     void update(Post post);
 
     Optional<Post> findById(int id);
 
     Collection<Post> findAllOrderByCreated();
 
+    Page<Post> findPageOrderByCreated(Cursor after, int limit);
+
+    Page<PostCard> findCardPageOrderByCreated(Cursor after, int limit);
+
+    Stream<Post> streamAllOrderByCreated();
+
     Collection<Post> findAllByCreatedBetween(LocalDateTime from, LocalDateTime to);
 
     Collection<Post> findAllWherePhotoIsNotNull();
 
     Collection<Post> findAllByCarNameLike(String name);
 
+    List<Post> searchByCarName(String term, SearchMode mode, int limit);
+
     void delete(int id);
 }
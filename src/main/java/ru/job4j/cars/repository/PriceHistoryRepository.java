@@ -1,17 +1,33 @@
 package ru.job4j.cars.repository;
 
+import ru.job4j.cars.dto.PriceStats;
 import ru.job4j.cars.model.PriceHistory;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PriceHistoryRepository {
     PriceHistory create(PriceHistory priceHistory);
 
+    Collection<PriceHistory> createAll(Iterable<PriceHistory> priceHistories);
+
     Collection<PriceHistory> findAll();
 
+    Page<PriceHistory> findPageOrderById(Cursor after, int limit);
+
+    Stream<PriceHistory> streamAll();
+
     Optional<PriceHistory> findById(int id);
 
+    Optional<Long> findPriceAt(int postId, LocalDateTime at);
+
+    Map<Integer, Long> findLatestPrices(Collection<Integer> postIds);
+
+    Optional<PriceStats> findStats(int postId, LocalDateTime from, LocalDateTime to);
+
     void update(PriceHistory priceHistory);
 
     void delete(int id);
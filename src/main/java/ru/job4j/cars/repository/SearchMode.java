@@ -0,0 +1,43 @@
+package ru.job4j.cars.repository;
+
+/**
+ * Режим поиска по названию.
+ */
+public enum SearchMode {
+    /**
+     * Название начинается со строки поиска.
+     */
+    PREFIX("", "%"),
+    /**
+     * Название содержит строку поиска.
+     */
+    SUBSTRING("%", "%");
+
+    private final String before;
+    private final String after;
+
+    SearchMode(String before, String after) {
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * Экранировать символы LIKE в строке поиска для условия like ... escape '!'.
+     *
+     * @param term строка поиска.
+     * @return строка, в которой !, % и _ совпадают только сами с собой.
+     */
+    public static String escape(String term) {
+        return term.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    /**
+     * Шаблон LIKE для строки поиска.
+     *
+     * @param term строка поиска с экранированными символами % и _.
+     * @return шаблон.
+     */
+    public String pattern(String term) {
+        return before + term + after;
+    }
+}
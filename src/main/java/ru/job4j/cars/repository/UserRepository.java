@@ -14,6 +14,8 @@ public interface UserRepository {
 
     List<User> findAllOrderById();
 
+    Page<User> findPageOrderById(Cursor after, int limit);
+
     Optional<User> findById(int userId);
 
     List<User> findByLikeLogin(String key);
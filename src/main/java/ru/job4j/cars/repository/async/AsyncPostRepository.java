@@ -0,0 +1,59 @@
+package ru.job4j.cars.repository.async;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.dto.PostCard;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.Cursor;
+import ru.job4j.cars.repository.Page;
+import ru.job4j.cars.repository.PostRepository;
+import ru.job4j.cars.repository.SearchMode;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Асинхронный фасад над PostRepository для параллельной сборки страниц.
+ * Вызовы остальных репозиториев выполняются через {@link AsyncRepositoryExecutor#supply}.
+ */
+@Component
+@AllArgsConstructor
+public class AsyncPostRepository {
+    private final PostRepository postRepository;
+    private final AsyncRepositoryExecutor executor;
+
+    public CompletableFuture<Optional<Post>> findById(int id) {
+        return executor.supply(() -> postRepository.findById(id));
+    }
+
+    public CompletableFuture<Collection<Post>> findAllOrderByCreated() {
+        return executor.supply(postRepository::findAllOrderByCreated);
+    }
+
+    public CompletableFuture<Page<Post>> findPageOrderByCreated(Cursor after, int limit) {
+        return executor.supply(() -> postRepository.findPageOrderByCreated(after, limit));
+    }
+
+    public CompletableFuture<Page<PostCard>> findCardPageOrderByCreated(Cursor after, int limit) {
+        return executor.supply(() -> postRepository.findCardPageOrderByCreated(after, limit));
+    }
+
+    public CompletableFuture<Collection<Post>> findAllByCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return executor.supply(() -> postRepository.findAllByCreatedBetween(from, to));
+    }
+
+    public CompletableFuture<Collection<Post>> findAllWherePhotoIsNotNull() {
+        return executor.supply(postRepository::findAllWherePhotoIsNotNull);
+    }
+
+    public CompletableFuture<Collection<Post>> findAllByCarNameLike(String name) {
+        return executor.supply(() -> postRepository.findAllByCarNameLike(name));
+    }
+
+    public CompletableFuture<List<Post>> searchByCarName(String term, SearchMode mode, int limit) {
+        return executor.supply(() -> postRepository.searchByCarName(term, mode, limit));
+    }
+}
@@ -0,0 +1,90 @@
+package ru.job4j.cars.repository.async;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Исполнитель асинхронных вызовов репозиториев.
+ * Число потоков равно размеру пула соединений, поэтому параллельные
+ * вызовы не ждут соединение внутри пула, а стоят в очереди исполнителя.
+ * Отмена CompletableFuture прерывает поток и отменяет текущий SQL запрос.
+ */
+@Component
+public class AsyncRepositoryExecutor {
+    private final CrudRepository crudRepository;
+    private final ExecutorService executor;
+
+    public AsyncRepositoryExecutor(CrudRepository crudRepository,
+                                   @Value("${datasource.maximum-pool-size:10}") int concurrency) {
+        this.crudRepository = crudRepository;
+        this.executor = Executors.newFixedThreadPool(concurrency, threadFactory());
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger number = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "repository-async-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Выполнить вызов репозитория асинхронно.
+     *
+     * @param action вызов репозитория.
+     * @param <T> тип результата.
+     * @return результат, отмена которого отменяет SQL запрос.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> action) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        Future<?> task = executor.submit(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            worker.set(Thread.currentThread());
+            try {
+                result.complete(action.get());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            } finally {
+                synchronized (worker) {
+                    worker.set(null);
+                }
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                cancel(worker);
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private void cancel(AtomicReference<Thread> worker) {
+        synchronized (worker) {
+            Thread thread = worker.get();
+            if (thread != null) {
+                crudRepository.cancel(thread);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+}
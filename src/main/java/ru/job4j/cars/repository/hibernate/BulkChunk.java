@@ -0,0 +1,21 @@
+package ru.job4j.cars.repository.hibernate;
+
+import java.util.List;
+
+/**
+ * Результат записи одной порции пакетной операции.
+ *
+ * @param number номер порции, начиная с 1.
+ * @param entities сущности порции, при ошибке они не записаны.
+ * @param error ошибка, из-за которой порция откатилась, или null.
+ * @param <T> тип сущности.
+ */
+public record BulkChunk<T>(int number, List<T> entities, Exception error) {
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public int size() {
+        return entities.size();
+    }
+}
@@ -1,22 +1,39 @@
 package ru.job4j.cars.repository.hibernate;
 
 import lombok.AllArgsConstructor;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Repository
 @AllArgsConstructor
 public class CrudRepository {
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
     private final SessionFactory sf;
+    private final Map<Thread, Session> sessions = new ConcurrentHashMap<>();
 
     public void run(Consumer<Session> command) {
         tx(session -> {
@@ -44,12 +61,45 @@ public class CrudRepository {
             }
             return sq.uniqueResultOptional();
         };
-        return tx(command);
+        return readOnly(command);
+    }
+
+    /**
+     * Найти сущность по id через session.get, сначала в кэше второго уровня,
+     * при промахе в базе.
+     *
+     * @param cl класс сущности.
+     * @param id id сущности.
+     * @param <T> тип сущности.
+     * @return сущность.
+     */
+    public <T> Optional<T> get(Class<T> cl, Object id) {
+        return readOnly(session -> Optional.ofNullable(session.get(cl, id)));
+    }
+
+    /**
+     * Очистить регион сущности в кэше второго уровня.
+     * Нужен после удалений, которые база каскадирует сама (on delete cascade),
+     * Hibernate о таких строках не знает.
+     *
+     * @param cl класс сущности.
+     */
+    public void evict(Class<?> cl) {
+        sf.getCache().evictEntityData(cl);
+    }
+
+    /**
+     * Очистить регион коллекции в кэше второго уровня.
+     *
+     * @param role роль коллекции, например ru.job4j.cars.model.Post.photos.
+     */
+    public void evictCollection(String role) {
+        sf.getCache().evictCollectionData(role);
     }
 
     public <T> List<T> query(String query, Class<T> cl) {
         Function<Session, List<T>> command = session -> session.createQuery(query, cl).list();
-        return tx(command);
+        return readOnly(command);
     }
 
     public <T> List<T> query(String query, Class<T> cl, Map<String, Object> args) {
@@ -60,11 +110,106 @@ public class CrudRepository {
             }
             return sq.list();
         };
-        return tx(command);
+        return readOnly(command);
+    }
+
+    /**
+     * Очистить регион кэша запросов. Нужен после записи через StatelessSession,
+     * она не обновляет метки времени таблиц.
+     *
+     * @param region регион кэша запросов.
+     */
+    public void evictQueryRegion(String region) {
+        sf.getCache().evictQueryRegion(region);
+    }
+
+    public <T> List<T> query(String query, Class<T> cl, Map<String, Object> args, int limit) {
+        Function<Session, List<T>> command = session -> {
+            Query<T> sq = session.createQuery(query, cl);
+            for (Map.Entry<String, Object> arg : args.entrySet()) {
+                sq.setParameter(arg.getKey(), arg.getValue());
+            }
+            return sq.setMaxResults(limit).list();
+        };
+        return readOnly(command);
     }
 
     public <T> T tx(Function<Session, T> command) {
         Session session = sf.openSession();
+        sessions.put(Thread.currentThread(), session);
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            T rsl = command.apply(session);
+            transaction.commit();
+            return rsl;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            sessions.remove(Thread.currentThread());
+            session.close();
+        }
+    }
+
+    /**
+     * Потоковое чтение результата запроса через ScrollableResults
+     * с курсором только вперёд. Строки выбираются с сервера порциями
+     * по fetchSize, после каждой порции контекст персистентности
+     * очищается, поэтому память не растёт с размером результата.
+     * Запрос не должен делать fetch join коллекций.
+     * Поток держит сессию и соединение открытыми и должен быть закрыт.
+     *
+     * @param query запрос.
+     * @param cl класс результата.
+     * @param args параметры запроса.
+     * @param fetchSize размер порции.
+     * @param <T> тип результата.
+     * @return поток результатов, который нужно закрыть.
+     */
+    public <T> Stream<T> stream(String query, Class<T> cl, Map<String, Object> args, int fetchSize) {
+        Session session = openReadOnlySession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            Query<T> sq = session.createQuery(query, cl);
+            for (Map.Entry<String, Object> arg : args.entrySet()) {
+                sq.setParameter(arg.getKey(), arg.getValue());
+            }
+            ScrollableResults<T> results = sq.setFetchSize(fetchSize).scroll(ScrollMode.FORWARD_ONLY);
+            Transaction streamTransaction = transaction;
+            return StreamSupport.stream(new ScrollSpliterator<>(session, results, fetchSize), false)
+                    .onClose(() -> {
+                        try {
+                            results.close();
+                            streamTransaction.commit();
+                        } finally {
+                            closeReadOnlySession(session);
+                        }
+                    });
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            closeReadOnlySession(session);
+            throw e;
+        }
+    }
+
+    /**
+     * Выполнить команду только на чтение: сущности загружаются read-only
+     * без снимков для dirty checking, flush не выполняется,
+     * JDBC соединение переводится в режим read-only.
+     *
+     * @param command команда.
+     * @param <T> тип результата.
+     * @return результат команды.
+     */
+    public <T> T readOnly(Function<Session, T> command) {
+        Session session = openReadOnlySession();
+        sessions.put(Thread.currentThread(), session);
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
@@ -76,8 +221,135 @@ public class CrudRepository {
                 transaction.rollback();
             }
             throw e;
+        } finally {
+            sessions.remove(Thread.currentThread());
+            closeReadOnlySession(session);
+        }
+    }
+
+    /**
+     * Отменить SQL запрос, который сейчас выполняется в tx или readOnly
+     * на указанном потоке. JDBC драйвер прерывает выполнение
+     * через Statement.cancel(), транзакция откатывается с ошибкой.
+     *
+     * @param thread поток, выполняющий команду.
+     */
+    public void cancel(Thread thread) {
+        Session session = sessions.get(thread);
+        if (session != null) {
+            session.cancelQuery();
+        }
+    }
+
+    private Session openReadOnlySession() {
+        Session session = sf.withOptions()
+                .connectionHandlingMode(PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_HOLD)
+                .openSession();
+        try {
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            session.doWork(connection -> connection.setReadOnly(true));
+        } catch (Exception e) {
+            session.close();
+            throw e;
+        }
+        return session;
+    }
+
+    private void closeReadOnlySession(Session session) {
+        try {
+            session.doWork(connection -> connection.setReadOnly(false));
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Пакетная обработка сущностей через StatelessSession: без контекста
+     * персистентности и каскадов, каждая порция из chunkSize сущностей
+     * выполняется в своей транзакции. Ошибка порции откатывает только её,
+     * обработка продолжается со следующей порции.
+     *
+     * @param entities сущности.
+     * @param chunkSize размер порции.
+     * @param command команда для одной сущности, например StatelessSession::insert.
+     * @param listener получает результат каждой порции вместе с ее сущностями.
+     * @param <T> тип сущности.
+     * @return количество сущностей в успешно записанных порциях.
+     */
+    public <T> int bulk(Iterable<T> entities, int chunkSize,
+                        BiConsumer<StatelessSession, T> command, Consumer<BulkChunk<T>> listener) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        int processed = 0;
+        int number = 0;
+        List<T> chunk = new ArrayList<>(chunkSize);
+        Iterator<T> iterator = entities.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                BulkChunk<T> result = bulkChunk(++number, List.copyOf(chunk), command);
+                if (result.isSuccess()) {
+                    processed += result.size();
+                }
+                listener.accept(result);
+                chunk.clear();
+            }
+        }
+        return processed;
+    }
+
+    public <T> int bulk(Stream<T> entities, int chunkSize,
+                        BiConsumer<StatelessSession, T> command, Consumer<BulkChunk<T>> listener) {
+        Iterable<T> iterable = entities::iterator;
+        return bulk(iterable, chunkSize, command, listener);
+    }
+
+    private <T> BulkChunk<T> bulkChunk(int number, List<T> chunk, BiConsumer<StatelessSession, T> command) {
+        StatelessSession session = sf.openStatelessSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            for (T entity : chunk) {
+                command.accept(session, entity);
+            }
+            transaction.commit();
+            return new BulkChunk<>(number, chunk, null);
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            return new BulkChunk<>(number, chunk, e);
         } finally {
             session.close();
         }
     }
+
+    private static class ScrollSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Session session;
+        private final ScrollableResults<T> results;
+        private final int fetchSize;
+        private int consumed;
+
+        ScrollSpliterator(Session session, ScrollableResults<T> results, int fetchSize) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.session = session;
+            this.results = results;
+            this.fetchSize = fetchSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (!results.next()) {
+                return false;
+            }
+            action.accept(results.get());
+            consumed++;
+            if (consumed % fetchSize == 0) {
+                session.clear();
+            }
+            return true;
+        }
+    }
 }
@@ -2,12 +2,18 @@ package ru.job4j.cars.repository.hibernate;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StatelessSession;
 import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.Car;
+import ru.job4j.cars.model.HistoryOwner;
 import ru.job4j.cars.repository.CarRepository;
+import ru.job4j.cars.repository.Cursor;
+import ru.job4j.cars.repository.Page;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -27,6 +33,24 @@ public class HibernateCarRepository implements CarRepository {
         return car;
     }
 
+    @Override
+    public Collection<Car> createAll(Iterable<Car> cars) {
+        List<Car> created = new ArrayList<>();
+        try {
+            crudRepository.bulk(cars, CrudRepository.DEFAULT_CHUNK_SIZE, StatelessSession::insert, chunk -> {
+                if (chunk.isSuccess()) {
+                    created.addAll(chunk.entities());
+                    log.debug("Created chunk {} of {} cars", chunk.number(), chunk.size());
+                } else {
+                    log.error("Error create chunk {} of {} cars", chunk.number(), chunk.size(), chunk.error());
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error create all cars", e);
+        }
+        return created;
+    }
+
     @Override
     public Collection<Car> findAll() {
         try {
@@ -38,13 +62,25 @@ public class HibernateCarRepository implements CarRepository {
     }
 
     @Override
-    public Optional<Car> findById(int id) {
+    public Page<Car> findPageOrderById(Cursor after, int limit) {
         try {
-            return crudRepository.optional(
-                    "from Car where id = :id",
+            List<Car> rows = crudRepository.query(
+                    "select c from Car c left join fetch c.engine where c.id > :id order by c.id",
                     Car.class,
-                    Map.of("id", id)
+                    Map.of("id", after == null ? 0 : after.id()),
+                    limit + 1
             );
+            return Page.of(rows, limit, car -> Cursor.of(car.getId()));
+        } catch (Exception e) {
+            log.error("Error find page car after {}", after, e);
+        }
+        return Page.empty();
+    }
+
+    @Override
+    public Optional<Car> findById(int id) {
+        try {
+            return crudRepository.get(Car.class, id);
         } catch (Exception e) {
             log.error("Error find by id car, id = {}", id, e);
         }
@@ -54,7 +90,10 @@ public class HibernateCarRepository implements CarRepository {
     @Override
     public void update(Car car) {
         try {
-            crudRepository.run(session -> session.merge(car));
+            crudRepository.run(session -> {
+                session.merge(car);
+                PostFeeds.refreshCar(session, car.getId());
+            });
         } catch (Exception e) {
             log.error("Error update car, id = {}", car.getId(), e);
         }
@@ -67,6 +106,8 @@ public class HibernateCarRepository implements CarRepository {
                     "delete from Car where id = :id",
                     Map.of("id", id)
             );
+            crudRepository.evict(HistoryOwner.class);
+            crudRepository.evictCollection(Car.HISTORY_OWNERS_ROLE);
         } catch (Exception e) {
             log.error("Error delete Car where id = {}", id, e);
         }
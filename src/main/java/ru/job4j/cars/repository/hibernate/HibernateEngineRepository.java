@@ -4,10 +4,13 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.Engine;
+import ru.job4j.cars.repository.Cursor;
 import ru.job4j.cars.repository.EngineRepository;
+import ru.job4j.cars.repository.Page;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -38,13 +41,25 @@ public class HibernateEngineRepository implements EngineRepository {
     }
 
     @Override
-    public Optional<Engine> findById(int id) {
+    public Page<Engine> findPageOrderById(Cursor after, int limit) {
         try {
-            return crudRepository.optional(
-                    "from Engine where id = :id",
+            List<Engine> rows = crudRepository.query(
+                    "from Engine where id > :id order by id",
                     Engine.class,
-                    Map.of("id", id)
+                    Map.of("id", after == null ? 0 : after.id()),
+                    limit + 1
             );
+            return Page.of(rows, limit, engine -> Cursor.of(engine.getId()));
+        } catch (Exception e) {
+            log.error("Error find page engine after {}", after, e);
+        }
+        return Page.empty();
+    }
+
+    @Override
+    public Optional<Engine> findById(int id) {
+        try {
+            return crudRepository.get(Engine.class, id);
         } catch (Exception e) {
             log.error("Error find by id engine where id = {}", id, e);
         }
@@ -54,7 +69,10 @@ public class HibernateEngineRepository implements EngineRepository {
     @Override
     public void update(Engine engine) {
         try {
-            crudRepository.run(session -> session.merge(engine));
+            crudRepository.run(session -> {
+                Engine merged = session.merge(engine);
+                PostFeeds.refreshEngine(session, merged.getId());
+            });
         } catch (Exception e) {
             log.error("Error update engine where id = {}", engine.getId(), e);
         }
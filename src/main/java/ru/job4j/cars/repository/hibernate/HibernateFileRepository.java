@@ -4,12 +4,20 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.File;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.repository.Cursor;
 import ru.job4j.cars.repository.FileRepository;
+import ru.job4j.cars.repository.Page;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 @AllArgsConstructor
@@ -29,14 +37,24 @@ public class HibernateFileRepository implements FileRepository {
 
     @Override
     public Optional<File> findById(int id) {
+        try {
+            return crudRepository.get(File.class, id);
+        } catch (Exception e) {
+            log.error("Error find File by id = {}", id, e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<File> findByHash(String hash) {
         try {
             return crudRepository.optional(
-                    "select f from File f where id = :id",
+                    "select f from File f where f.hash = :hash",
                     File.class,
-                    Map.of("id", id)
+                    Map.of("hash", hash)
             );
         } catch (Exception e) {
-            log.error("Error find File by id = {}", id, e);
+            log.error("Error find File by hash = {}", hash, e);
         }
         return Optional.empty();
     }
@@ -55,12 +73,174 @@ public class HibernateFileRepository implements FileRepository {
     }
 
     @Override
-    public void delete(int id) {
+    public Page<File> findPageOrderById(Cursor after, int limit) {
         try {
-            crudRepository.run(
-                    "delete from File where id = :id",
-                    Map.of("id", id)
+            List<File> rows = crudRepository.query(
+                    "select f from File f where f.id > :id order by f.id",
+                    File.class,
+                    Map.of("id", after == null ? 0 : after.id()),
+                    limit + 1
             );
+            return Page.of(rows, limit, file -> Cursor.of(file.getId()));
+        } catch (Exception e) {
+            log.error("Error find page File after {}", after, e);
+        }
+        return Page.empty();
+    }
+
+    @Override
+    public Stream<File> streamAll() {
+        try {
+            return crudRepository.stream(
+                    "select f from File f order by f.id",
+                    File.class,
+                    Map.of(),
+                    CrudRepository.DEFAULT_FETCH_SIZE
+            );
+        } catch (Exception e) {
+            log.error("Error stream all File", e);
+        }
+        return Stream.empty();
+    }
+
+    @Override
+    public Collection<File> findAllWithoutVariants() {
+        try {
+            return crudRepository.query(
+                    "select f from File f where f.thumbnailPath is null or f.mediumPath is null order by f.id",
+                    File.class
+            );
+        } catch (Exception e) {
+            log.error("Error find all File without variants", e);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Записать пути уменьшенных копий и обновить обложки ленты с этим фото.
+     *
+     * @param id id файла.
+     * @param thumbnailPath путь миниатюры.
+     * @param mediumPath путь средней копии.
+     */
+    @Override
+    public void updateVariants(int id, String thumbnailPath, String mediumPath) {
+        try {
+            crudRepository.run(session -> {
+                session.createMutationQuery("""
+                                update File set thumbnailPath = :thumbnailPath, mediumPath = :mediumPath
+                                where id = :id""")
+                        .setParameter("thumbnailPath", thumbnailPath)
+                        .setParameter("mediumPath", mediumPath)
+                        .setParameter("id", id)
+                        .executeUpdate();
+                PostFeeds.refresh(session, session.createQuery(
+                                "select pp.post.id from PostPhoto pp where pp.photo.id = :id", Integer.class)
+                        .setParameter("id", id)
+                        .list());
+            });
+        } catch (Exception e) {
+            log.error("Error update variants of File where id = {}", id, e);
+        }
+    }
+
+    /**
+     * Все пути фото и копий с префиксом, например pack:000012: - фото одного pack-файла.
+     *
+     * @param prefix префикс пути.
+     * @return пути из path, thumbnailPath и mediumPath.
+     */
+    @Override
+    public Set<String> findPathsStartingWith(String prefix) {
+        try {
+            List<Object[]> rows = crudRepository.query("""
+                            select f.path, f.thumbnailPath, f.mediumPath from File f
+                            where f.path like :prefix or f.thumbnailPath like :prefix or f.mediumPath like :prefix""",
+                    Object[].class,
+                    Map.of("prefix", prefix + "%")
+            );
+            Set<String> paths = new HashSet<>();
+            for (Object[] row : rows) {
+                for (Object path : row) {
+                    if (path != null && ((String) path).startsWith(prefix)) {
+                        paths.add((String) path);
+                    }
+                }
+            }
+            return paths;
+        } catch (Exception e) {
+            log.error("Error find File paths starting with {}", prefix, e);
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * Заменить путь фото или копии во всех файлах и обновить обложки ленты с этими файлами.
+     *
+     * @param oldPath старый путь.
+     * @param newPath новый путь.
+     */
+    @Override
+    public void replacePath(String oldPath, String newPath) {
+        try {
+            crudRepository.run(session -> {
+                session.createMutationQuery("""
+                                update File set
+                                path = case when path = :oldPath then :newPath else path end,
+                                thumbnailPath = case when thumbnailPath = :oldPath then :newPath else thumbnailPath end,
+                                mediumPath = case when mediumPath = :oldPath then :newPath else mediumPath end
+                                where path = :oldPath or thumbnailPath = :oldPath or mediumPath = :oldPath""")
+                        .setParameter("oldPath", oldPath)
+                        .setParameter("newPath", newPath)
+                        .executeUpdate();
+                PostFeeds.refresh(session, session.createQuery("""
+                                select pp.post.id from PostPhoto pp
+                                where pp.photo.path = :path or pp.photo.thumbnailPath = :path""", Integer.class)
+                        .setParameter("path", newPath)
+                        .list());
+            });
+        } catch (Exception e) {
+            log.error("Error replace File path {} with {}", oldPath, newPath, e);
+        }
+    }
+
+    /**
+     * Удалить файл, если на него не ссылается ни одно объявление.
+     * Проверка и удаление - один запрос, поэтому фото, прикреплённое
+     * параллельно, не удаляется.
+     *
+     * @param id id файла.
+     * @return true, если файл удалён.
+     */
+    @Override
+    public boolean deleteIfUnreferenced(int id) {
+        try {
+            return crudRepository.tx(session -> session.createMutationQuery("""
+                            delete from File f where f.id = :id
+                            and not exists (select pp.id from PostPhoto pp where pp.photo.id = f.id)""")
+                    .setParameter("id", id)
+                    .executeUpdate()) > 0;
+        } catch (Exception e) {
+            log.error("Error delete unreferenced File where id = {}", id, e);
+        }
+        return false;
+    }
+
+    @Override
+    public void delete(int id) {
+        try {
+            crudRepository.run(session -> {
+                List<Integer> postIds = session.createQuery(
+                                "select pp.post.id from PostPhoto pp where pp.photo.id = :id", Integer.class)
+                        .setParameter("id", id)
+                        .list();
+                session.createMutationQuery("delete from File where id = :id")
+                        .setParameter("id", id)
+                        .executeUpdate();
+                PostFeeds.refresh(session, postIds);
+            });
+            crudRepository.evict(PostPhoto.class);
+            crudRepository.evictCollection(Post.PHOTOS_ROLE);
         } catch (Exception e) {
             log.error("Error delete File where id = {}", id, e);
         }
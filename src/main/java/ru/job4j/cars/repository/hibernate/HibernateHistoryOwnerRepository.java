@@ -4,10 +4,13 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.HistoryOwner;
+import ru.job4j.cars.repository.Cursor;
 import ru.job4j.cars.repository.HistoryOwnerRepository;
+import ru.job4j.cars.repository.Page;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -37,6 +40,22 @@ public class HibernateHistoryOwnerRepository implements HistoryOwnerRepository {
         return Collections.emptyList();
     }
 
+    @Override
+    public Page<HistoryOwner> findPageOrderById(Cursor after, int limit) {
+        try {
+            List<HistoryOwner> rows = crudRepository.query(
+                    "from HistoryOwner where id > :id order by id",
+                    HistoryOwner.class,
+                    Map.of("id", after == null ? 0 : after.id()),
+                    limit + 1
+            );
+            return Page.of(rows, limit, historyOwner -> Cursor.of(historyOwner.getId()));
+        } catch (Exception e) {
+            log.error("Error find page history owner after {}", after, e);
+        }
+        return Page.empty();
+    }
+
     @Override
     public Optional<HistoryOwner> findById(int id) {
         try {
@@ -3,11 +3,16 @@ package ru.job4j.cars.repository.hibernate;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
+import ru.job4j.cars.model.Car;
+import ru.job4j.cars.model.HistoryOwner;
 import ru.job4j.cars.model.Owner;
+import ru.job4j.cars.repository.Cursor;
 import ru.job4j.cars.repository.OwnerRepository;
+import ru.job4j.cars.repository.Page;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -37,6 +42,22 @@ public class HibernateOwnerRepository implements OwnerRepository {
         return Collections.emptyList();
     }
 
+    @Override
+    public Page<Owner> findPageOrderById(Cursor after, int limit) {
+        try {
+            List<Owner> rows = crudRepository.query(
+                    "from Owner where id > :id order by id",
+                    Owner.class,
+                    Map.of("id", after == null ? 0 : after.id()),
+                    limit + 1
+            );
+            return Page.of(rows, limit, owner -> Cursor.of(owner.getId()));
+        } catch (Exception e) {
+            log.error("Error find page owner after {}", after, e);
+        }
+        return Page.empty();
+    }
+
     @Override
     public Optional<Owner> findById(int id) {
         try {
@@ -67,6 +88,8 @@ public class HibernateOwnerRepository implements OwnerRepository {
                     "delete from Owner where id = :id",
                     Map.of("id", id)
             );
+            crudRepository.evict(HistoryOwner.class);
+            crudRepository.evictCollection(Car.HISTORY_OWNERS_ROLE);
         } catch (Exception e) {
             log.error("Error delete owner where id = {}", id, e);
         }
@@ -4,10 +4,13 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.Participate;
+import ru.job4j.cars.repository.Cursor;
+import ru.job4j.cars.repository.Page;
 import ru.job4j.cars.repository.ParticipateRepository;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -37,6 +40,22 @@ public class HibernateParticipateRepository implements ParticipateRepository {
         return Collections.emptyList();
     }
 
+    @Override
+    public Page<Participate> findPageOrderById(Cursor after, int limit) {
+        try {
+            List<Participate> rows = crudRepository.query(
+                    "from Participate where id > :id order by id",
+                    Participate.class,
+                    Map.of("id", after == null ? 0 : after.id()),
+                    limit + 1
+            );
+            return Page.of(rows, limit, participate -> Cursor.of(participate.getId()));
+        } catch (Exception e) {
+            log.error("Error find page participate after {}", after, e);
+        }
+        return Page.empty();
+    }
+
     @Override
     public Optional<Participate> findById(int id) {
         try {
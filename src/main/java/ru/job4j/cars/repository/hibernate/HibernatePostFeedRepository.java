@@ -0,0 +1,109 @@
+package ru.job4j.cars.repository.hibernate;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import ru.job4j.cars.model.PostFeed;
+import ru.job4j.cars.repository.Cursor;
+import ru.job4j.cars.repository.Page;
+import ru.job4j.cars.repository.PostFeedRepository;
+import ru.job4j.cars.repository.SearchMode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Лента из денормализованной таблицы post_feed: каждая страница -
+ * один запрос по индексу (created desc, post_id desc) без соединений.
+ */
+@Repository
+@AllArgsConstructor
+@Slf4j
+public class HibernatePostFeedRepository implements PostFeedRepository {
+    private final CrudRepository crudRepository;
+
+    @Override
+    public Optional<PostFeed> findById(int postId) {
+        try {
+            return crudRepository.optional(
+                    "from PostFeed where postId = :postId",
+                    PostFeed.class,
+                    Map.of("postId", postId)
+            );
+        } catch (Exception e) {
+            log.error("Error find post feed by post id {}", postId, e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Page<PostFeed> findPageOrderByCreated(Cursor after, int limit) {
+        try {
+            return page("", Map.of(), after, limit);
+        } catch (Exception e) {
+            log.error("Error find post feed page after {}", after, e);
+        }
+        return Page.empty();
+    }
+
+    @Override
+    public Page<PostFeed> findPageWithPhotosOrderByCreated(Cursor after, int limit) {
+        try {
+            return page("f.photoCount > 0", Map.of(), after, limit);
+        } catch (Exception e) {
+            log.error("Error find post feed page with photos after {}", after, e);
+        }
+        return Page.empty();
+    }
+
+    @Override
+    public Page<PostFeed> findPageByCarNameLike(String name, Cursor after, int limit) {
+        try {
+            return page(
+                    "lower(f.carName) like :name escape '!'",
+                    Map.of("name", SearchMode.SUBSTRING.pattern(SearchMode.escape(name.strip().toLowerCase(Locale.ROOT)))),
+                    after,
+                    limit
+            );
+        } catch (Exception e) {
+            log.error("Error find post feed page by car name {} after {}", name, after, e);
+        }
+        return Page.empty();
+    }
+
+    /**
+     * Пересобрать ленту целиком.
+     *
+     * @return число строк ленты, -1 при ошибке.
+     */
+    @Override
+    public int rebuild() {
+        try {
+            int rows = crudRepository.tx(PostFeeds::rebuild);
+            log.info("Rebuilt post feed, {} rows", rows);
+            return rows;
+        } catch (Exception e) {
+            log.error("Error rebuild post feed", e);
+        }
+        return -1;
+    }
+
+    private Page<PostFeed> page(String whereJpql, Map<String, Object> parameters, Cursor after, int limit) {
+        StringBuilder jpql = new StringBuilder("from PostFeed f where 1 = 1");
+        Map<String, Object> args = new HashMap<>(parameters);
+        if (!whereJpql.isEmpty()) {
+            jpql.append(" and ").append(whereJpql);
+        }
+        if (after != null) {
+            jpql.append(" and f.created <= :created and (f.created < :created or f.postId < :postId)");
+            args.put("created", after.created());
+            args.put("postId", after.id());
+        }
+        jpql.append(" order by f.created desc, f.postId desc");
+        List<PostFeed> rows = crudRepository.query(jpql.toString(), PostFeed.class, args, limit + 1);
+        return Page.of(rows, limit, feed -> Cursor.of(feed.getCreated(), feed.getPostId()));
+    }
+}
@@ -2,12 +2,18 @@ package ru.job4j.cars.repository.hibernate;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StatelessSession;
 import org.springframework.stereotype.Repository;
+import ru.job4j.cars.model.Post;
 import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.repository.Cursor;
+import ru.job4j.cars.repository.Page;
 import ru.job4j.cars.repository.PostPhotoRepository;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -20,13 +26,37 @@ public class HibernatePostPhotoRepository implements PostPhotoRepository {
     @Override
     public PostPhoto create(PostPhoto postPhoto) {
         try {
-            crudRepository.run(session -> session.persist(postPhoto));
+            crudRepository.run(session -> {
+                session.persist(postPhoto);
+                PostFeeds.refresh(session, List.of(postPhoto.getPost().getId()));
+            });
         } catch (Exception e) {
             log.error("Error create PostPhoto", e);
         }
         return postPhoto;
     }
 
+    @Override
+    public Collection<PostPhoto> createAll(Iterable<PostPhoto> postPhotos) {
+        List<PostPhoto> created = new ArrayList<>();
+        try {
+            crudRepository.bulk(postPhotos, CrudRepository.DEFAULT_CHUNK_SIZE, StatelessSession::insert, chunk -> {
+                if (chunk.isSuccess()) {
+                    created.addAll(chunk.entities());
+                    log.debug("Created chunk {} of {} PostPhoto", chunk.number(), chunk.size());
+                } else {
+                    log.error("Error create chunk {} of {} PostPhoto", chunk.number(), chunk.size(), chunk.error());
+                }
+            });
+            crudRepository.evictCollection(Post.PHOTOS_ROLE);
+            crudRepository.evictQueryRegion(HibernatePostRepository.FEED_CACHE_REGION);
+            PostFeeds.refresh(crudRepository, created.stream().map(postPhoto -> postPhoto.getPost().getId()).toList());
+        } catch (Exception e) {
+            log.error("Error create all PostPhoto", e);
+        }
+        return created;
+    }
+
     @Override
     public Optional<PostPhoto> findById(int id) {
         try {
@@ -41,6 +71,20 @@ public class HibernatePostPhotoRepository implements PostPhotoRepository {
         return Optional.empty();
     }
 
+    @Override
+    public Optional<PostPhoto> findByPostAndFile(int postId, int fileId) {
+        try {
+            return crudRepository.optional(
+                    "select pp from PostPhoto pp join fetch pp.photo where pp.post.id = :postId and pp.photo.id = :fileId",
+                    PostPhoto.class,
+                    Map.of("postId", postId, "fileId", fileId)
+            );
+        } catch (Exception e) {
+            log.error("Error find PostPhoto by post and file where postId = {}, fileId = {}", postId, fileId, e);
+        }
+        return Optional.empty();
+    }
+
     @Override
     public Collection<PostPhoto> findAll() {
         try {
@@ -55,12 +99,34 @@ public class HibernatePostPhotoRepository implements PostPhotoRepository {
     }
 
     @Override
-    public void delete(int id) {
+    public Page<PostPhoto> findPageOrderById(Cursor after, int limit) {
         try {
-            crudRepository.run(
-                    "delete from PostPhoto where id = :id",
-                    Map.of("id", id)
+            List<PostPhoto> rows = crudRepository.query(
+                    "select pp from PostPhoto pp join fetch pp.photo where pp.id > :id order by pp.id",
+                    PostPhoto.class,
+                    Map.of("id", after == null ? 0 : after.id()),
+                    limit + 1
             );
+            return Page.of(rows, limit, postPhoto -> Cursor.of(postPhoto.getId()));
+        } catch (Exception e) {
+            log.error("Error find page PostPhoto after {}", after, e);
+        }
+        return Page.empty();
+    }
+
+    @Override
+    public void delete(int id) {
+        try {
+            crudRepository.run(session -> {
+                List<Integer> postIds = session.createQuery(
+                                "select pp.post.id from PostPhoto pp where pp.id = :id", Integer.class)
+                        .setParameter("id", id)
+                        .list();
+                session.createMutationQuery("delete from PostPhoto where id = :id")
+                        .setParameter("id", id)
+                        .executeUpdate();
+                PostFeeds.refresh(session, postIds);
+            });
         } catch (Exception e) {
             log.error("Error delete PostPhoto where id = {}", id, e);
         }
@@ -2,36 +2,80 @@ package ru.job4j.cars.repository.hibernate;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
+import ru.job4j.cars.dto.PostCard;
 import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.repository.Cursor;
+import ru.job4j.cars.repository.Page;
 import ru.job4j.cars.repository.PostRepository;
+import ru.job4j.cars.repository.SearchMode;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @AllArgsConstructor
 @Slf4j
 public class HibernatePostRepository implements PostRepository {
+    public static final String FEED_CACHE_REGION = "post_feed";
+
     private final CrudRepository crudRepository;
 
     @Override
     public Post create(Post post) {
         try {
-            crudRepository.run(session -> session.persist(post));
+            crudRepository.run(session -> {
+                session.persist(post);
+                PostFeeds.refresh(session, List.of(post.getId()));
+            });
         } catch (Exception e) {
             log.error("Error create post", e);
         }
         return post;
     }
 
+    @Override
+    public Collection<Post> createAll(Iterable<Post> posts) {
+        List<Post> created = new ArrayList<>();
+        try {
+            crudRepository.bulk(posts, CrudRepository.DEFAULT_CHUNK_SIZE, StatelessSession::insert, chunk -> {
+                if (chunk.isSuccess()) {
+                    created.addAll(chunk.entities());
+                    log.debug("Created chunk {} of {} posts", chunk.number(), chunk.size());
+                } else {
+                    log.error("Error create chunk {} of {} posts", chunk.number(), chunk.size(), chunk.error());
+                }
+            });
+            crudRepository.evictQueryRegion(FEED_CACHE_REGION);
+            PostFeeds.refresh(crudRepository, created.stream().map(Post::getId).toList());
+        } catch (Exception e) {
+            log.error("Error create all posts", e);
+        }
+        return created;
+    }
+
     @Override
     public void update(Post post) {
         try {
-            crudRepository.run(session -> session.merge(post));
+            crudRepository.run(session -> {
+                session.merge(post);
+                PostFeeds.refresh(session, List.of(post.getId()));
+            });
         } catch (Exception e) {
             log.error("Error update post {}", post.getId(), e);
         }
@@ -57,33 +101,161 @@ public class HibernatePostRepository implements PostRepository {
 
     @Override
     public Collection<Post> findAllOrderByCreated() {
+        try {
+            return findAllPost("", Map.of());
+        } catch (Exception e) {
+            log.error("Error find all order by created", e);
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Stream<Post> streamAllOrderByCreated() {
         try {
             String jpql = """
                     select p from Post p
                     left join fetch p.user
                     left join fetch p.car c
                     left join fetch c.engine
-                    left join fetch p.photos phs
-                    left join fetch phs.photo ph
-                    order by p.created desc""";
-            return crudRepository.query(jpql, Post.class);
+                    order by p.created desc, p.id desc""";
+            return crudRepository.stream(jpql, Post.class, Map.of(), CrudRepository.DEFAULT_FETCH_SIZE);
         } catch (Exception e) {
-            log.error("Error find all order by created", e);
+            log.error("Error stream all order by created", e);
         }
-        return Collections.emptyList();
+        return Stream.empty();
     }
 
-    private Collection<Post> findAllPost(String whereJpql, Map<String, Object> parameters) {
-        String jpql = """
+    @Override
+    public Page<Post> findPageOrderByCreated(Cursor after, int limit) {
+        try {
+            String jpql = """
+                    select p.id from Post p
+                    %s
+                    order by p.created desc, p.id desc""".formatted(after == null ? "" : """
+                    where p.created <= :created
+                    and (p.created < :created or p.id < :id)""");
+            List<Post> posts = crudRepository.readOnly(session -> {
+                Query<Integer> query = feedQuery(session, jpql, Integer.class).setMaxResults(limit + 1);
+                if (after != null) {
+                    query.setParameter("created", after.created()).setParameter("id", after.id());
+                }
+                return loadPosts(session, query.list());
+            });
+            return Page.of(posts, limit, post -> Cursor.of(post.getCreated(), post.getId()));
+        } catch (Exception e) {
+            log.error("Error find page order by created after {}", after, e);
+        }
+        return Page.empty();
+    }
+
+    /**
+     * Страница карточек ленты. Карточки собираются конструктором в запросе,
+     * сущности не загружаются и не попадают в контекст сессии.
+     *
+     * @param after курсор последней карточки предыдущей страницы, null для первой страницы.
+     * @param limit размер страницы.
+     * @return страница карточек, новые первыми.
+     */
+    @Override
+    public Page<PostCard> findCardPageOrderByCreated(Cursor after, int limit) {
+        try {
+            String jpql = """
+                    select new ru.job4j.cars.dto.PostCard(
+                        p.id, substring(p.description, 1, 200), p.created, u.login, c.name, e.name,
+                        (select coalesce(f.thumbnailPath, f.path) from PostPhoto ph join ph.photo f
+                         where ph.post.id = p.id
+                         order by ph.sort, ph.id
+                         limit 1)
+                    )
+                    from Post p
+                    join p.user u
+                    left join p.car c
+                    left join c.engine e
+                    %s
+                    order by p.created desc, p.id desc""".formatted(after == null ? "" : """
+                    where p.created <= :created
+                    and (p.created < :created or p.id < :id)""");
+            List<PostCard> cards = crudRepository.query(
+                    jpql,
+                    PostCard.class,
+                    after == null ? Map.of() : Map.of("created", after.created(), "id", after.id()),
+                    limit + 1
+            );
+            return Page.of(cards, limit, card -> Cursor.of(card.created(), card.id()));
+        } catch (Exception e) {
+            log.error("Error find card page order by created after {}", after, e);
+        }
+        return Page.empty();
+    }
+
+    /**
+     * Объявления ленты в порядке ids. Связи загружаются отдельными запросами
+     * вместо одного fetch join, иначе каждое фото повторяет строку объявления:
+     * объявление с пользователем, автомобилем и двигателем, затем фото всех
+     * объявлений одним запросом по post.id in :ids.
+     *
+     * @param session сессия.
+     * @param ids упорядоченные id объявлений.
+     * @return объявления с фото в порядке ids.
+     */
+    private List<Post> loadPosts(Session session, List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Post> posts = feedQuery(session, """
                 select p from Post p
                 left join fetch p.user
                 left join fetch p.car c
                 left join fetch c.engine
-                left join fetch p.photos phs
-                left join fetch phs.photo ph
-                where %s
-                order by p.created desc""".formatted(whereJpql);
-        return crudRepository.query(jpql, Post.class, parameters);
+                where p.id in :ids""", Post.class)
+                .setParameter("ids", ids)
+                .stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        Map<Integer, Set<PostPhoto>> photos = feedQuery(session, """
+                select ph from PostPhoto ph
+                join fetch ph.photo
+                where ph.post.id in :ids""", PostPhoto.class)
+                .setParameter("ids", ids)
+                .stream()
+                .collect(Collectors.groupingBy(photo -> photo.getPost().getId(), Collectors.toSet()));
+        List<Post> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Post post = posts.get(id);
+            if (post != null) {
+                post.setPhotos(photos.getOrDefault(id, new HashSet<>()));
+                result.add(post);
+            }
+        }
+        return result;
+    }
+
+    private static <T> Query<T> feedQuery(Session session, String jpql, Class<T> cl) {
+        return session.createQuery(jpql, cl)
+                .setCacheable(true)
+                .setCacheRegion(FEED_CACHE_REGION);
+    }
+
+    /**
+     * Объявления со всеми связями, новые первыми. Запросы ленты в кэше FEED_CACHE_REGION,
+     * ключ кэша: текст запроса и параметры, поэтому параметры нормализуются заранее.
+     *
+     * @param whereJpql условие без where, пустая строка без условия.
+     * @param parameters параметры условия.
+     * @return объявления, новые первыми.
+     */
+    private Collection<Post> findAllPost(String whereJpql, Map<String, Object> parameters) {
+        String jpql = """
+                select p.id from Post p
+                left join p.car c
+                %s
+                order by p.created desc, p.id desc""".formatted(whereJpql.isEmpty() ? "" : "where " + whereJpql);
+        return crudRepository.readOnly(session -> {
+            Query<Integer> query = feedQuery(session, jpql, Integer.class);
+            for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+                query.setParameter(parameter.getKey(), parameter.getValue());
+            }
+            return loadPosts(session, query.list());
+        });
     }
 
     @Override
@@ -105,19 +277,26 @@ public class HibernatePostRepository implements PostRepository {
     @Override
     public Collection<Post> findAllWherePhotoIsNotNull() {
         try {
-            return findAllPost("size ( phs ) > 0", Map.of());
+            return findAllPost("size(p.photos) > 0", Map.of());
         } catch (Exception e) {
             log.error("Error find all where photo is not null", e);
         }
         return Collections.emptyList();
     }
 
+    /**
+     * Объявления, название автомобиля которых содержит строку без учета регистра.
+     * Строка обрезается по краям, символы %, _ и ! в ней ищутся как есть.
+     *
+     * @param name часть названия автомобиля.
+     * @return объявления, новые первыми.
+     */
     @Override
     public Collection<Post> findAllByCarNameLike(String name) {
         try {
             return findAllPost(
-                    "lower(c.name) like lower(:name)",
-                    Map.of("name", "%" + name + "%")
+                    "lower(c.name) like :name escape '!'",
+                    Map.of("name", SearchMode.SUBSTRING.pattern(SearchMode.escape(name.strip().toLowerCase(Locale.ROOT))))
             );
         } catch (Exception e) {
             log.error("Error find all by car name", e);
@@ -125,6 +304,42 @@ public class HibernatePostRepository implements PostRepository {
         return Collections.emptyList();
     }
 
+    /**
+     * Поиск объявлений по названию автомобиля с ранжированием:
+     * точное совпадение, затем начало названия, затем вхождение, внутри ранга новые первыми.
+     * На PostgreSQL условие lower(c.name) like использует GIN индекс pg_trgm car_name_trgm_idx.
+     *
+     * @param term строка поиска.
+     * @param mode режим поиска.
+     * @param limit максимальное число объявлений.
+     * @return объявления по рангу.
+     */
+    @Override
+    public List<Post> searchByCarName(String term, SearchMode mode, int limit) {
+        try {
+            String normalized = term.strip().toLowerCase(Locale.ROOT);
+            String escaped = SearchMode.escape(normalized);
+            String jpql = """
+                    select p.id from Post p
+                    join p.car c
+                    where lower(c.name) like :pattern escape '!'
+                    order by case
+                        when lower(c.name) = :term then 0
+                        when lower(c.name) like :prefix escape '!' then 1
+                        else 2
+                    end, p.created desc, p.id desc""";
+            return crudRepository.readOnly(session -> loadPosts(session, feedQuery(session, jpql, Integer.class)
+                    .setParameter("pattern", mode.pattern(escaped))
+                    .setParameter("term", normalized)
+                    .setParameter("prefix", SearchMode.PREFIX.pattern(escaped))
+                    .setMaxResults(limit)
+                    .list()));
+        } catch (Exception e) {
+            log.error("Error search by car name {} {}", mode, term, e);
+        }
+        return Collections.emptyList();
+    }
+
     @Override
     public void delete(int id) {
         try {
@@ -132,6 +347,7 @@ public class HibernatePostRepository implements PostRepository {
                     "delete from Post where id = :id",
                     Map.of("id", id)
             );
+            crudRepository.evict(PostPhoto.class);
         } catch (Exception e) {
             log.error("Error delete Post where id = {}", id, e);
         }
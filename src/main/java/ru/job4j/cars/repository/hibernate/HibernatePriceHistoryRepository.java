@@ -2,14 +2,23 @@ package ru.job4j.cars.repository.hibernate;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StatelessSession;
 import org.springframework.stereotype.Repository;
+import ru.job4j.cars.dto.PriceStats;
 import ru.job4j.cars.model.PriceHistory;
+import ru.job4j.cars.repository.Cursor;
+import ru.job4j.cars.repository.Page;
 import ru.job4j.cars.repository.PriceHistoryRepository;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 @AllArgsConstructor
@@ -20,13 +29,36 @@ public class HibernatePriceHistoryRepository implements PriceHistoryRepository {
     @Override
     public PriceHistory create(PriceHistory priceHistory) {
         try {
-            crudRepository.run(session -> session.persist(priceHistory));
+            crudRepository.run(session -> {
+                session.persist(priceHistory);
+                PostFeeds.refresh(session, List.of(priceHistory.getPost().getId()));
+            });
         } catch (Exception e) {
             log.error("Error create price history", e);
         }
         return priceHistory;
     }
 
+    @Override
+    public Collection<PriceHistory> createAll(Iterable<PriceHistory> priceHistories) {
+        List<PriceHistory> created = new ArrayList<>();
+        try {
+            crudRepository.bulk(priceHistories, CrudRepository.DEFAULT_CHUNK_SIZE, StatelessSession::insert, chunk -> {
+                if (chunk.isSuccess()) {
+                    created.addAll(chunk.entities());
+                    log.debug("Created chunk {} of {} price histories", chunk.number(), chunk.size());
+                } else {
+                    log.error("Error create chunk {} of {} price histories", chunk.number(), chunk.size(), chunk.error());
+                }
+            });
+            PostFeeds.refresh(crudRepository,
+                    created.stream().map(priceHistory -> priceHistory.getPost().getId()).toList());
+        } catch (Exception e) {
+            log.error("Error create all price histories", e);
+        }
+        return created;
+    }
+
     @Override
     public Collection<PriceHistory> findAll() {
         try {
@@ -37,6 +69,39 @@ public class HibernatePriceHistoryRepository implements PriceHistoryRepository {
         return Collections.emptyList();
     }
 
+    @Override
+    public Page<PriceHistory> findPageOrderById(Cursor after, int limit) {
+        try {
+            List<PriceHistory> rows = crudRepository.query(
+                    "from PriceHistory where id > :id order by id",
+                    PriceHistory.class,
+                    Map.of("id", after == null ? 0 : after.id()),
+                    limit + 1
+            );
+            return Page.of(rows, limit, priceHistory -> Cursor.of(priceHistory.getId()));
+        } catch (Exception e) {
+            log.error("Error find page price history after {}", after, e);
+        }
+        return Page.empty();
+    }
+
+    @Override
+    public Stream<PriceHistory> streamAll() {
+        try {
+            String jpql = """
+                    select ph from PriceHistory ph
+                    left join fetch ph.post p
+                    left join fetch p.user
+                    left join fetch p.car c
+                    left join fetch c.engine
+                    order by ph.id""";
+            return crudRepository.stream(jpql, PriceHistory.class, Map.of(), CrudRepository.DEFAULT_FETCH_SIZE);
+        } catch (Exception e) {
+            log.error("Error stream all price history", e);
+        }
+        return Stream.empty();
+    }
+
     @Override
     public Optional<PriceHistory> findById(int id) {
         try {
@@ -51,10 +116,114 @@ public class HibernatePriceHistoryRepository implements PriceHistoryRepository {
         return Optional.empty();
     }
 
+    /**
+     * Цена объявления на момент времени: цена после последнего изменения не позже at.
+     * Один шаг по индексу price_history (auto_post_id, created) в обратном порядке.
+     *
+     * @param postId id объявления.
+     * @param at момент времени.
+     * @return цена или Optional.empty(), если до at цена не менялась.
+     */
+    @Override
+    public Optional<Long> findPriceAt(int postId, LocalDateTime at) {
+        try {
+            return crudRepository.query("""
+                            select ph.after from PriceHistory ph
+                            where ph.post.id = :postId and ph.created <= :at
+                            order by ph.created desc, ph.id desc""",
+                    Long.class,
+                    Map.of("postId", postId, "at", at),
+                    1
+            ).stream().findFirst();
+        } catch (Exception e) {
+            log.error("Error find price at {} of post {}", at, postId, e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Последние цены объявлений одним запросом. Для каждого объявления коррелированный
+     * подзапрос с limit 1 читает одну строку индекса, как lateral join,
+     * поэтому время не зависит от длины истории.
+     *
+     * @param postIds id объявлений.
+     * @return цена по id объявления, объявления без истории цен отсутствуют.
+     */
+    @Override
+    public Map<Integer, Long> findLatestPrices(Collection<Integer> postIds) {
+        if (postIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            List<Object[]> rows = crudRepository.query("""
+                            select p.id,
+                                (select ph.after from PriceHistory ph
+                                 where ph.post.id = p.id
+                                 order by ph.created desc, ph.id desc
+                                 limit 1)
+                            from Post p
+                            where p.id in :ids""",
+                    Object[].class,
+                    Map.of("ids", postIds)
+            );
+            Map<Integer, Long> prices = new HashMap<>();
+            for (Object[] row : rows) {
+                if (row[1] != null) {
+                    prices.put((Integer) row[0], (Long) row[1]);
+                }
+            }
+            return prices;
+        } catch (Exception e) {
+            log.error("Error find latest prices of posts {}", postIds, e);
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Сводка изменений цены за период [from, to] одним запросом: агрегаты
+     * по диапазону индекса, первая и последняя цены подзапросами с limit 1.
+     *
+     * @param postId id объявления.
+     * @param from начало периода.
+     * @param to конец периода.
+     * @return сводка или Optional.empty(), если за период цена не менялась.
+     */
+    @Override
+    public Optional<PriceStats> findStats(int postId, LocalDateTime from, LocalDateTime to) {
+        try {
+            String jpql = """
+                    select new ru.job4j.cars.dto.PriceStats(
+                        ph.post.id, count(ph), min(ph.after), max(ph.after),
+                        (select f.after from PriceHistory f
+                         where f.post.id = :postId and f.created between :from and :to
+                         order by f.created, f.id
+                         limit 1),
+                        (select l.after from PriceHistory l
+                         where l.post.id = :postId and l.created between :from and :to
+                         order by l.created desc, l.id desc
+                         limit 1)
+                    )
+                    from PriceHistory ph
+                    where ph.post.id = :postId and ph.created between :from and :to
+                    group by ph.post.id""";
+            return crudRepository.optional(
+                    jpql,
+                    PriceStats.class,
+                    Map.of("postId", postId, "from", from, "to", to)
+            );
+        } catch (Exception e) {
+            log.error("Error find price stats of post {} from {} to {}", postId, from, to, e);
+        }
+        return Optional.empty();
+    }
+
     @Override
     public void update(PriceHistory priceHistory) {
         try {
-            crudRepository.run(session -> session.merge(priceHistory));
+            crudRepository.run(session -> {
+                session.merge(priceHistory);
+                PostFeeds.refresh(session, List.of(priceHistory.getPost().getId()));
+            });
         } catch (Exception e) {
             log.error("Error update price history where id = {}", priceHistory.getId(), e);
         }
@@ -63,10 +232,16 @@ public class HibernatePriceHistoryRepository implements PriceHistoryRepository {
     @Override
     public void delete(int id) {
         try {
-            crudRepository.run(
-                    "delete from PriceHistory where id = :id",
-                    Map.of("id", id)
-            );
+            crudRepository.run(session -> {
+                List<Integer> postIds = session.createQuery(
+                                "select ph.post.id from PriceHistory ph where ph.id = :id", Integer.class)
+                        .setParameter("id", id)
+                        .list();
+                session.createMutationQuery("delete from PriceHistory where id = :id")
+                        .setParameter("id", id)
+                        .executeUpdate();
+                PostFeeds.refresh(session, postIds);
+            });
         } catch (Exception e) {
             log.error("Error delete price history where id = {}", id, e);
         }
@@ -3,6 +3,8 @@ package ru.job4j.cars.repository.hibernate;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.User;
+import ru.job4j.cars.repository.Cursor;
+import ru.job4j.cars.repository.Page;
 import ru.job4j.cars.repository.UserRepository;
 
 import java.util.List;
@@ -33,7 +35,10 @@ public class HibernateUserRepository implements UserRepository {
      */
     @Override
     public void update(User user) {
-        crudRepository.run(session -> session.merge(user));
+        crudRepository.run(session -> {
+            User merged = session.merge(user);
+            PostFeeds.refreshUser(session, merged.getId());
+        });
     }
 
     /**
@@ -59,6 +64,24 @@ public class HibernateUserRepository implements UserRepository {
         return crudRepository.query("from User order by id asc", User.class);
     }
 
+    /**
+     * Страница пользователей, отсортированных по id.
+     *
+     * @param after курсор последнего пользователя предыдущей страницы, null для первой страницы.
+     * @param limit размер страницы.
+     * @return страница пользователей.
+     */
+    @Override
+    public Page<User> findPageOrderById(Cursor after, int limit) {
+        List<User> users = crudRepository.query(
+                "from User where id > :id order by id asc",
+                User.class,
+                Map.of("id", after == null ? 0 : after.id()),
+                limit + 1
+        );
+        return Page.of(users, limit, user -> Cursor.of(user.getId()));
+    }
+
     /**
      * Найти пользователя по id.
      *
@@ -67,11 +90,7 @@ public class HibernateUserRepository implements UserRepository {
      */
     @Override
     public Optional<User> findById(int userId) {
-        return crudRepository.optional(
-                "from User where id = :id",
-                User.class,
-                Map.of("id", userId)
-        );
+        return crudRepository.get(User.class, userId);
     }
 
     /**
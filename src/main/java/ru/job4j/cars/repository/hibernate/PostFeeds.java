@@ -0,0 +1,140 @@
+package ru.job4j.cars.repository.hibernate;
+
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.MutationQuery;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Обновление денормализованной ленты post_feed в транзакции записи.
+ * Строка объявления пересобирается целиком: delete и insert ... select
+ * по auto_post, auto_user, car, engine, price_history, auto_post_photo и file.
+ * Запросы синхронизированы только с post_feed, поэтому кэш второго уровня
+ * остальных сущностей не сбрасывается.
+ */
+final class PostFeeds {
+    static final String TABLE = "post_feed";
+
+    private static final String INSERT = """
+            insert into post_feed (post_id, created, excerpt, seller_login, car_name, engine_name,
+                                   price, photo_count, cover_path)
+            select p.id, p.created, substring(p.description, 1, 200), u.login, c.name, e.name,
+                (select ph.after from price_history ph
+                 where ph.auto_post_id = p.id
+                 order by ph.created desc, ph.id desc
+                 limit 1),
+                (select count(*) from auto_post_photo pp where pp.auto_post_id = p.id),
+                (select coalesce(f.thumbnail_path, f.path) from auto_post_photo pp join file f on f.id = pp.file_id
+                 where pp.auto_post_id = p.id
+                 order by pp.sort, pp.id
+                 limit 1)
+            from auto_post p
+            join auto_user u on u.id = p.auto_user_id
+            left join car c on c.id = p.car_id
+            left join engine e on e.id = c.engine_id
+            """;
+
+    private PostFeeds() {
+    }
+
+    /**
+     * Пересобрать строки объявлений.
+     *
+     * @param session сессия транзакции записи.
+     * @param postIds id объявлений.
+     */
+    static void refresh(Session session, Collection<Integer> postIds) {
+        if (postIds.isEmpty()) {
+            return;
+        }
+        session.flush();
+        List<Integer> ids = List.copyOf(postIds);
+        mutation(session, "delete from post_feed where post_id in (:ids)")
+                .setParameterList("ids", ids)
+                .executeUpdate();
+        mutation(session, INSERT + "where p.id in (:ids)")
+                .setParameterList("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Пересобрать строки объявлений после пакетной записи через StatelessSession:
+     * отдельная транзакция на каждые CrudRepository.DEFAULT_CHUNK_SIZE объявлений.
+     *
+     * @param crudRepository репозиторий.
+     * @param postIds id объявлений.
+     */
+    static void refresh(CrudRepository crudRepository, Collection<Integer> postIds) {
+        List<Integer> ids = postIds.stream().distinct().toList();
+        for (int from = 0; from < ids.size(); from += CrudRepository.DEFAULT_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + CrudRepository.DEFAULT_CHUNK_SIZE, ids.size()));
+            crudRepository.run(session -> refresh(session, chunk));
+        }
+    }
+
+    /**
+     * Пересобрать строки объявлений автомобиля.
+     *
+     * @param session сессия транзакции записи.
+     * @param carId id автомобиля.
+     */
+    static void refreshCar(Session session, int carId) {
+        refreshWhere(session, "p.car_id = :id", carId);
+    }
+
+    /**
+     * Пересобрать строки объявлений продавца, например после смены логина.
+     *
+     * @param session сессия транзакции записи.
+     * @param userId id пользователя.
+     */
+    static void refreshUser(Session session, int userId) {
+        refreshWhere(session, "p.auto_user_id = :id", userId);
+    }
+
+    /**
+     * Пересобрать строки объявлений автомобилей с двигателем.
+     *
+     * @param session сессия транзакции записи.
+     * @param engineId id двигателя.
+     */
+    static void refreshEngine(Session session, int engineId) {
+        refreshWhere(session, "c.engine_id = :id", engineId);
+    }
+
+    /**
+     * Пересобрать ленту целиком, для восстановления после записи в обход репозиториев.
+     *
+     * @param session сессия транзакции записи.
+     * @return число строк ленты.
+     */
+    static int rebuild(Session session) {
+        session.flush();
+        mutation(session, "delete from post_feed").executeUpdate();
+        return mutation(session, INSERT).executeUpdate();
+    }
+
+    /**
+     * @param condition условие по auto_post p и car c с параметром :id.
+     */
+    private static void refreshWhere(Session session, String condition, int id) {
+        session.flush();
+        mutation(session, "delete from post_feed where post_id in "
+                + "(select p.id from auto_post p left join car c on c.id = p.car_id where " + condition + ")")
+                .setParameter("id", id)
+                .executeUpdate();
+        mutation(session, INSERT + "where " + condition)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /**
+     * Запрос записи, синхронизированный только с post_feed.
+     */
+    private static MutationQuery mutation(Session session, String sql) {
+        return session.createNativeMutationQuery(sql)
+                .setHint(HibernateHints.HINT_NATIVE_SPACES, TABLE);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.job4j.cars.repository.metrics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Actuator endpoint hibernate: статистика запросов, сущностей
+ * и регионов кэша второго уровня, включая регионы кэша запросов. reset сбрасывает накопленную статистику.
+ * Открыт только через JMX, не по HTTP.
+ */
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+    private final Statistics statistics;
+
+    public HibernateStatisticsEndpoint(SessionFactory sessionFactory) {
+        this.statistics = sessionFactory.getStatistics();
+    }
+
+    @ReadOperation
+    public Report report() {
+        return new Report(
+                statistics.isStatisticsEnabled(),
+                statistics.getStart(),
+                statistics.getQueryExecutionCount(),
+                statistics.getQueryExecutionMaxTime(),
+                statistics.getQueryExecutionMaxTimeQueryString(),
+                queries(),
+                entities(),
+                caches(),
+                new QueryCache(
+                        statistics.getQueryCacheHitCount(),
+                        statistics.getQueryCacheMissCount(),
+                        statistics.getQueryCachePutCount()
+                )
+        );
+    }
+
+    @DeleteOperation
+    public void reset() {
+        statistics.clear();
+    }
+
+    private List<Query> queries() {
+        return Arrays.stream(statistics.getQueries())
+                .map(query -> Query.of(query, statistics.getQueryStatistics(query)))
+                .sorted(Comparator.comparingLong(Query::totalMillis).reversed())
+                .toList();
+    }
+
+    private List<Entity> entities() {
+        return Arrays.stream(statistics.getEntityNames())
+                .map(name -> Entity.of(name, statistics.getEntityStatistics(name)))
+                .toList();
+    }
+
+    private List<CacheRegion> caches() {
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .filter(region -> statistics.getCacheRegionStatistics(region) != null)
+                .map(region -> CacheRegion.of(region, statistics.getCacheRegionStatistics(region)))
+                .toList();
+    }
+
+    public record Report(boolean enabled, Instant start, long queryCount, long queryMaxMillis,
+                         String slowestQuery, List<Query> queries, List<Entity> entities,
+                         List<CacheRegion> cacheRegions, QueryCache queryCache) {
+    }
+
+    public record Query(String query, long count, long totalMillis, long avgMillis, long maxMillis,
+                        long minMillis, long rows, long cacheHits, long cacheMisses) {
+        static Query of(String query, QueryStatistics stats) {
+            return new Query(query, stats.getExecutionCount(), stats.getExecutionTotalTime(),
+                    stats.getExecutionAvgTime(), stats.getExecutionMaxTime(), stats.getExecutionMinTime(),
+                    stats.getExecutionRowCount(), stats.getCacheHitCount(), stats.getCacheMissCount());
+        }
+    }
+
+    public record Entity(String name, long loads, long fetches, long inserts, long updates, long deletes,
+                         long cacheHits, long cacheMisses) {
+        static Entity of(String name, EntityStatistics stats) {
+            return new Entity(name, stats.getLoadCount(), stats.getFetchCount(), stats.getInsertCount(),
+                    stats.getUpdateCount(), stats.getDeleteCount(),
+                    stats.getCacheHitCount(), stats.getCacheMissCount());
+        }
+    }
+
+    public record CacheRegion(String region, long hits, long misses, long puts, long elementsInMemory) {
+        static CacheRegion of(String region, CacheRegionStatistics stats) {
+            return new CacheRegion(region, stats.getHitCount(), stats.getMissCount(), stats.getPutCount(),
+                    stats.getElementCountInMemory());
+        }
+    }
+
+    public record QueryCache(long hits, long misses, long puts) {
+    }
+}
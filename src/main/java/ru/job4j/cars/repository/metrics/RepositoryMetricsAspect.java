@@ -0,0 +1,121 @@
+package ru.job4j.cars.repository.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+import ru.job4j.cars.repository.Page;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики репозиториев:
+ * repository.operation - время метода Hibernate*Repository, теги repository и method;
+ * repository.result.size - размер результата (коллекция, страница, Optional);
+ * crud.repository.operation - время метода CrudRepository, тег method;
+ * repository.errors - исключения CrudRepository с тегами вызвавшего метода репозитория,
+ * репозитории сами перехватывают исключения, поэтому ошибки считаются на уровне CrudRepository.
+ * Метры создаются один раз на метод, запись на горячем пути без выделения памяти.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+    private static final ThreadLocal<Operation> CURRENT = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+    private final Map<Method, Operation> operations = new ConcurrentHashMap<>();
+    private final Map<Method, Timer> crudTimers = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * ru.job4j.cars.repository.hibernate.Hibernate*Repository.*(..))")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        Operation operation = operations.computeIfAbsent(method(joinPoint), this::operation);
+        Operation outer = CURRENT.get();
+        CURRENT.set(operation);
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            operation.recordSize(result);
+            return result;
+        } finally {
+            operation.timer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+    }
+
+    @Around("execution(public * ru.job4j.cars.repository.hibernate.CrudRepository.*(..))")
+    public Object crudRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer timer = crudTimers.computeIfAbsent(method(joinPoint), method -> timer("crud.repository.operation")
+                .tag("method", method.getName())
+                .register(registry));
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            Operation operation = CURRENT.get();
+            registry.counter("repository.errors",
+                    "repository", operation == null ? "none" : operation.repository(),
+                    "method", operation == null ? "none" : operation.method(),
+                    "exception", e.getClass().getSimpleName()
+            ).increment();
+            throw e;
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Method method(ProceedingJoinPoint joinPoint) {
+        return ((MethodSignature) joinPoint.getSignature()).getMethod();
+    }
+
+    private static Timer.Builder timer(String name) {
+        return Timer.builder(name)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram();
+    }
+
+    private Operation operation(Method method) {
+        String repository = method.getDeclaringClass().getSimpleName();
+        String name = method.getName();
+        return new Operation(
+                repository,
+                name,
+                timer("repository.operation")
+                        .tags("repository", repository, "method", name)
+                        .register(registry),
+                DistributionSummary.builder("repository.result.size")
+                        .tags("repository", repository, "method", name)
+                        .publishPercentiles(PERCENTILES)
+                        .register(registry)
+        );
+    }
+
+    private record Operation(String repository, String method, Timer timer, DistributionSummary sizes) {
+        void recordSize(Object result) {
+            if (result instanceof Collection<?> collection) {
+                sizes.record(collection.size());
+            } else if (result instanceof Page<?> page) {
+                sizes.record(page.items().size());
+            } else if (result instanceof Optional<?> optional) {
+                sizes.record(optional.isPresent() ? 1 : 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.job4j.cars.repository.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Статистика Hibernate с журналом медленных запросов.
+ * Запрос дольше порога попадает в журнал одной строкой key=value
+ * с вероятностью sampleRate, чтобы поток медленных запросов не забил журнал.
+ */
+@Slf4j
+public class SlowQueryStatistics extends StatisticsImpl {
+    private final long thresholdMillis;
+    private final double sampleRate;
+
+    public SlowQueryStatistics(SessionFactoryImplementor sessionFactory, long thresholdMillis, double sampleRate) {
+        super(sessionFactory);
+        this.thresholdMillis = thresholdMillis;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void queryExecuted(String hql, int rows, long time) {
+        super.queryExecuted(hql, rows, time);
+        if (isSlow(time) && log.isWarnEnabled()) {
+            log.warn("slow_query time_ms={} rows={} threshold_ms={} query=\"{}\"",
+                    time, rows, thresholdMillis, hql);
+        }
+    }
+
+    boolean isSlow(long time) {
+        return time >= thresholdMillis
+                && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+}
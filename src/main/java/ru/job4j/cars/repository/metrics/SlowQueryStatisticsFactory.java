@@ -0,0 +1,32 @@
+package ru.job4j.cars.repository.metrics;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+
+import java.util.Map;
+
+/**
+ * Подключается в hibernate.cfg.xml через hibernate.stats.factory.
+ * Порог и доля журналируемых медленных запросов берутся из настроек фабрики сессий.
+ */
+public class SlowQueryStatisticsFactory implements StatisticsFactory {
+    public static final String THRESHOLD_MS = "cars.slow_query.threshold_ms";
+    public static final String SAMPLE_RATE = "cars.slow_query.sample_rate";
+    private static final long DEFAULT_THRESHOLD_MS = 200;
+    private static final double DEFAULT_SAMPLE_RATE = 1.0;
+
+    @Override
+    public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+        Map<String, Object> properties = sessionFactory.getProperties();
+        return new SlowQueryStatistics(
+                sessionFactory,
+                Long.parseLong(setting(properties, THRESHOLD_MS, DEFAULT_THRESHOLD_MS)),
+                Double.parseDouble(setting(properties, SAMPLE_RATE, DEFAULT_SAMPLE_RATE))
+        );
+    }
+
+    private static String setting(Map<String, Object> properties, String name, Object defaultValue) {
+        return String.valueOf(properties.getOrDefault(name, defaultValue)).strip();
+    }
+}
@@ -0,0 +1,41 @@
+package ru.job4j.cars;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "datasource.jdbc-url=jdbc:h2:./testdb;MODE=PostgreSQL;CASE_INSENSITIVE_IDENTIFIERS=TRUE;",
+        "datasource.driver-class-name=org.h2.Driver",
+        "datasource.username=",
+        "datasource.password=",
+        "photo.root=target/app-test-photos",
+        "spring.jmx.enabled=true"
+})
+@AutoConfigureObservability
+class AppTest {
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void whenContextStartsThenReadEndpointsOverHttpAndOperationsOverJmxOnly() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        assertThat(restTemplate.getForEntity("/actuator/prometheus", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.postForEntity("/actuator/postfeed", null, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(server.isRegistered(new ObjectName("org.springframework.boot:type=Endpoint,name=Postfeed")))
+                .isTrue();
+        assertThat(server.isRegistered(new ObjectName("com.zaxxer.hikari:type=Pool (cars-pool)"))).isTrue();
+    }
+}
@@ -0,0 +1,29 @@
+package ru.job4j.cars.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+import ru.job4j.cars.repository.metrics.SlowQueryStatistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionFactoryConfigTest {
+    @Test
+    void whenSessionFactoryOnPoolThenQueriesUsePoolConnections() {
+        SessionFactoryConfig config = new SessionFactoryConfig();
+        try (HikariDataSource dataSource = config.dataSource()) {
+            dataSource.setJdbcUrl("jdbc:h2:./testdb;MODE=PostgreSQL;CASE_INSENSITIVE_IDENTIFIERS=TRUE;");
+            dataSource.setMaximumPoolSize(2);
+            try (SessionFactory sessionFactory = config.sessionFactory(dataSource, 300, 0.5)) {
+                Long engines = new CrudRepository(sessionFactory).readOnly(session ->
+                        session.createQuery("select count(e) from Engine e", Long.class).uniqueResult());
+
+                assertThat(engines).isNotNegative();
+                assertThat(dataSource.getHikariPoolMXBean().getTotalConnections()).isPositive();
+                assertThat(sessionFactory.getStatistics()).isInstanceOfSatisfying(SlowQueryStatistics.class,
+                        statistics -> assertThat(statistics.getThresholdMillis()).isEqualTo(300));
+            }
+        }
+    }
+}
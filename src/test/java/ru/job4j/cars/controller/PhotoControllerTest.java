@@ -0,0 +1,122 @@
+package ru.job4j.cars.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.job4j.cars.model.File;
+import ru.job4j.cars.photo.PhotoStore;
+import ru.job4j.cars.repository.FileRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class PhotoControllerTest {
+    @TempDir
+    Path root;
+    private MockMvc mockMvc;
+    private byte[] bytes;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        bytes = new byte[100];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        Files.createDirectories(root.resolve("a"));
+        Files.write(root.resolve("a/photo.jpg"), bytes);
+        FileRepository fileRepository = mock(FileRepository.class);
+        when(fileRepository.findById(anyInt())).thenReturn(Optional.empty());
+        when(fileRepository.findById(1)).thenReturn(Optional.of(new File(1, "photo.jpg", "a/photo.jpg")));
+        when(fileRepository.findById(2)).thenReturn(Optional.of(new File(2, "secret.jpg", "../secret.jpg")));
+        Files.write(root.resolve("a/photo.thumb.jpg"), Arrays.copyOf(bytes, 10));
+        when(fileRepository.findById(4)).thenReturn(Optional.of(File.builder()
+                .id(4).name("photo.jpg").path("a/photo.jpg").thumbnailPath("a/photo.thumb.jpg").build()));
+        mockMvc = MockMvcBuilders.standaloneSetup(new PhotoController(fileRepository, new PhotoStore(root)))
+                .build();
+    }
+
+    @Test
+    void whenGetPhotoThenFullBodyWithCacheHeaders() throws Exception {
+        MvcResult result = mockMvc.perform(get("/photos/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, PhotoController.CACHE_CONTROL))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100))
+                .andExpect(content().contentType("image/jpeg"))
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(bytes);
+    }
+
+    @Test
+    void whenGetWithRangeThenPartialContent() throws Exception {
+        MvcResult result = mockMvc.perform(get("/photos/1").header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/100"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(bytes, 10, 20));
+    }
+
+    @Test
+    void whenIfRangeNotMatchThenFullBody() throws Exception {
+        mockMvc.perform(get("/photos/1")
+                        .header(HttpHeaders.RANGE, "bytes=10-19")
+                        .header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100));
+    }
+
+    @Test
+    void whenRangeNotSatisfiableThen416() throws Exception {
+        mockMvc.perform(get("/photos/1").header(HttpHeaders.RANGE, "bytes=100-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */100"));
+    }
+
+    @Test
+    void whenEtagMatchThenNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/photos/1")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        MvcResult result = mockMvc.perform(get("/photos/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void whenFileMissingOrOutsideRootThenNotFound() throws Exception {
+        mockMvc.perform(get("/photos/3")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/photos/2")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenGetVariantThenVariantOrOriginalUntilVariantExists() throws Exception {
+        mockMvc.perform(get("/photos/4").param("variant", "thumbnail"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, PhotoController.CACHE_CONTROL));
+        mockMvc.perform(get("/photos/4").param("variant", "medium"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, PhotoController.FALLBACK_CACHE_CONTROL));
+        mockMvc.perform(get("/photos/4").param("variant", "huge"))
+                .andExpect(status().isBadRequest());
+    }
+}
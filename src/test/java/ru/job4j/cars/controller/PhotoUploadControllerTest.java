@@ -0,0 +1,250 @@
+package ru.job4j.cars.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.job4j.cars.model.File;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.photo.PhotoService;
+import ru.job4j.cars.photo.PhotoStore;
+import ru.job4j.cars.photo.PhotoVariantGenerator;
+import ru.job4j.cars.repository.FileRepository;
+import ru.job4j.cars.repository.PostPhotoRepository;
+import ru.job4j.cars.repository.PostRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class PhotoUploadControllerTest {
+    private static final String BOUNDARY = "upload-boundary-7MA4YWxkTrZu0gW";
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F'};
+
+    @TempDir
+    Path root;
+    private MockMvc mockMvc;
+    private PhotoStore photoStore;
+    private PhotoService photoService;
+    private FileRepository fileRepository;
+    private PostPhotoRepository postPhotoRepository;
+
+    @BeforeEach
+    void setUp() {
+        PostRepository postRepository = mock(PostRepository.class);
+        when(postRepository.findById(1)).thenReturn(Optional.of(Post.builder().id(1).build()));
+        fileRepository = mock(FileRepository.class);
+        Map<String, File> files = new ConcurrentHashMap<>();
+        AtomicInteger ids = new AtomicInteger();
+        when(fileRepository.findByHash(any())).thenAnswer(invocation -> Optional.ofNullable(
+                files.get(invocation.<String>getArgument(0))));
+        when(fileRepository.create(any())).thenAnswer(invocation -> {
+            File file = invocation.getArgument(0);
+            file.setId(ids.incrementAndGet());
+            files.put(file.getHash(), file);
+            return file;
+        });
+        when(fileRepository.findById(anyInt())).thenAnswer(invocation -> files.values().stream()
+                .filter(file -> file.getId().equals(invocation.getArgument(0)))
+                .findFirst());
+        postPhotoRepository = mock(PostPhotoRepository.class);
+        Map<Integer, PostPhoto> postPhotos = new ConcurrentHashMap<>();
+        when(postPhotoRepository.create(any())).thenAnswer(invocation -> {
+            PostPhoto postPhoto = invocation.getArgument(0);
+            postPhoto.setId(100 + ids.incrementAndGet());
+            postPhotos.put(postPhoto.getId(), postPhoto);
+            return postPhoto;
+        });
+        when(postPhotoRepository.findById(anyInt())).thenAnswer(invocation -> Optional.ofNullable(
+                postPhotos.get(invocation.<Integer>getArgument(0))));
+        when(postPhotoRepository.findByPostAndFile(anyInt(), anyInt())).thenAnswer(invocation -> postPhotos.values()
+                .stream()
+                .filter(postPhoto -> postPhoto.getPost().getId() == invocation.<Integer>getArgument(0)
+                        && postPhoto.getPhoto().getId().equals(invocation.getArgument(1)))
+                .findFirst());
+        doAnswer(invocation -> postPhotos.remove(invocation.<Integer>getArgument(0)))
+                .when(postPhotoRepository).delete(anyInt());
+        photoStore = new PhotoStore(root);
+        photoService = new PhotoService(fileRepository, postPhotoRepository, photoStore,
+                mock(PhotoVariantGenerator.class), 1, 4);
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new PhotoUploadController(postRepository, photoService, 1000, 3)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        photoService.close();
+    }
+
+    private static byte[] jpeg(int size, int seed) {
+        byte[] bytes = new byte[size];
+        System.arraycopy(JPEG, 0, bytes, 0, JPEG.length);
+        for (int i = JPEG.length; i < size; i++) {
+            bytes[i] = (byte) (i * seed);
+        }
+        return bytes;
+    }
+
+    private static byte[] multipart(Map<String, byte[]> parts) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        parts.forEach((name, bytes) -> {
+            body.writeBytes(("--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"photo\"; filename=\"" + name + "\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            body.writeBytes(bytes);
+            body.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        });
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    private static byte[] multipart(byte[]... parts) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < parts.length; i++) {
+            body.writeBytes(("--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"photo\"; filename=\"photo-" + i + ".jpg\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            body.writeBytes(parts[i]);
+            body.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    private ResultActions upload(String url, byte[] body) throws Exception {
+        return mockMvc.perform(post(url)
+                .contentType("multipart/form-data; boundary=" + BOUNDARY)
+                .content(body));
+    }
+
+    @Test
+    void whenUploadPhotosThenStoredAndAttachedInOrder() throws Exception {
+        byte[] first = jpeg(900, 3);
+
+        upload("/posts/1/photos?sort=5", multipart(first, jpeg(500, 7)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].fileId").value(1))
+                .andExpect(jsonPath("$[1].fileId").value(3));
+
+        verify(postPhotoRepository).create(argThat(postPhoto -> postPhoto.getSort() == 5
+                && postPhoto.getPost().getId() == 1 && postPhoto.getPhoto().getId() == 1));
+        verify(postPhotoRepository).create(argThat(postPhoto -> postPhoto.getSort() == 6
+                && postPhoto.getPhoto().getId() == 3));
+        File file = fileRepository.findByHash(photoStore.put(new ByteArrayInputStream(first)).hash()).orElseThrow();
+        assertThat(Files.readAllBytes(root.resolve(file.getPath()))).isEqualTo(first);
+    }
+
+    @Test
+    void whenUploadSameBytesTwiceThenOneFileAndOnePostPhoto() throws Exception {
+        byte[] photo = jpeg(900, 3);
+
+        upload("/posts/1/photos", multipart(photo, photo))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[0].fileId").value(1))
+                .andExpect(jsonPath("$[1].fileId").value(1))
+                .andExpect(jsonPath("$[0].postPhotoId").value(102))
+                .andExpect(jsonPath("$[1].postPhotoId").value(102));
+
+        verify(fileRepository, times(1)).create(any());
+        verify(postPhotoRepository, times(1)).create(any());
+    }
+
+    @Test
+    void whenUploadAttachedPhotoAgainAndLaterPartFailsThenExistingPhotoKept() throws Exception {
+        byte[] photo = jpeg(900, 3);
+        upload("/posts/1/photos", multipart(photo)).andExpect(status().isCreated());
+        doAnswer(invocation -> invocation.getArgument(0))
+                .when(postPhotoRepository).create(argThat(postPhoto -> postPhoto.getSort() == 1));
+
+        upload("/posts/1/photos", multipart(photo, jpeg(500, 7)))
+                .andExpect(status().isInternalServerError());
+
+        verify(postPhotoRepository, never()).delete(anyInt());
+        assertThat(postPhotoRepository.findById(102)).isPresent();
+        assertThat(Files.exists(root.resolve(fileRepository.findById(1).orElseThrow().getPath()))).isTrue();
+    }
+
+    @Test
+    void whenFileNotCreatedThenServerErrorAndBytesDeleted() throws Exception {
+        byte[] photo = jpeg(900, 3);
+        doAnswer(invocation -> invocation.getArgument(0)).when(fileRepository).create(any());
+
+        upload("/posts/1/photos", multipart(photo))
+                .andExpect(status().isInternalServerError());
+
+        verify(postPhotoRepository, never()).create(any());
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(photo));
+        assertThat(root.resolve(PhotoStore.contentPath(hash))).doesNotExist();
+    }
+
+    @Test
+    void whenUploadTooLargeThenPayloadTooLargeAndNothingCreated() throws Exception {
+        upload("/posts/1/photos", multipart(jpeg(1001, 3)))
+                .andExpect(status().isPayloadTooLarge());
+
+        verify(fileRepository, never()).create(any());
+        verify(postPhotoRepository, never()).create(any());
+    }
+
+    @Test
+    void whenUploadNotPhotoThenUnsupportedMediaTypeAndNothingCreated() throws Exception {
+        upload("/posts/1/photos", multipart("plain text".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isUnsupportedMediaType());
+
+        verify(fileRepository, never()).create(any());
+    }
+
+    @Test
+    void whenUploadMorePartsThanLimitThenBadRequest() throws Exception {
+        upload("/posts/1/photos", multipart(jpeg(20, 1), jpeg(20, 2), jpeg(20, 3), jpeg(20, 4)))
+                .andExpect(status().isBadRequest());
+
+        verify(postPhotoRepository, times(3)).create(any());
+        verify(postPhotoRepository, times(3)).delete(anyInt());
+    }
+
+    @Test
+    void whenAttachFailsThenServerErrorAndEarlierPhotosDetached() throws Exception {
+        doAnswer(invocation -> invocation.getArgument(0))
+                .when(postPhotoRepository).create(argThat(postPhoto -> postPhoto.getSort() == 1));
+
+        upload("/posts/1/photos", multipart(jpeg(900, 3), jpeg(500, 7)))
+                .andExpect(status().isInternalServerError());
+
+        verify(postPhotoRepository).delete(intThat(id -> id > 100));
+        verify(fileRepository).deleteIfUnreferenced(1);
+        verify(fileRepository).deleteIfUnreferenced(3);
+    }
+
+    @Test
+    void whenUploadToMissingPostThenNotFound() throws Exception {
+        upload("/posts/2/photos", multipart(jpeg(900, 3)))
+                .andExpect(status().isNotFound());
+
+        verify(fileRepository, never()).create(any());
+    }
+
+    @Test
+    void whenUploadNotMultipartThenBadRequest() throws Exception {
+        mockMvc.perform(post("/posts/1/photos").contentType("image/jpeg").content(jpeg(900, 3)))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,171 @@
+package ru.job4j.cars.controller;
+
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.DelegatingServletInputStream;
+import org.springframework.mock.web.MockHttpServletRequest;
+import ru.job4j.cars.dto.UploadedPhoto;
+import ru.job4j.cars.model.File;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.photo.PhotoService;
+import ru.job4j.cars.photo.PhotoStore;
+import ru.job4j.cars.photo.PhotoVariantGenerator;
+import ru.job4j.cars.repository.FileRepository;
+import ru.job4j.cars.repository.PostPhotoRepository;
+import ru.job4j.cars.repository.PostRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Загрузка многих больших фото одновременно в маленькой куче.
+ * Запускается отдельным выполнением surefire "heap" с -Xmx${heap.test.xmx}:
+ * суммарный размер загрузок в несколько раз больше кучи, поэтому тест
+ * проходит, только если ни одна загрузка не держит файл в памяти целиком.
+ */
+@Tag("heap")
+class PhotoUploadHeapTest {
+    private static final String BOUNDARY = "heap-boundary-b1f0c3a95e7d4c2a";
+    private static final int UPLOADS = 16;
+    private static final long PHOTO_SIZE = 16L * 1024 * 1024;
+
+    @TempDir
+    Path root;
+
+    /**
+     * Тело multipart с одним фото: JPEG-заголовок и PHOTO_SIZE псевдослучайных байтов,
+     * которые генерируются по мере чтения.
+     */
+    private static InputStream body(int seed) {
+        String head = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"photo\"; filename=\"photo-" + seed + ".jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n";
+        String tail = "\r\n--" + BOUNDARY + "--\r\n";
+        return new SequenceInputStream(new SequenceInputStream(
+                new ByteArrayInputStream(head.getBytes(StandardCharsets.US_ASCII)),
+                new PhotoBytes(seed, PHOTO_SIZE)),
+                new ByteArrayInputStream(tail.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static MockHttpServletRequest request(int seed) {
+        ServletInputStream input = new DelegatingServletInputStream(body(seed));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/posts/1/photos") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return input;
+            }
+        };
+        request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+        return request;
+    }
+
+    private static PhotoUploadController controller(PhotoService photoService) {
+        PostRepository postRepository = mock(PostRepository.class);
+        when(postRepository.findById(1)).thenReturn(Optional.of(Post.builder().id(1).build()));
+        return new PhotoUploadController(postRepository, photoService, PHOTO_SIZE, 1);
+    }
+
+    private static PhotoService photoService(Path root) {
+        AtomicInteger ids = new AtomicInteger();
+        FileRepository fileRepository = mock(FileRepository.class);
+        when(fileRepository.findByHash(any())).thenReturn(Optional.empty());
+        when(fileRepository.create(any())).thenAnswer(invocation -> {
+            File file = invocation.getArgument(0);
+            file.setId(ids.incrementAndGet());
+            return file;
+        });
+        PostPhotoRepository postPhotoRepository = mock(PostPhotoRepository.class);
+        when(postPhotoRepository.create(any())).thenAnswer(invocation -> {
+            PostPhoto postPhoto = invocation.getArgument(0);
+            postPhoto.setId(ids.incrementAndGet());
+            return postPhoto;
+        });
+        return new PhotoService(fileRepository, postPhotoRepository, new PhotoStore(root),
+                mock(PhotoVariantGenerator.class), 1, UPLOADS);
+    }
+
+    @Test
+    void whenManyLargeUploadsAtOnceThenAllStoredWithinSmallHeap() throws Exception {
+        assumeTrue(Runtime.getRuntime().maxMemory() < UPLOADS * PHOTO_SIZE / 2,
+                "heap is too large to prove streaming, run in the surefire heap execution");
+        PhotoService photoService = photoService(root);
+        PhotoUploadController controller = controller(photoService);
+        ExecutorService pool = Executors.newFixedThreadPool(UPLOADS);
+        try {
+            List<Future<ResponseEntity<List<UploadedPhoto>>>> results = new ArrayList<>();
+            for (int i = 0; i < UPLOADS; i++) {
+                MockHttpServletRequest request = request(i);
+                results.add(pool.submit(() -> controller.upload(1, 0, request)));
+            }
+            for (Future<ResponseEntity<List<UploadedPhoto>>> result : results) {
+                ResponseEntity<List<UploadedPhoto>> response = result.get(5, TimeUnit.MINUTES);
+                assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+                UploadedPhoto photo = response.getBody().get(0);
+                assertThat(Files.size(root.resolve(PhotoStore.contentPath(photo.hash())))).isEqualTo(PHOTO_SIZE);
+            }
+        } finally {
+            pool.shutdownNow();
+            photoService.close();
+        }
+    }
+
+    /**
+     * Поток байтов фото без массива размером с фото: JPEG-заголовок и псевдослучайные байты.
+     */
+    private static final class PhotoBytes extends InputStream {
+        private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0};
+
+        private final SplittableRandom random;
+        private final long size;
+        private long position;
+
+        PhotoBytes(int seed, long size) {
+            this.random = new SplittableRandom(seed);
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            if (position >= size) {
+                return -1;
+            }
+            int value = position < JPEG.length ? JPEG[(int) position] & 0xFF : random.nextInt(256);
+            position++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (position >= size) {
+                return -1;
+            }
+            int count = (int) Math.min(length, size - position);
+            for (int i = 0; i < count; i++) {
+                bytes[offset + i] = (byte) read();
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.job4j.cars.photo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteRangeTest {
+    @Test
+    void whenClosedRangeThenStartAndEnd() {
+        assertThat(ByteRange.parse("bytes=10-19", 100)).contains(new ByteRange(10, 19, 100));
+    }
+
+    @Test
+    void whenOpenRangeThenEndIsLastByte() {
+        assertThat(ByteRange.parse("bytes=90-", 100)).contains(new ByteRange(90, 99, 100));
+    }
+
+    @Test
+    void whenSuffixRangeThenLastBytes() {
+        assertThat(ByteRange.parse("bytes=-30", 100)).contains(new ByteRange(70, 99, 100));
+        assertThat(ByteRange.parse("bytes=-300", 100)).contains(new ByteRange(0, 99, 100));
+    }
+
+    @Test
+    void whenEndBeyondSizeThenEndClipped() {
+        Optional<ByteRange> range = ByteRange.parse("bytes=50-1000", 100);
+
+        assertThat(range).contains(new ByteRange(50, 99, 100));
+        assertThat(range.get().length()).isEqualTo(50);
+        assertThat(range.get().contentRange()).isEqualTo("bytes 50-99/100");
+    }
+
+    @Test
+    void whenStartBeyondSizeThenNotSatisfiable() {
+        assertThat(ByteRange.parse("bytes=100-", 100)).get()
+                .extracting(ByteRange::isSatisfiable).isEqualTo(false);
+        assertThat(ByteRange.parse("bytes=-0", 100)).get()
+                .extracting(ByteRange::isSatisfiable).isEqualTo(false);
+    }
+
+    @Test
+    void whenMalformedOrMultipleRangesThenIgnored() {
+        assertThat(ByteRange.parse(null, 100)).isEmpty();
+        assertThat(ByteRange.parse("items=0-1", 100)).isEmpty();
+        assertThat(ByteRange.parse("bytes=0-1,5-6", 100)).isEmpty();
+        assertThat(ByteRange.parse("bytes=abc", 100)).isEmpty();
+        assertThat(ByteRange.parse("bytes=20-10", 100)).isEmpty();
+    }
+}
@@ -0,0 +1,87 @@
+package ru.job4j.cars.photo;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HashRingTest {
+    private static final int PHOTOS = 30_000;
+
+    private static List<String> hashes() throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return IntStream.range(0, PHOTOS)
+                .mapToObj(value -> HexFormat.of().formatHex(
+                        digest.digest(("photo-" + value).getBytes(StandardCharsets.UTF_8))))
+                .toList();
+    }
+
+    @Test
+    void whenWeightedVolumesThenShareProportionalToWeight() throws NoSuchAlgorithmException {
+        PhotoVolume first = new PhotoVolume("a", Path.of("/volumes/a"), 1);
+        PhotoVolume second = new PhotoVolume("b", Path.of("/volumes/b"), 2);
+        HashRing ring = new HashRing(List.of(first, second));
+
+        long onSecond = hashes().stream().filter(hash -> ring.locate(hash) == second).count();
+
+        assertThat((double) onSecond / PHOTOS).isCloseTo(2.0 / 3, within(0.05));
+    }
+
+    @Test
+    void whenVolumeAddedThenOnlyItsShareMovesAndOnlyToIt() throws NoSuchAlgorithmException {
+        PhotoVolume first = new PhotoVolume("a", Path.of("/volumes/a"), 1);
+        PhotoVolume second = new PhotoVolume("b", Path.of("/volumes/b"), 2);
+        PhotoVolume added = new PhotoVolume("c", Path.of("/volumes/c"), 1);
+        HashRing before = new HashRing(List.of(first, second));
+        HashRing after = new HashRing(List.of(first, second, added));
+        List<String> hashes = hashes();
+
+        List<String> moved = hashes.stream().filter(hash -> before.locate(hash) != after.locate(hash)).toList();
+
+        assertThat(moved).allMatch(hash -> after.locate(hash) == added);
+        assertThat((double) moved.size() / PHOTOS).isCloseTo(0.25, within(0.05));
+    }
+
+    @Test
+    void whenParseVolumesThenPathsAndWeights() {
+        List<PhotoVolume> volumes = PhotoVolumes.parse(Path.of("photos"), " /volumes/a=2, /volumes/b ");
+
+        assertThat(volumes).extracting(PhotoVolume::root)
+                .containsExactly(Path.of("/volumes/a"), Path.of("/volumes/b"));
+        assertThat(volumes).extracting(PhotoVolume::weight).containsExactly(2, 1);
+        assertThat(volumes).extracting(PhotoVolume::name).containsExactly("volume0", "volume1");
+        assertThat(PhotoVolumes.parse(Path.of("photos"), "")).extracting(PhotoVolume::root)
+                .containsExactly(Path.of("photos").toAbsolutePath());
+        assertThatThrownBy(() -> PhotoVolumes.parse(Path.of("photos"), "/volumes/a=0"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void whenParseNamedVolumesThenNamesPathsAndWeights() {
+        List<PhotoVolume> volumes = PhotoVolumes.parse(Path.of("photos"), "disk1@/volumes/a=2, disk2@/volumes/b");
+
+        assertThat(volumes).extracting(PhotoVolume::name).containsExactly("disk1", "disk2");
+        assertThat(volumes).extracting(PhotoVolume::root)
+                .containsExactly(Path.of("/volumes/a"), Path.of("/volumes/b"));
+        assertThat(volumes).extracting(PhotoVolume::weight).containsExactly(2, 1);
+    }
+
+    @Test
+    void whenVolumesMountedElsewhereThenSamePlacement() throws NoSuchAlgorithmException {
+        HashRing before = new HashRing(List.of(
+                new PhotoVolume("a", Path.of("/volumes/a"), 1), new PhotoVolume("b", Path.of("/volumes/b"), 2)));
+        HashRing after = new HashRing(List.of(
+                new PhotoVolume("a", Path.of("/mnt/disk7"), 1), new PhotoVolume("b", Path.of("/mnt/disk3"), 2)));
+
+        assertThat(hashes()).allMatch(hash -> before.locate(hash).name().equals(after.locate(hash).name()));
+    }
+}
@@ -0,0 +1,76 @@
+package ru.job4j.cars.photo;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImagesTest {
+    private static byte[] app1(ByteOrder order, int orientation) {
+        ByteBuffer buffer = ByteBuffer.allocate(6 + 8 + 2 + 2 * 12 + 4).order(order);
+        buffer.put("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+        buffer.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        buffer.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        buffer.putShort((short) 42).putInt(8);
+        buffer.putShort((short) 2);
+        buffer.putShort((short) 0x010F).putShort((short) 2).putInt(4).putInt(0);
+        buffer.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0);
+        buffer.putInt(0);
+        return buffer.array();
+    }
+
+    @Test
+    void whenExifHasOrientationThenReadInBothByteOrders() {
+        assertThat(Images.exifOrientation(app1(ByteOrder.LITTLE_ENDIAN, 6))).isEqualTo(6);
+        assertThat(Images.exifOrientation(app1(ByteOrder.BIG_ENDIAN, 8))).isEqualTo(8);
+    }
+
+    @Test
+    void whenSegmentIsNotExifOrBrokenThenOrientationIsNormal() {
+        assertThat(Images.exifOrientation("http://ns.adobe.com/xap/1.0/".getBytes(StandardCharsets.US_ASCII)))
+                .isEqualTo(1);
+        assertThat(Images.exifOrientation(app1(ByteOrder.BIG_ENDIAN, 42))).isEqualTo(1);
+        byte[] truncated = new byte[12];
+        System.arraycopy(app1(ByteOrder.BIG_ENDIAN, 6), 0, truncated, 0, truncated.length);
+        assertThat(Images.exifOrientation(truncated)).isEqualTo(1);
+    }
+
+    @Test
+    void whenOrientation6ThenRotatedClockwise() {
+        BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0xFF0000);
+
+        BufferedImage oriented = Images.orient(image, 6);
+
+        assertThat(oriented.getWidth()).isEqualTo(2);
+        assertThat(oriented.getHeight()).isEqualTo(4);
+        assertThat(oriented.getRGB(1, 0) & 0xFFFFFF).isEqualTo(0xFF0000);
+    }
+
+    @Test
+    void whenOrientation3ThenRotatedHalfTurn() {
+        BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0x00FF00);
+
+        BufferedImage oriented = Images.orient(image, 3);
+
+        assertThat(oriented.getWidth()).isEqualTo(4);
+        assertThat(oriented.getRGB(3, 1) & 0xFFFFFF).isEqualTo(0x00FF00);
+    }
+
+    @Test
+    void whenScaleThenLongestSideFitsAndSmallImageUntouched() {
+        BufferedImage large = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB);
+        BufferedImage small = new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage scaled = Images.scale(large, 320);
+
+        assertThat(scaled.getWidth()).isEqualTo(320);
+        assertThat(scaled.getHeight()).isEqualTo(160);
+        assertThat(Images.scale(small, 320)).isSameAs(small);
+    }
+}
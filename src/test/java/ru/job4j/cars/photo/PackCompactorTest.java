@@ -0,0 +1,67 @@
+package ru.job4j.cars.photo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.job4j.cars.repository.FileRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class PackCompactorTest {
+    @TempDir
+    Path root;
+
+    private PackLocation append(PackStore store, char hash) throws IOException {
+        Path source = Files.write(root.resolve(String.valueOf(hash)), new byte[100]);
+        return store.append(source, String.valueOf(hash).repeat(64), 100);
+    }
+
+    @Test
+    void whenPackMostlyGarbageThenLiveMovedAndPackDeletedOnNextRun() throws IOException {
+        PackStore store = new PackStore(root, true, 1000, 400);
+        PackLocation live = append(store, 'a');
+        append(store, 'b');
+        append(store, 'c');
+        append(store, 'd');
+        append(store, 'e');
+        FileRepository fileRepository = mock(FileRepository.class);
+        when(fileRepository.findPathsStartingWith(PackLocation.prefix(1))).thenReturn(Set.of(live.path()));
+        PackCompactor compactor = new PackCompactor(store, fileRepository, 0.5, 0);
+
+        PackCompactor.Result first = compactor.compact();
+
+        assertThat(first).isEqualTo(new PackCompactor.Result(1, 0, 300));
+        verify(fileRepository).replacePath(live.path(), new PackLocation(2, 100, 100).path());
+        assertThat(store.retiredPacks()).containsExactly(1);
+        when(fileRepository.findPathsStartingWith(PackLocation.prefix(1))).thenReturn(Set.of());
+
+        PackCompactor.Result second = compactor.compact();
+
+        assertThat(second).isEqualTo(new PackCompactor.Result(0, 1, 0));
+        assertThat(store.retiredPacks()).isEmpty();
+        assertThat(root.resolve("packs/pack-000001.dat")).doesNotExist();
+        compactor.close();
+    }
+
+    @Test
+    void whenPackMostlyLiveThenNotCompacted() throws IOException {
+        PackStore store = new PackStore(root, true, 1000, 300);
+        PackLocation first = append(store, 'a');
+        PackLocation second = append(store, 'b');
+        append(store, 'c');
+        append(store, 'd');
+        FileRepository fileRepository = mock(FileRepository.class);
+        when(fileRepository.findPathsStartingWith(PackLocation.prefix(1)))
+                .thenReturn(Set.of(first.path(), second.path()));
+        PackCompactor compactor = new PackCompactor(store, fileRepository, 0.5, 0);
+
+        assertThat(compactor.compact()).isEqualTo(new PackCompactor.Result(0, 0, 0));
+        verify(fileRepository, never()).replacePath(any(), any());
+        compactor.close();
+    }
+}
@@ -0,0 +1,137 @@
+package ru.job4j.cars.photo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PackStoreTest {
+    @TempDir
+    Path root;
+
+    private Path source(String name, int size, int seed) throws IOException {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * seed);
+        }
+        return Files.write(root.resolve(name), bytes);
+    }
+
+    private static String hash(char value) {
+        return String.valueOf(value).repeat(64);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Test
+    void whenParsePackPathThenLocation() {
+        assertThat(PackLocation.parse("pack:000012:1048576:20480"))
+                .contains(new PackLocation(12, 1_048_576, 20_480));
+        assertThat(new PackLocation(12, 1_048_576, 20_480).path()).isEqualTo("pack:000012:1048576:20480");
+        assertThat(PackLocation.parse("a/b/photo.jpg")).isEmpty();
+        assertThat(PackLocation.parse("pack:1:x:2")).isEmpty();
+        assertThat(PackLocation.parse("pack:1:2")).isEmpty();
+    }
+
+    @Test
+    void whenAppendThenReadThroughMappedSlice() throws IOException {
+        PackStore store = new PackStore(root, true, 1000, 10_000);
+        Path first = source("first", 100, 3);
+        Path second = source("second", 200, 7);
+
+        PackLocation firstLocation = store.append(first, hash('a'), 100);
+        PackLocation secondLocation = store.append(second, hash('b'), 200);
+
+        assertThat(firstLocation).isEqualTo(new PackLocation(1, 0, 100));
+        assertThat(secondLocation).isEqualTo(new PackLocation(1, 100, 200));
+        assertThat(bytes(store.slice(secondLocation).orElseThrow())).isEqualTo(Files.readAllBytes(second));
+        StoredPhoto photo = store.open(firstLocation).orElseThrow();
+        assertThat(photo.offset()).isZero();
+        assertThat(photo.size()).isEqualTo(100);
+        assertThat(photo.etag()).isEqualTo("\"pack:000001:0:100\"");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        photo.transferTo(10, 20, Channels.newChannel(out));
+        assertThat(out.toByteArray()).isEqualTo(Arrays.copyOfRange(Files.readAllBytes(first), 10, 30));
+        assertThat(store.open(new PackLocation(1, 250, 100))).isEmpty();
+        assertThat(store.open(new PackLocation(2, 0, 100))).isEmpty();
+    }
+
+    @Test
+    void whenAppendSameHashThenSameLocation() throws IOException {
+        PackStore store = new PackStore(root, true, 1000, 10_000);
+        Path source = source("photo", 100, 3);
+
+        PackLocation first = store.append(source, hash('a'), 100);
+        PackLocation second = store.append(source, hash('a'), 100);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(store.size(1)).isEqualTo(100);
+    }
+
+    @Test
+    void whenPackFullThenNextPackAndPreviousSealed() throws IOException {
+        PackStore store = new PackStore(root, true, 1000, 250);
+
+        store.append(source("a", 100, 1), hash('a'), 100);
+        store.append(source("b", 100, 2), hash('b'), 100);
+        PackLocation third = store.append(source("c", 100, 3), hash('c'), 100);
+
+        assertThat(third).isEqualTo(new PackLocation(2, 0, 100));
+        assertThat(store.sealedPacks()).containsExactly(1);
+        assertThat(store.accepts(1000)).isTrue();
+        assertThat(store.accepts(1001)).isFalse();
+    }
+
+    @Test
+    void whenReopenAfterTornWriteThenTailTruncatedAndAppendContinues() throws IOException {
+        PackStore store = new PackStore(root, true, 1000, 10_000);
+        PackLocation first = store.append(source("a", 100, 1), hash('a'), 100);
+        store.close();
+        Path packs = root.resolve("packs");
+        Files.write(packs.resolve("pack-000001.dat"), new byte[50], StandardOpenOption.APPEND);
+        Files.write(packs.resolve("pack-000001.idx"), new byte[10], StandardOpenOption.APPEND);
+
+        PackStore reopened = new PackStore(root, true, 1000, 10_000);
+
+        assertThat(Files.size(packs.resolve("pack-000001.dat"))).isEqualTo(100);
+        assertThat(Files.size(packs.resolve("pack-000001.idx"))).isEqualTo(PackStore.INDEX_RECORD_SIZE);
+        assertThat(reopened.append(source("a2", 100, 1), hash('a'), 100)).isEqualTo(first);
+        assertThat(reopened.append(source("b", 100, 2), hash('b'), 100)).isEqualTo(new PackLocation(1, 100, 100));
+        reopened.close();
+    }
+
+    @Test
+    void whenRetireAndRelocateThenLiveBytesMovedAndPackDeleted() throws IOException {
+        PackStore store = new PackStore(root, true, 1000, 250);
+        PackLocation live = store.append(source("a", 100, 1), hash('a'), 100);
+        store.append(source("b", 100, 2), hash('b'), 100);
+        store.append(source("c", 100, 3), hash('c'), 100);
+
+        store.retire(1);
+        Map<PackLocation, PackLocation> moved = store.relocate(1, List.of(live));
+
+        PackLocation target = moved.get(live);
+        assertThat(target.pack()).isEqualTo(2);
+        assertThat(bytes(store.slice(target).orElseThrow())).isEqualTo(Files.readAllBytes(root.resolve("a")));
+        assertThat(store.append(root.resolve("a"), hash('a'), 100)).isEqualTo(target);
+        assertThat(store.retiredPacks()).containsExactly(1);
+        store.delete(1);
+        assertThat(store.slice(live)).isEmpty();
+        assertThat(root.resolve("packs/pack-000001.dat")).doesNotExist();
+    }
+}
@@ -0,0 +1,204 @@
+package ru.job4j.cars.photo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.job4j.cars.model.File;
+import ru.job4j.cars.model.PostPhoto;
+import ru.job4j.cars.repository.FileRepository;
+import ru.job4j.cars.repository.PostPhotoRepository;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class PhotoServiceTest {
+    @TempDir
+    Path root;
+    private FileRepository fileRepository;
+    private PostPhotoRepository postPhotoRepository;
+    private PhotoService photoService;
+
+    @BeforeEach
+    void setUp() {
+        fileRepository = mock(FileRepository.class);
+        postPhotoRepository = mock(PostPhotoRepository.class);
+        PhotoStore photoStore = new PhotoStore(root);
+        photoService = new PhotoService(fileRepository, postPhotoRepository, photoStore,
+                new PhotoVariantGenerator(photoStore), 2, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        photoService.close();
+    }
+
+    private void writeImage(String path) throws IOException {
+        ImageIO.write(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), "png", root.resolve(path).toFile());
+    }
+
+    private static ByteArrayInputStream image() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), "png", out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Test
+    void whenGenerateVariantsThenPathsRecordedInRepository() throws Exception {
+        writeImage("photo.png");
+
+        File file = photoService.generateVariants(new File(7, "photo.png", "photo.png")).get(10, TimeUnit.SECONDS);
+
+        assertThat(file.getThumbnailPath()).isEqualTo("photo.thumb.jpg");
+        assertThat(file.getMediumPath()).isEqualTo("photo.medium.jpg");
+        verify(fileRepository).updateVariants(7, "photo.thumb.jpg", "photo.medium.jpg");
+    }
+
+    @Test
+    void whenBackfillThenEveryReadableFileProcessedAndBrokenSkipped() throws IOException {
+        List<File> files = IntStream.range(0, 20).mapToObj(value -> new File(value, "p.png", "p-" + value + ".png"))
+                .toList();
+        for (int i = 1; i < files.size(); i++) {
+            writeImage(files.get(i).getPath());
+        }
+        when(fileRepository.findAllWithoutVariants()).thenReturn(files);
+
+        int done = photoService.backfill();
+
+        assertThat(done).isEqualTo(19);
+        verify(fileRepository, times(19)).updateVariants(anyInt(), any(), any());
+        verify(fileRepository, never()).updateVariants(eq(0), any(), any());
+    }
+
+    @Test
+    void whenStoreSameBytesTwiceThenExistingFileReturned() throws IOException {
+        File existing = File.builder().id(3).name("first.png").path("a/b/hash").hash("hash").build();
+        when(fileRepository.findByHash(any())).thenReturn(Optional.of(existing));
+
+        File actual = photoService.store("second.png", image());
+
+        assertThat(actual).isSameAs(existing);
+        verify(fileRepository, never()).create(any());
+    }
+
+    @Test
+    void whenStoreNewBytesThenFileCreatedWithHashAndVariantsGenerated() throws IOException {
+        when(fileRepository.findByHash(any())).thenReturn(Optional.empty());
+        when(fileRepository.create(any())).thenAnswer(invocation -> {
+            File file = invocation.getArgument(0);
+            file.setId(5);
+            return file;
+        });
+
+        File actual = photoService.store("photo.png", image());
+
+        assertThat(actual.getId()).isEqualTo(5);
+        assertThat(actual.getHash()).hasSize(64);
+        assertThat(actual.getPath()).isEqualTo(PhotoStore.contentPath(actual.getHash()));
+        assertThat(root.resolve(actual.getPath())).exists();
+        verify(fileRepository, timeout(10_000)).updateVariants(eq(5), any(), any());
+    }
+
+    @Test
+    void whenReleaseUnreferencedThenBytesDeleted() throws IOException {
+        StoredContent content = new PhotoStore(root).put(image());
+        File file = File.builder().id(5).name("photo.png").path(content.path()).hash(content.hash()).build();
+        when(fileRepository.findById(5)).thenReturn(Optional.of(file));
+        when(fileRepository.deleteIfUnreferenced(5)).thenReturn(true);
+
+        assertThat(photoService.release(5)).isTrue();
+        assertThat(root.resolve(content.path())).doesNotExist();
+    }
+
+    @Test
+    void whenReleaseReferencedThenBytesKept() throws IOException {
+        StoredContent content = new PhotoStore(root).put(image());
+        File file = File.builder().id(5).name("photo.png").path(content.path()).hash(content.hash()).build();
+        when(fileRepository.findById(5)).thenReturn(Optional.of(file));
+        when(fileRepository.deleteIfUnreferenced(5)).thenReturn(false);
+
+        assertThat(photoService.release(5)).isFalse();
+        assertThat(root.resolve(content.path())).exists();
+    }
+
+    @Test
+    void whenDetachThenPostPhotoDeletedAndFileReleased() {
+        File file = File.builder().id(5).name("photo.png").path("a/b/hash").hash("hash").build();
+        when(postPhotoRepository.findById(9)).thenReturn(Optional.of(PostPhoto.builder().id(9).photo(file).build()));
+        when(fileRepository.findById(5)).thenReturn(Optional.of(file));
+
+        photoService.detach(9);
+
+        verify(postPhotoRepository).delete(9);
+        verify(fileRepository).deleteIfUnreferenced(5);
+    }
+
+    @Test
+    void whenReleaseCannotDeleteBytesThenFalse() throws IOException {
+        Files.createDirectories(root.resolve("photo-dir"));
+        Files.writeString(root.resolve("photo-dir").resolve("inner"), "keeps directory non-empty");
+        File file = File.builder().id(5).name("photo.png").path("photo-dir").build();
+        when(fileRepository.findById(5)).thenReturn(Optional.of(file));
+        when(fileRepository.deleteIfUnreferenced(5)).thenReturn(true);
+
+        assertThat(photoService.release(5)).isFalse();
+    }
+
+    @Test
+    void whenStoreSameBytesDuringReleaseThenStoredFileHasBytes() throws Exception {
+        Map<String, File> files = new ConcurrentHashMap<>();
+        AtomicInteger ids = new AtomicInteger();
+        when(fileRepository.findByHash(any())).thenAnswer(invocation -> Optional.ofNullable(
+                files.get(invocation.<String>getArgument(0))));
+        when(fileRepository.create(any())).thenAnswer(invocation -> {
+            File file = invocation.getArgument(0);
+            file.setId(ids.incrementAndGet());
+            files.put(file.getHash(), file);
+            return file;
+        });
+        File released = photoService.store("first.png", image());
+        when(fileRepository.findById(released.getId())).thenReturn(Optional.of(released));
+        CountDownLatch deleting = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        when(fileRepository.deleteIfUnreferenced(released.getId())).thenAnswer(invocation -> {
+            deleting.countDown();
+            proceed.await(10, TimeUnit.SECONDS);
+            files.remove(released.getHash());
+            return true;
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> release = pool.submit(() -> photoService.release(released.getId()));
+            deleting.await(10, TimeUnit.SECONDS);
+            Future<File> store = pool.submit(() -> photoService.store("second.png", image()));
+            Thread.sleep(300);
+            proceed.countDown();
+
+            assertThat(release.get(10, TimeUnit.SECONDS)).isTrue();
+            File stored = store.get(10, TimeUnit.SECONDS);
+            assertThat(stored.getId()).isNotEqualTo(released.getId());
+            assertThat(root.resolve(stored.getPath())).exists();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
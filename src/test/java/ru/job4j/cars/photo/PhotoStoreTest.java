@@ -0,0 +1,133 @@
+package ru.job4j.cars.photo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PhotoStoreTest {
+    private static final String HELLO_SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path root;
+
+    private static ByteArrayInputStream bytes(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ByteArrayInputStream png(int size) {
+        byte[] bytes = new byte[size];
+        byte[] magic = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+        System.arraycopy(magic, 0, bytes, 0, magic.length);
+        for (int i = magic.length; i < size; i++) {
+            bytes[i] = (byte) i;
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private long regularFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    void whenPutThenStoredByHashInShardedPath() throws IOException {
+        PhotoStore store = new PhotoStore(root);
+
+        StoredContent content = store.put(bytes("hello"));
+
+        assertThat(content).isEqualTo(new StoredContent(HELLO_SHA256, "2c/f2/" + HELLO_SHA256, 5));
+        assertThat(Files.readString(root.resolve(content.path()))).isEqualTo("hello");
+        assertThat(store.open(content.path())).get().extracting(StoredPhoto::etag)
+                .isEqualTo("\"" + HELLO_SHA256 + "\"");
+    }
+
+    @Test
+    void whenPutSameBytesTwiceThenOneFileAndNoTemporaryFilesLeft() throws IOException {
+        PhotoStore store = new PhotoStore(root);
+
+        StoredContent first = store.put(bytes("hello"));
+        StoredContent second = store.put(bytes("hello"));
+        StoredContent other = store.put(bytes("world"));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(other.hash()).isNotEqualTo(first.hash());
+        try (Stream<Path> files = Files.walk(root)) {
+            assertThat(files.filter(Files::isRegularFile)).hasSize(2);
+        }
+    }
+
+    @Test
+    void whenDeleteThenOriginalAndVariantsRemoved() throws IOException {
+        PhotoStore store = new PhotoStore(root);
+        StoredContent content = store.put(bytes("hello"));
+        Files.writeString(root.resolve(PhotoVariant.THUMBNAIL.path(content.path())), "thumb");
+
+        store.delete(content.path());
+
+        assertThat(store.open(content.path())).isEmpty();
+        assertThat(root.resolve(PhotoVariant.THUMBNAIL.path(content.path()))).doesNotExist();
+    }
+
+    @Test
+    void whenPutPhotoChannelLargerThanBufferThenStoredWholeAndHashOfAllBytes() throws IOException {
+        PhotoStore store = new PhotoStore(root);
+        int size = 200_000;
+
+        StoredContent content = store.put(Channels.newChannel(png(size)), size);
+
+        assertThat(content).isEqualTo(new PhotoStore(root.resolve("other")).put(png(size)));
+        assertThat(Files.readAllBytes(root.resolve(content.path()))).isEqualTo(png(size).readAllBytes());
+    }
+
+    @Test
+    void whenPutPhotoChannelLargerThanMaxSizeThenRejectedAndNothingStored() throws IOException {
+        PhotoStore store = new PhotoStore(root);
+
+        assertThatThrownBy(() -> store.put(Channels.newChannel(png(200_000)), 100_000))
+                .isInstanceOf(PhotoRejectedException.class)
+                .extracting(e -> ((PhotoRejectedException) e).reason())
+                .isEqualTo(PhotoRejectedException.Reason.TOO_LARGE);
+        assertThat(regularFiles()).isZero();
+    }
+
+    @Test
+    void whenPutChannelWithNotPhotoThenRejectedAndNothingStored() throws IOException {
+        PhotoStore store = new PhotoStore(root);
+
+        assertThatThrownBy(() -> store.put(Channels.newChannel(bytes("hello, it is not a photo")), 1000))
+                .isInstanceOf(PhotoRejectedException.class)
+                .extracting(e -> ((PhotoRejectedException) e).reason())
+                .isEqualTo(PhotoRejectedException.Reason.UNSUPPORTED_TYPE);
+        assertThatThrownBy(() -> store.put(Channels.newChannel(bytes("")), 1000))
+                .isInstanceOf(PhotoRejectedException.class);
+        assertThat(regularFiles()).isZero();
+    }
+
+    @Test
+    void whenPackEnabledThenSmallPhotoInPackAndLargeInFile() throws IOException {
+        PhotoStore store = new PhotoStore(root, new PackStore(root, true, 1000, 1_000_000));
+
+        StoredContent small = store.put(Channels.newChannel(png(1000)), 10_000);
+        StoredContent large = store.put(Channels.newChannel(png(1001)), 10_000);
+
+        assertThat(small.path()).isEqualTo("pack:000001:0:1000");
+        assertThat(large.path()).isEqualTo(PhotoStore.contentPath(large.hash()));
+        StoredPhoto photo = store.open(small.path()).orElseThrow();
+        assertThat(photo.newInputStream().readAllBytes()).isEqualTo(png(1000).readAllBytes());
+        assertThat(store.put(png(1000))).isEqualTo(small);
+        store.delete(small.path());
+        assertThat(store.open(small.path())).isPresent();
+        assertThat(store.resolve(small.path())).isEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package ru.job4j.cars.photo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PhotoVariantGeneratorTest {
+    @TempDir
+    Path root;
+
+    @Test
+    void whenGenerateThenThumbnailAndMediumJpegNextToOriginal() throws IOException {
+        Files.createDirectories(root.resolve("a"));
+        ImageIO.write(new BufferedImage(2048, 1536, BufferedImage.TYPE_INT_RGB), "png", root.resolve("a/car.png").toFile());
+        PhotoVariantGenerator generator = new PhotoVariantGenerator(new PhotoStore(root));
+
+        Map<PhotoVariant, String> variants = generator.generate("a/car.png");
+
+        assertThat(variants).containsEntry(PhotoVariant.THUMBNAIL, "a/car.thumb.jpg")
+                .containsEntry(PhotoVariant.MEDIUM, "a/car.medium.jpg");
+        BufferedImage thumbnail = ImageIO.read(root.resolve("a/car.thumb.jpg").toFile());
+        BufferedImage medium = ImageIO.read(root.resolve("a/car.medium.jpg").toFile());
+        assertThat(thumbnail.getWidth()).isEqualTo(320);
+        assertThat(thumbnail.getHeight()).isEqualTo(240);
+        assertThat(medium.getWidth()).isEqualTo(1024);
+        try (var files = Files.list(root.resolve("a"))) {
+            assertThat(files.map(path -> path.getFileName().toString()))
+                    .containsExactlyInAnyOrder("car.png", "car.thumb.jpg", "car.medium.jpg");
+        }
+    }
+
+    @Test
+    void whenNotImageThenIOException() throws IOException {
+        Files.writeString(root.resolve("notes.txt"), "not an image");
+        PhotoVariantGenerator generator = new PhotoVariantGenerator(new PhotoStore(root));
+
+        assertThatThrownBy(() -> generator.generate("notes.txt")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void whenOriginalInPackThenVariantsInPack() throws IOException {
+        PhotoStore store = new PhotoStore(root, new PackStore(root, true, 1_000_000, 10_000_000));
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(2048, 1536, BufferedImage.TYPE_INT_RGB), "png", png);
+        StoredContent original = store.put(new ByteArrayInputStream(png.toByteArray()));
+        PhotoVariantGenerator generator = new PhotoVariantGenerator(store);
+
+        Map<PhotoVariant, String> variants = generator.generate(original.path());
+
+        assertThat(original.path()).startsWith(PackLocation.SCHEME);
+        assertThat(variants.values()).allMatch(PackLocation::isPack);
+        BufferedImage thumbnail = ImageIO.read(store.open(variants.get(PhotoVariant.THUMBNAIL)).orElseThrow()
+                .newInputStream());
+        assertThat(thumbnail.getWidth()).isEqualTo(320);
+        assertThat(thumbnail.getHeight()).isEqualTo(240);
+    }
+
+    @Test
+    void whenMorePixelsThanLimitThenIOExceptionAndNoVariants() throws IOException {
+        ImageIO.write(new BufferedImage(2048, 1536, BufferedImage.TYPE_INT_RGB), "png", root.resolve("huge.png").toFile());
+        PhotoVariantGenerator generator = new PhotoVariantGenerator(new PhotoStore(root), 2048 * 1536 - 1);
+
+        assertThatThrownBy(() -> generator.generate("huge.png"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("2048x1536");
+        assertThat(root.resolve("huge.thumb.jpg")).doesNotExist();
+    }
+
+    @Test
+    void whenOriginalMuchLargerThanVariantsThenVariantsKeepAspect() throws IOException {
+        ImageIO.write(new BufferedImage(4100, 3075, BufferedImage.TYPE_INT_RGB), "png", root.resolve("big.png").toFile());
+        PhotoVariantGenerator generator = new PhotoVariantGenerator(new PhotoStore(root));
+
+        generator.generate("big.png");
+
+        BufferedImage medium = ImageIO.read(root.resolve("big.medium.jpg").toFile());
+        assertThat(medium.getWidth()).isEqualTo(1024);
+        assertThat(medium.getHeight()).isEqualTo(768);
+    }
+}
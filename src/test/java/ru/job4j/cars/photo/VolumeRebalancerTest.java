@@ -0,0 +1,103 @@
+package ru.job4j.cars.photo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VolumeRebalancerTest {
+    @TempDir
+    Path root;
+
+    private List<StoredContent> putPhotos(PhotoStore store, int count) throws IOException {
+        List<StoredContent> contents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            contents.add(store.put(new ByteArrayInputStream(("photo-" + i).getBytes())));
+        }
+        return contents;
+    }
+
+    @Test
+    void whenVolumeAddedThenRebalanceMovesOnlyItsShareAndReadsWorkThroughout() throws IOException {
+        PhotoVolume first = new PhotoVolume("a", root.resolve("a"), 1);
+        PhotoVolume second = new PhotoVolume("b", root.resolve("b"), 1);
+        PhotoStore before = new PhotoStore(root, new PackStore(root, false, 0, 0),
+                new PhotoVolumes(root, List.of(first)));
+        List<StoredContent> contents = putPhotos(before, 200);
+        PhotoVolumes volumes = new PhotoVolumes(root, List.of(first, second));
+        PhotoStore after = new PhotoStore(root, new PackStore(root, false, 0, 0), volumes);
+
+        assertThat(contents).allMatch(content -> after.open(content.path()).isPresent());
+        VolumeRebalancer rebalancer = new VolumeRebalancer(volumes, 0);
+        VolumeRebalancer.Result result = rebalancer.rebalance();
+
+        int expected = (int) contents.stream().filter(content -> volumes.owner(content.hash()) == second).count();
+        assertThat(result.scanned()).isEqualTo(200);
+        assertThat(result.moved()).isEqualTo(expected).isBetween(60, 140);
+        for (StoredContent content : contents) {
+            Path owner = volumes.owner(content.hash()).root().resolve(content.path());
+            assertThat(after.resolve(content.path())).contains(owner);
+            assertThat(after.open(content.path()).orElseThrow().size()).isEqualTo(content.size());
+        }
+        assertThat(second.writes()).isEqualTo(expected);
+        assertThat(rebalancer.rebalance().moved()).isZero();
+        rebalancer.close();
+    }
+
+    @Test
+    void whenRootNotVolumeThenOldPhotosReadAndMovedFromRoot() throws IOException {
+        List<StoredContent> contents = putPhotos(new PhotoStore(root), 20);
+        PhotoVolume volume = new PhotoVolume("volume", root.resolve("volume"), 1);
+        PhotoVolumes volumes = new PhotoVolumes(root, List.of(volume));
+        PhotoStore store = new PhotoStore(root, new PackStore(root, false, 0, 0), volumes);
+
+        assertThat(store.open(contents.get(0).path())).isPresent();
+        VolumeRebalancer rebalancer = new VolumeRebalancer(volumes, 0);
+
+        assertThat(rebalancer.rebalance().moved()).isEqualTo(20);
+        assertThat(IntStream.range(0, 20)).allMatch(i -> Files.exists(volume.root().resolve(contents.get(i).path())));
+        assertThat(root.resolve(contents.get(0).path())).doesNotExist();
+        store.delete(contents.get(0).path());
+        assertThat(store.open(contents.get(0).path())).isEmpty();
+        rebalancer.close();
+    }
+
+    @Test
+    void whenHashLockedThenMoveWaitsForIt() throws Exception {
+        StoredContent content = new PhotoStore(root).put(new ByteArrayInputStream("photo".getBytes()));
+        PhotoVolume volume = new PhotoVolume("volume", root.resolve("volume"), 1);
+        PhotoVolumes volumes = new PhotoVolumes(root, List.of(volume));
+        PhotoLocks locks = new PhotoLocks();
+        VolumeRebalancer rebalancer = new VolumeRebalancer(volumes, locks, 0);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Lock lock = locks.lock(content.hash());
+        lock.lock();
+        Future<VolumeRebalancer.Result> result;
+        try {
+            result = pool.submit(rebalancer::rebalance);
+            Thread.sleep(200);
+            assertThat(result).isNotDone();
+            assertThat(root.resolve(content.path())).exists();
+        } finally {
+            lock.unlock();
+        }
+
+        assertThat(result.get(10, TimeUnit.SECONDS).moved()).isEqualTo(1);
+        assertThat(volume.root().resolve(content.path())).exists();
+        pool.shutdown();
+        rebalancer.close();
+    }
+}
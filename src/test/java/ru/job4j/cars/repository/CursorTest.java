@@ -0,0 +1,29 @@
+package ru.job4j.cars.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CursorTest {
+    @Test
+    void whenParseTokenThenReturnSameCursor() {
+        Cursor cursor = Cursor.of(LocalDateTime.of(2024, 4, 22, 10, 15, 30), 42);
+
+        assertThat(Cursor.parse(cursor.token())).contains(cursor);
+    }
+
+    @Test
+    void whenParseTokenWithoutCreatedThenReturnIdCursor() {
+        Cursor cursor = Cursor.of(7);
+
+        assertThat(Cursor.parse(cursor.token())).contains(cursor);
+    }
+
+    @Test
+    void whenParseWrongTokenThenReturnEmpty() {
+        assertThat(Cursor.parse("not a token")).isEmpty();
+        assertThat(Cursor.parse("MjAyNA")).isEmpty();
+    }
+}
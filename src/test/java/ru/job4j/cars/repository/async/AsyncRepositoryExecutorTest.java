@@ -0,0 +1,90 @@
+package ru.job4j.cars.repository.async;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class AsyncRepositoryExecutorTest {
+    private CrudRepository crudRepository;
+    private AsyncRepositoryExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        crudRepository = mock(CrudRepository.class);
+        executor = new AsyncRepositoryExecutor(crudRepository, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void whenSupplyThenReturnResultOfAction() throws Exception {
+        CompletableFuture<String> actual = executor.supply(() -> "post");
+
+        assertThat(actual.get(5, TimeUnit.SECONDS)).isEqualTo("post");
+    }
+
+    @Test
+    void whenActionThrowExceptionThenFutureCompletedExceptionally() {
+        CompletableFuture<String> actual = executor.supply(() -> {
+            throw new IllegalStateException("db is down");
+        });
+
+        assertThat(actual).failsWithin(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void whenManyCallsThenNotMoreThanConcurrencyRunAtOnce() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = IntStream.range(0, 10).mapToObj(value -> executor.supply(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(20);
+            running.decrementAndGet();
+            return value;
+        })).toList();
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+        assertThat(futures.stream().map(CompletableFuture::join).toList())
+                .isEqualTo(IntStream.range(0, 10).boxed().toList());
+    }
+
+    @Test
+    void whenCancelRunningCallThenCancelQueryOnWorkerThread() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> actual = executor.supply(() -> {
+            started.countDown();
+            sleep(5_000);
+            return "post";
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        actual.cancel(true);
+
+        assertThat(actual).isCancelled();
+        verify(crudRepository, timeout(5_000)).cancel(any(Thread.class));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
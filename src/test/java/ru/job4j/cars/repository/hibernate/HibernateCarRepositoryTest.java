@@ -13,7 +13,9 @@ import ru.job4j.cars.repository.EngineRepository;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -134,11 +136,11 @@ class HibernateCarRepositoryTest {
     void whenFindByIdProcessExceptionThenReturnOptionalEmpty() {
         CrudRepository crudRepositoryMock = mock(CrudRepository.class);
         HibernateCarRepository carRepositoryMock = new HibernateCarRepository(crudRepositoryMock);
-        doThrow(RuntimeException.class).when(crudRepositoryMock).optional(any(), any(), any());
+        doThrow(RuntimeException.class).when(crudRepositoryMock).get(any(), any());
 
         Optional<Car> actualCar = carRepositoryMock.findById(1);
 
-        verify(crudRepositoryMock, times(1)).optional(any(), any(), any());
+        verify(crudRepositoryMock, times(1)).get(any(), any());
         assertThat(actualCar).isEmpty();
     }
 
@@ -264,4 +266,69 @@ class HibernateCarRepositoryTest {
 
         verify(crudRepositoryMock, times(1)).run(any(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenCreateAllThenAllCreatedInDbAndHaveId() {
+        List<Car> cars = IntStream.rangeClosed(0, 2).mapToObj(value -> Car.builder()
+                .name("Car-" + value)
+                .engine(testEngines.get(value))
+                .build()).toList();
+
+        Collection<Car> actualCars = carRepository.createAll(cars);
+
+        assertThat(actualCars).hasSize(3).allMatch(car -> car.getId() != null && car.getId() != 0);
+        assertThat(carRepository.findAll().stream().map(Car::getId).toList())
+                .containsExactlyInAnyOrderElementsOf(actualCars.stream().map(Car::getId).toList());
+    }
+
+    @Test
+    void whenCreateAllProcessExceptionThenReturnEmpty() {
+        CrudRepository crudRepositoryMock = mock(CrudRepository.class);
+        HibernateCarRepository carRepositoryMock = new HibernateCarRepository(crudRepositoryMock);
+        doThrow(RuntimeException.class).when(crudRepositoryMock).bulk(any(Iterable.class), anyInt(), any(), any());
+
+        Collection<Car> actualCars = carRepositoryMock.createAll(List.of(new Car()));
+
+        assertThat(actualCars).isEmpty();
+    }
+
+    @Test
+    void whenCreateAllChunkFailsThenReturnOnlyCarsOfCreatedChunks() {
+        CrudRepository crudRepositoryMock = mock(CrudRepository.class);
+        HibernateCarRepository carRepositoryMock = new HibernateCarRepository(crudRepositoryMock);
+        Car created = Car.builder().id(1).name("Created").build();
+        Car failed = Car.builder().id(2).name("Failed").build();
+        doAnswer(invocation -> {
+            Consumer<BulkChunk<Car>> listener = invocation.getArgument(3);
+            listener.accept(new BulkChunk<>(1, List.of(created), null));
+            listener.accept(new BulkChunk<>(2, List.of(failed), new RuntimeException("rolled back")));
+            return 1;
+        }).when(crudRepositoryMock).bulk(any(Iterable.class), anyInt(), any(), any());
+
+        Collection<Car> actualCars = carRepositoryMock.createAll(Stream.of(created, failed)::iterator);
+
+        assertThat(actualCars).extracting(Car::getName).containsExactly("Created");
+    }
+
+    @Test
+    void whenCallEveryMethodThenStatementCountsWithinBounds() {
+        StatementCounter statementCounter = new StatementCounter(sessionFactory);
+
+        Car car = statementCounter.assertAtMost("HibernateCarRepository.create", 2,
+                () -> carRepository.create(Car.builder().name("Car-count").engine(testEngines.get(0)).build()));
+        statementCounter.assertAtMost("HibernateCarRepository.createAll", 2, () -> carRepository.createAll(List.of(
+                Car.builder().name("Car-count-1").engine(testEngines.get(1)).build(),
+                Car.builder().name("Car-count-2").engine(testEngines.get(2)).build())));
+        statementCounter.assertAtMost("HibernateCarRepository.findAll", 4, carRepository::findAll);
+        statementCounter.assertAtMost("HibernateCarRepository.findPageOrderById", 1,
+                () -> carRepository.findPageOrderById(null, 2));
+        Optional<Car> found = statementCounter.assertAtMost("HibernateCarRepository.findById", 1,
+                () -> carRepository.findById(car.getId()));
+        car.setName("Car-count-updated");
+        statementCounter.assertAtMost("HibernateCarRepository.update", 4, () -> carRepository.update(car));
+        statementCounter.assertAtMost("HibernateCarRepository.delete", 1, () -> carRepository.delete(car.getId()));
+
+        assertThat(found).isPresent();
+        assertThat(carRepository.findById(car.getId())).isEmpty();
+    }
+}
@@ -82,14 +82,28 @@ class HibernateEngineRepositoryTest {
     void whenFindByIdProcessExceptionThenReturnOptionalEmpty() {
         CrudRepository crudRepositoryMock = mock(CrudRepository.class);
         HibernateEngineRepository engineRepositoryMock = new HibernateEngineRepository(crudRepositoryMock);
-        doThrow(RuntimeException.class).when(crudRepositoryMock).optional(any(), any(), any());
+        doThrow(RuntimeException.class).when(crudRepositoryMock).get(any(), any());
 
         Optional<Engine> actualEngine = engineRepositoryMock.findById(1);
 
-        verify(crudRepositoryMock, times(1)).optional(any(), any(), any());
+        verify(crudRepositoryMock, times(1)).get(any(), any());
         assertThat(actualEngine).isEmpty();
     }
 
+    @Test
+    void whenFindByIdThenEngineInSecondLevelCacheAndWhenDeleteThenEvicted() {
+        Engine engine = engineRepository.create(new Engine(null, "Test engine"));
+
+        engineRepository.findById(engine.getId());
+        boolean cachedAfterFind = sessionFactory.getCache().containsEntity(Engine.class, engine.getId());
+        engineRepository.delete(engine.getId());
+        boolean cachedAfterDelete = sessionFactory.getCache().containsEntity(Engine.class, engine.getId());
+
+        assertThat(cachedAfterFind).isTrue();
+        assertThat(cachedAfterDelete).isFalse();
+        assertThat(engineRepository.findById(engine.getId())).isEmpty();
+    }
+
     @Test
     void whenFindAllThenReturnCollectionEngines() {
         List<Engine> engines = IntStream.rangeClosed(1, 3)
@@ -180,4 +194,24 @@ class HibernateEngineRepositoryTest {
 
         verify(crudRepositoryMock, times(1)).run(any(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenCallEveryMethodThenStatementCountsWithinBounds() {
+        StatementCounter statementCounter = new StatementCounter(sessionFactory);
+
+        Engine engine = statementCounter.assertAtMost("HibernateEngineRepository.create", 2,
+                () -> engineRepository.create(new Engine(null, "Engine-count")));
+        statementCounter.assertAtMost("HibernateEngineRepository.findAll", 1, engineRepository::findAll);
+        statementCounter.assertAtMost("HibernateEngineRepository.findPageOrderById", 1,
+                () -> engineRepository.findPageOrderById(null, 2));
+        Optional<Engine> found = statementCounter.assertAtMost("HibernateEngineRepository.findById", 1,
+                () -> engineRepository.findById(engine.getId()));
+        engine.setName("Engine-count-updated");
+        statementCounter.assertAtMost("HibernateEngineRepository.update", 4, () -> engineRepository.update(engine));
+        statementCounter.assertAtMost("HibernateEngineRepository.delete", 1,
+                () -> engineRepository.delete(engine.getId()));
+
+        assertThat(found).isPresent();
+        assertThat(engineRepository.findById(engine.getId())).isEmpty();
+    }
+}
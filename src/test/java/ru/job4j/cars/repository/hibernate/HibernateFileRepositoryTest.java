@@ -11,7 +11,9 @@ import ru.job4j.cars.model.File;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -107,7 +109,7 @@ class HibernateFileRepositoryTest {
     void whenFindByIdThrowExceptionThenReturnOptionalEmpty() {
         CrudRepository mockCrudRepository = mock(CrudRepository.class);
         HibernateFileRepository hibernateFileRepository = new HibernateFileRepository(mockCrudRepository);
-        doThrow(RuntimeException.class).when(mockCrudRepository).optional(any(), any(), any());
+        doThrow(RuntimeException.class).when(mockCrudRepository).get(any(), any());
 
         Optional<File> actualFile = hibernateFileRepository.findById(1);
 
@@ -185,10 +187,205 @@ class HibernateFileRepositoryTest {
     void whenDeleteFileThrowExceptionThenNotHaveException() {
         CrudRepository mockCrudRepository = mock(CrudRepository.class);
         HibernateFileRepository hibernateFileRepository = new HibernateFileRepository(mockCrudRepository);
-        doThrow(RuntimeException.class).when(mockCrudRepository).run(any(), any());
+        doThrow(RuntimeException.class).when(mockCrudRepository).run(any());
 
         hibernateFileRepository.delete(1000);
 
-        verify(mockCrudRepository, times(1)).run(any(), any());
+        verify(mockCrudRepository, times(1)).run(any());
+    }
+
+    @Test
+    void whenStreamAllThenReturnAllFilesOrderedById() {
+        List<File> files = IntStream.rangeClosed(0, 2).mapToObj(
+                value -> fileRepository.create(File.builder()
+                        .name("fileName-" + value)
+                        .path("path/file-" + value)
+                        .build())
+        ).toList();
+
+        List<File> actualFiles;
+        try (Stream<File> stream = fileRepository.streamAll()) {
+            actualFiles = stream.toList();
+        }
+
+        assertThat(actualFiles).usingRecursiveComparison().isEqualTo(files);
+    }
+
+    @Test
+    void whenStreamAllThrowExceptionThenReturnEmptyStream() {
+        CrudRepository mockCrudRepository = mock(CrudRepository.class);
+        HibernateFileRepository hibernateFileRepository = new HibernateFileRepository(mockCrudRepository);
+        doThrow(RuntimeException.class).when(mockCrudRepository).stream(any(), any(), any(), anyInt());
+
+        Stream<File> actualFiles = hibernateFileRepository.streamAll();
+
+        assertThat(actualFiles).isEmpty();
+    }
+
+    @Test
+    void whenUpdateVariantsThenFileHasVariantsAndNotInWithoutVariants() {
+        File first = fileRepository.create(new File(null, "first.jpg", "path/first.jpg"));
+        File second = fileRepository.create(new File(null, "second.jpg", "path/second.jpg"));
+
+        fileRepository.updateVariants(first.getId(), "path/first.thumb.jpg", "path/first.medium.jpg");
+
+        assertThat(fileRepository.findById(first.getId())).get().usingRecursiveComparison().isEqualTo(File.builder()
+                .id(first.getId())
+                .name("first.jpg")
+                .path("path/first.jpg")
+                .thumbnailPath("path/first.thumb.jpg")
+                .mediumPath("path/first.medium.jpg")
+                .build());
+        assertThat(fileRepository.findAllWithoutVariants()).extracting(File::getId).containsExactly(second.getId());
+    }
+
+    @Test
+    void whenUpdateVariantsProcessExceptionThenNothing() {
+        CrudRepository mockCrudRepository = mock(CrudRepository.class);
+        HibernateFileRepository mockFileRepository = new HibernateFileRepository(mockCrudRepository);
+        doThrow(RuntimeException.class).when(mockCrudRepository).run(any());
+
+        mockFileRepository.updateVariants(1, "thumb", "medium");
+
+        verify(mockCrudRepository, times(1)).run(any());
+    }
+
+    @Test
+    void whenFindByHashThenReturnFileWithHash() {
+        String hash = "a".repeat(64);
+        File file = fileRepository.create(File.builder()
+                .name("photo.jpg")
+                .path(hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash)
+                .hash(hash)
+                .build());
+        fileRepository.create(new File(null, "other.jpg", "path/other.jpg"));
+
+        assertThat(fileRepository.findByHash(hash)).get().usingRecursiveComparison().isEqualTo(file);
+        assertThat(fileRepository.findByHash("b".repeat(64))).isEmpty();
+    }
+
+    @Test
+    void whenCreateFileWithExistingHashThenNotCreated() {
+        String hash = "c".repeat(64);
+        File first = fileRepository.create(File.builder().name("first.jpg").path(hash).hash(hash).build());
+
+        fileRepository.create(File.builder().name("second.jpg").path(hash).hash(hash).build());
+
+        assertThat(fileRepository.findAll()).extracting(File::getId).containsExactly(first.getId());
+        assertThat(fileRepository.findByHash(hash)).get().extracting(File::getName).isEqualTo("first.jpg");
+    }
+
+    @Test
+    void whenFindByHashThrowExceptionThenReturnOptionalEmpty() {
+        CrudRepository mockCrudRepository = mock(CrudRepository.class);
+        HibernateFileRepository mockFileRepository = new HibernateFileRepository(mockCrudRepository);
+        doThrow(RuntimeException.class).when(mockCrudRepository).optional(any(), any(), any());
+
+        assertThat(mockFileRepository.findByHash("hash")).isEmpty();
+        verify(mockCrudRepository, times(1)).optional(any(), any(), any());
+    }
+
+    @Test
+    void whenDeleteIfUnreferencedThenDeletedInDb() {
+        File file = fileRepository.create(new File(null, "photo.jpg", "path/photo.jpg"));
+
+        boolean actual = fileRepository.deleteIfUnreferenced(file.getId());
+
+        assertThat(actual).isTrue();
+        assertThat(fileRepository.findById(file.getId())).isEmpty();
+        assertThat(fileRepository.deleteIfUnreferenced(file.getId())).isFalse();
+    }
+
+    @Test
+    void whenDeleteIfUnreferencedThrowExceptionThenReturnFalse() {
+        CrudRepository mockCrudRepository = mock(CrudRepository.class);
+        HibernateFileRepository mockFileRepository = new HibernateFileRepository(mockCrudRepository);
+        doThrow(RuntimeException.class).when(mockCrudRepository).tx(any());
+
+        assertThat(mockFileRepository.deleteIfUnreferenced(1)).isFalse();
+        verify(mockCrudRepository, times(1)).tx(any());
+    }
+
+    @Test
+    void whenFindPathsStartingWithThenPathsOfPhotosAndVariantsInPack() {
+        File first = fileRepository.create(new File(null, "first.jpg", "pack:000001:0:100"));
+        fileRepository.updateVariants(first.getId(), "pack:000001:100:10", "pack:000002:0:50");
+        fileRepository.create(new File(null, "second.jpg", "pack:000011:0:100"));
+        fileRepository.create(new File(null, "third.jpg", "path/third.jpg"));
+
+        Set<String> actual = fileRepository.findPathsStartingWith("pack:000001:");
+
+        assertThat(actual).containsExactlyInAnyOrder("pack:000001:0:100", "pack:000001:100:10");
+    }
+
+    @Test
+    void whenReplacePathThenPathAndVariantPathsReplaced() {
+        File first = fileRepository.create(new File(null, "first.jpg", "pack:000001:0:100"));
+        File second = fileRepository.create(new File(null, "second.jpg", "pack:000003:0:100"));
+        fileRepository.updateVariants(second.getId(), "pack:000001:0:100", "pack:000003:100:50");
+
+        fileRepository.replacePath("pack:000001:0:100", "pack:000002:0:100");
+
+        assertThat(fileRepository.findById(first.getId())).get()
+                .extracting(File::getPath).isEqualTo("pack:000002:0:100");
+        assertThat(fileRepository.findById(second.getId())).get().usingRecursiveComparison().isEqualTo(File.builder()
+                .id(second.getId())
+                .name("second.jpg")
+                .path("pack:000003:0:100")
+                .thumbnailPath("pack:000002:0:100")
+                .mediumPath("pack:000003:100:50")
+                .build());
+    }
+
+    @Test
+    void whenFindPathsStartingWithThrowExceptionThenReturnEmptySet() {
+        CrudRepository mockCrudRepository = mock(CrudRepository.class);
+        HibernateFileRepository mockFileRepository = new HibernateFileRepository(mockCrudRepository);
+        doThrow(RuntimeException.class).when(mockCrudRepository).query(any(), any(), any());
+
+        assertThat(mockFileRepository.findPathsStartingWith("pack:000001:")).isEmpty();
+    }
+
+    @Test
+    void whenReplacePathThrowExceptionThenNothing() {
+        CrudRepository mockCrudRepository = mock(CrudRepository.class);
+        HibernateFileRepository mockFileRepository = new HibernateFileRepository(mockCrudRepository);
+        doThrow(RuntimeException.class).when(mockCrudRepository).run(any());
+
+        mockFileRepository.replacePath("pack:000001:0:100", "pack:000002:0:100");
+
+        verify(mockCrudRepository, times(1)).run(any());
+    }
+
+    @Test
+    void whenCallEveryMethodThenStatementCountsWithinBounds() {
+        StatementCounter statementCounter = new StatementCounter(sessionFactory);
+
+        File file = statementCounter.assertAtMost("HibernateFileRepository.create", 2,
+                () -> fileRepository.create(new File(null, "count", "count/file")));
+        statementCounter.assertAtMost("HibernateFileRepository.findById", 1, () -> fileRepository.findById(file.getId()));
+        statementCounter.assertAtMost("HibernateFileRepository.findByHash", 1, () -> fileRepository.findByHash("none"));
+        statementCounter.assertAtMost("HibernateFileRepository.findAll", 1, fileRepository::findAll);
+        statementCounter.assertAtMost("HibernateFileRepository.findPageOrderById", 1,
+                () -> fileRepository.findPageOrderById(null, 2));
+        statementCounter.assertAtMost("HibernateFileRepository.streamAll", 1, () -> {
+            try (Stream<File> files = fileRepository.streamAll()) {
+                return files.count();
+            }
+        });
+        statementCounter.assertAtMost("HibernateFileRepository.findAllWithoutVariants", 1,
+                fileRepository::findAllWithoutVariants);
+        statementCounter.assertAtMost("HibernateFileRepository.updateVariants", 2,
+                () -> fileRepository.updateVariants(file.getId(), "count/thumb", "count/medium"));
+        Set<String> paths = statementCounter.assertAtMost("HibernateFileRepository.findPathsStartingWith", 1,
+                () -> fileRepository.findPathsStartingWith("count/"));
+        statementCounter.assertAtMost("HibernateFileRepository.replacePath", 2,
+                () -> fileRepository.replacePath("count/file", "count/moved"));
+        boolean deleted = statementCounter.assertAtMost("HibernateFileRepository.deleteIfUnreferenced", 1,
+                () -> fileRepository.deleteIfUnreferenced(file.getId()));
+        statementCounter.assertAtMost("HibernateFileRepository.delete", 2, () -> fileRepository.delete(file.getId()));
+
+        assertThat(paths).contains("count/file");
+        assertThat(deleted).isTrue();
     }
-}
\ No newline at end of file
+}
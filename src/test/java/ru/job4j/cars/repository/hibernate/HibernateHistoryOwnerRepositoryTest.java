@@ -360,4 +360,30 @@ class HibernateHistoryOwnerRepositoryTest {
 
         verify(crudRepositoryMock, times(1)).run(any(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenCallEveryMethodThenStatementCountsWithinBounds() {
+        StatementCounter statementCounter = new StatementCounter(sessionFactory);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        HistoryOwner historyOwner = statementCounter.assertAtMost("HibernateHistoryOwnerRepository.create", 2,
+                () -> historyOwnerRepository.create(HistoryOwner.builder()
+                        .car(testCars.get(0))
+                        .owner(testOwners.get(0))
+                        .startAt(now)
+                        .build()));
+        statementCounter.assertAtMost("HibernateHistoryOwnerRepository.findAll", 3, historyOwnerRepository::findAll);
+        statementCounter.assertAtMost("HibernateHistoryOwnerRepository.findPageOrderById", 3,
+                () -> historyOwnerRepository.findPageOrderById(null, 2));
+        Optional<HistoryOwner> found = statementCounter.assertAtMost("HibernateHistoryOwnerRepository.findById", 3,
+                () -> historyOwnerRepository.findById(historyOwner.getId()));
+        historyOwner.setEndAt(now.plusDays(1));
+        statementCounter.assertAtMost("HibernateHistoryOwnerRepository.update", 2,
+                () -> historyOwnerRepository.update(historyOwner));
+        statementCounter.assertAtMost("HibernateHistoryOwnerRepository.delete", 1,
+                () -> historyOwnerRepository.delete(historyOwner.getId()));
+
+        assertThat(found).isPresent();
+        assertThat(historyOwnerRepository.findById(historyOwner.getId())).isEmpty();
+    }
+}
@@ -268,4 +268,23 @@ class HibernateOwnerRepositoryTest {
 
         verify(crudRepositoryMock, times(1)).run(any(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenCallEveryMethodThenStatementCountsWithinBounds() {
+        StatementCounter statementCounter = new StatementCounter(sessionFactory);
+
+        Owner owner = statementCounter.assertAtMost("HibernateOwnerRepository.create", 2,
+                () -> ownerRepository.create(Owner.builder().name("Owner-count").user(testUsers.get(0)).build()));
+        statementCounter.assertAtMost("HibernateOwnerRepository.findAll", 2, ownerRepository::findAll);
+        statementCounter.assertAtMost("HibernateOwnerRepository.findPageOrderById", 2,
+                () -> ownerRepository.findPageOrderById(null, 2));
+        Optional<Owner> found = statementCounter.assertAtMost("HibernateOwnerRepository.findById", 2,
+                () -> ownerRepository.findById(owner.getId()));
+        owner.setName("Owner-count-updated");
+        statementCounter.assertAtMost("HibernateOwnerRepository.update", 2, () -> ownerRepository.update(owner));
+        statementCounter.assertAtMost("HibernateOwnerRepository.delete", 1, () -> ownerRepository.delete(owner.getId()));
+
+        assertThat(found).isPresent();
+        assertThat(ownerRepository.findById(owner.getId())).isEmpty();
+    }
+}
@@ -260,4 +260,25 @@ class HibernateParticipateRepositoryTest {
 
         verify(crudRepositoryMock, times(1)).run(any(), any());
     }
+
+    @Test
+    void whenCallEveryMethodThenStatementCountsWithinBounds() {
+        StatementCounter statementCounter = new StatementCounter(sessionFactory);
+
+        Participate participate = statementCounter.assertAtMost("HibernateParticipateRepository.create", 2,
+                () -> participateRepository.create(Participate.builder()
+                        .user(testUsers.get(0))
+                        .post(testPosts.get(1))
+                        .build()));
+        statementCounter.assertAtMost("HibernateParticipateRepository.findAll", 3, participateRepository::findAll);
+        statementCounter.assertAtMost("HibernateParticipateRepository.findPageOrderById", 3,
+                () -> participateRepository.findPageOrderById(null, 2));
+        Optional<Participate> found = statementCounter.assertAtMost("HibernateParticipateRepository.findById", 3,
+                () -> participateRepository.findById(participate.getId()));
+        statementCounter.assertAtMost("HibernateParticipateRepository.delete", 1,
+                () -> participateRepository.delete(participate.getId()));
+
+        assertThat(found).isPresent();
+        assertThat(participateRepository.findById(participate.getId())).isEmpty();
+    }
 }
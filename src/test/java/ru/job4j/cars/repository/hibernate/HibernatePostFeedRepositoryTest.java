@@ -0,0 +1,262 @@
+package ru.job4j.cars.repository.hibernate;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.config.SessionFactoryConfig;
+import ru.job4j.cars.model.*;
+import ru.job4j.cars.repository.Page;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class HibernatePostFeedRepositoryTest {
+    private static SessionFactory sessionFactory;
+    private static CrudRepository crudRepository;
+    private static HibernatePostFeedRepository postFeedRepository;
+    private static HibernatePostRepository postRepository;
+    private static HibernatePostPhotoRepository postPhotoRepository;
+    private static HibernatePriceHistoryRepository priceHistoryRepository;
+    private static HibernateCarRepository carRepository;
+    private static HibernateEngineRepository engineRepository;
+    private static HibernateFileRepository fileRepository;
+    private static HibernateUserRepository userRepository;
+    private static User seller;
+    private static Car car;
+    private static List<File> files;
+
+    @BeforeAll
+    static void beforeAll() {
+        sessionFactory = new SessionFactoryConfig().createSessionFactory();
+        crudRepository = new CrudRepository(sessionFactory);
+        postFeedRepository = new HibernatePostFeedRepository(crudRepository);
+        postRepository = new HibernatePostRepository(crudRepository);
+        postPhotoRepository = new HibernatePostPhotoRepository(crudRepository);
+        priceHistoryRepository = new HibernatePriceHistoryRepository(crudRepository);
+        carRepository = new HibernateCarRepository(crudRepository);
+        engineRepository = new HibernateEngineRepository(crudRepository);
+        fileRepository = new HibernateFileRepository(crudRepository);
+        userRepository = new HibernateUserRepository(crudRepository);
+        seller = userRepository.create(new User(0, "feed-seller", "password"));
+        Engine engine = engineRepository.create(new Engine(null, "feed 1.6 л"));
+        car = carRepository.create(Car.builder().name("Лада Веста").engine(engine).build());
+        files = IntStream.rangeClosed(1, 2)
+                .mapToObj(value -> fileRepository.create(new File(null, "feed-" + value, "feed/path-" + value)))
+                .toList();
+    }
+
+    @AfterEach
+    void tearDown() {
+        priceHistoryRepository.findAll().stream().map(PriceHistory::getId).forEach(priceHistoryRepository::delete);
+        postPhotoRepository.findAll().stream().map(PostPhoto::getId).forEach(postPhotoRepository::delete);
+        postRepository.findAllOrderByCreated().stream().map(Post::getId).forEach(postRepository::delete);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        files.stream().map(File::getId).forEach(fileRepository::delete);
+        carRepository.delete(car.getId());
+        engineRepository.delete(car.getEngine().getId());
+        userRepository.delete(seller.getId());
+        sessionFactory.close();
+    }
+
+    private Post createPost(String description, LocalDateTime created, Car postCar) {
+        return postRepository.create(Post.builder()
+                .description(description)
+                .created(created)
+                .user(seller)
+                .car(postCar)
+                .build());
+    }
+
+    private PriceHistory createPrice(Post post, long before, long after, LocalDateTime created) {
+        return priceHistoryRepository.create(PriceHistory.builder()
+                .before(before)
+                .after(after)
+                .created(created)
+                .post(post)
+                .build());
+    }
+
+    @Test
+    void whenCreatePostThenFeedRowCreated() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Post post = createPost("a".repeat(300), now, car);
+
+        Optional<PostFeed> actualFeed = postFeedRepository.findById(post.getId());
+
+        assertThat(actualFeed).get().usingRecursiveComparison().isEqualTo(new PostFeed(
+                post.getId(), now, "a".repeat(200), "feed-seller", "Лада Веста", "feed 1.6 л", null, 0, null
+        ));
+    }
+
+    @Test
+    void whenPhotosAndPricesChangeThenFeedRowFollows() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Post post = createPost("Post with photos", now, car);
+        PostPhoto second = postPhotoRepository.create(new PostPhoto(null, post, files.get(0), 2));
+        PostPhoto first = postPhotoRepository.create(new PostPhoto(null, post, files.get(1), 1));
+        createPrice(post, 100, 200, now);
+        PriceHistory latest = createPrice(post, 200, 150, now.plusHours(1));
+
+        PostFeed withPhotos = postFeedRepository.findById(post.getId()).orElseThrow();
+        postPhotoRepository.delete(first.getId());
+        priceHistoryRepository.delete(latest.getId());
+        PostFeed afterDelete = postFeedRepository.findById(post.getId()).orElseThrow();
+        postPhotoRepository.delete(second.getId());
+        PostFeed withoutPhotos = postFeedRepository.findById(post.getId()).orElseThrow();
+
+        assertThat(withPhotos.getPhotoCount()).isEqualTo(2);
+        assertThat(withPhotos.getCoverPath()).isEqualTo("feed/path-2");
+        assertThat(withPhotos.getPrice()).isEqualTo(150L);
+        assertThat(afterDelete.getPhotoCount()).isEqualTo(1);
+        assertThat(afterDelete.getCoverPath()).isEqualTo("feed/path-1");
+        assertThat(afterDelete.getPrice()).isEqualTo(200L);
+        assertThat(withoutPhotos.getPhotoCount()).isZero();
+        assertThat(withoutPhotos.getCoverPath()).isNull();
+    }
+
+    @Test
+    void whenUpdateCarAndDeletePostThenFeedRowFollows() {
+        Post post = createPost("Post", LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS), car);
+
+        car.setName("Лада Гранта");
+        carRepository.update(car);
+        Optional<PostFeed> renamed = postFeedRepository.findById(post.getId());
+        car.setName("Лада Веста");
+        carRepository.update(car);
+        postRepository.delete(post.getId());
+
+        assertThat(renamed).get().extracting(PostFeed::getCarName).isEqualTo("Лада Гранта");
+        assertThat(postFeedRepository.findById(post.getId())).isEmpty();
+    }
+
+    @Test
+    void whenUpdateSellerAndEngineThenFeedRowFollows() {
+        Post post = createPost("Post", LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS), car);
+        Engine engine = car.getEngine();
+
+        seller.setLogin("feed-seller-renamed");
+        userRepository.update(seller);
+        engine.setName("feed 1.8 л");
+        engineRepository.update(engine);
+        Optional<PostFeed> renamed = postFeedRepository.findById(post.getId());
+        seller.setLogin("feed-seller");
+        userRepository.update(seller);
+        engine.setName("feed 1.6 л");
+        engineRepository.update(engine);
+
+        assertThat(renamed).get().extracting(PostFeed::getSellerLogin).isEqualTo("feed-seller-renamed");
+        assertThat(renamed).get().extracting(PostFeed::getEngineName).isEqualTo("feed 1.8 л");
+        assertThat(postFeedRepository.findById(post.getId())).get()
+                .extracting(PostFeed::getSellerLogin).isEqualTo("feed-seller");
+    }
+
+    @Test
+    void whenFindPagesThenSingleTableFeedPagesWithoutGaps() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Post> posts = IntStream.range(0, 5)
+                .mapToObj(value -> createPost("Post " + value, now.minusHours(value), value % 2 == 0 ? car : null))
+                .toList();
+        postPhotoRepository.create(new PostPhoto(null, posts.get(1), files.get(0), 1));
+
+        Page<PostFeed> first = postFeedRepository.findPageOrderByCreated(null, 3);
+        Page<PostFeed> second = postFeedRepository.findPageOrderByCreated(first.next(), 3);
+        Page<PostFeed> withPhotos = postFeedRepository.findPageWithPhotosOrderByCreated(null, 3);
+        Page<PostFeed> byCarName = postFeedRepository.findPageByCarNameLike(" веСТА", null, 2);
+
+        assertThat(first.items()).extracting(PostFeed::getPostId)
+                .containsExactly(posts.get(0).getId(), posts.get(1).getId(), posts.get(2).getId());
+        assertThat(second.items()).extracting(PostFeed::getPostId)
+                .containsExactly(posts.get(3).getId(), posts.get(4).getId());
+        assertThat(second.hasNext()).isFalse();
+        assertThat(withPhotos.items()).extracting(PostFeed::getPostId).containsExactly(posts.get(1).getId());
+        assertThat(byCarName.items()).extracting(PostFeed::getPostId)
+                .containsExactly(posts.get(0).getId(), posts.get(2).getId());
+        assertThat(byCarName.hasNext()).isTrue();
+    }
+
+    @Test
+    void whenFindPageByCarNameWithWildcardsThenTheyMatchOnlyThemselves() {
+        createPost("Post", LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS), car);
+
+        assertThat(postFeedRepository.findPageByCarNameLike("%", null, 10).items()).isEmpty();
+        assertThat(postFeedRepository.findPageByCarNameLike("л_да", null, 10).items()).isEmpty();
+        assertThat(postFeedRepository.findPageByCarNameLike(" ЛАДА ", null, 10).items()).hasSize(1);
+    }
+
+    @Test
+    void whenFeedChangedBypassingRepositoriesThenRebuildRestoresIt() {
+        Post post = createPost("Post", LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS), car);
+        crudRepository.run(session -> session.createNativeMutationQuery("delete from post_feed")
+                .setHint(HibernateHints.HINT_NATIVE_SPACES, PostFeeds.TABLE)
+                .executeUpdate());
+
+        Optional<PostFeed> lost = postFeedRepository.findById(post.getId());
+        int rows = postFeedRepository.rebuild();
+
+        assertThat(lost).isEmpty();
+        assertThat(rows).isGreaterThanOrEqualTo(1);
+        assertThat(postFeedRepository.findById(post.getId())).isPresent();
+    }
+
+    @Test
+    void whenFindPageProcessExceptionThenReturnEmptyPage() {
+        CrudRepository crudRepositoryMock = mock(CrudRepository.class);
+        HibernatePostFeedRepository postFeedRepositoryMock = new HibernatePostFeedRepository(crudRepositoryMock);
+        doThrow(RuntimeException.class).when(crudRepositoryMock).query(any(), any(), any(), anyInt());
+
+        Page<PostFeed> actualPage = postFeedRepositoryMock.findPageOrderByCreated(null, 10);
+
+        verify(crudRepositoryMock, times(1)).query(any(), any(), any(), anyInt());
+        assertThat(actualPage.items()).isEmpty();
+    }
+
+    @Test
+    void whenRebuildProcessExceptionThenReturnMinusOne() {
+        CrudRepository crudRepositoryMock = mock(CrudRepository.class);
+        HibernatePostFeedRepository postFeedRepositoryMock = new HibernatePostFeedRepository(crudRepositoryMock);
+        doThrow(RuntimeException.class).when(crudRepositoryMock).tx(any());
+
+        int actualRows = postFeedRepositoryMock.rebuild();
+
+        verify(crudRepositoryMock, times(1)).tx(any());
+        assertThat(actualRows).isEqualTo(-1);
+    }
+
+    @Test
+    void whenCallEveryMethodThenStatementCountsWithinBounds() {
+        StatementCounter statementCounter = new StatementCounter(sessionFactory);
+        Post post = postRepository.create(Post.builder()
+                .description("feed count")
+                .created(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
+                .user(seller)
+                .car(car)
+                .build());
+        postPhotoRepository.create(new PostPhoto(null, post, files.get(0), 0));
+
+        Optional<PostFeed> found = statementCounter.assertAtMost("HibernatePostFeedRepository.findById", 1,
+                () -> postFeedRepository.findById(post.getId()));
+        statementCounter.assertAtMost("HibernatePostFeedRepository.findPageOrderByCreated", 1,
+                () -> postFeedRepository.findPageOrderByCreated(null, 10));
+        statementCounter.assertAtMost("HibernatePostFeedRepository.findPageWithPhotosOrderByCreated", 1,
+                () -> postFeedRepository.findPageWithPhotosOrderByCreated(null, 10));
+        statementCounter.assertAtMost("HibernatePostFeedRepository.findPageByCarNameLike", 1,
+                () -> postFeedRepository.findPageByCarNameLike("веста", null, 10));
+        int rebuilt = statementCounter.assertAtMost("HibernatePostFeedRepository.rebuild", 2,
+                postFeedRepository::rebuild);
+
+        assertThat(found).isPresent();
+        assertThat(rebuilt).isEqualTo(1);
+    }
+}
@@ -191,6 +191,35 @@ class HibernatePostPhotoRepositoryTest {
         assertThat(actualPostPhoto).isEmpty();
     }
 
+    @Test
+    void whenFindByPostAndFileThenReturnOptionalWithPostPhoto() {
+        PostPhoto postPhoto = postPhotoRepository.create(PostPhoto.builder()
+                .post(testPosts.get(1))
+                .photo(testFiles.get(2))
+                .sort(1000)
+                .build());
+
+        Optional<PostPhoto> actualPostPhoto = postPhotoRepository.findByPostAndFile(
+                testPosts.get(1).getId(), testFiles.get(2).getId());
+
+        assertThat(actualPostPhoto).map(PostPhoto::getId).contains(postPhoto.getId());
+        assertThat(actualPostPhoto.get().getPhoto()).usingRecursiveComparison().isEqualTo(testFiles.get(2));
+    }
+
+    @Test
+    void whenFindByPostAndFileOfOtherPostThenReturnOptionalEmpty() {
+        postPhotoRepository.create(PostPhoto.builder()
+                .post(testPosts.get(1))
+                .photo(testFiles.get(2))
+                .sort(1000)
+                .build());
+
+        Optional<PostPhoto> actualPostPhoto = postPhotoRepository.findByPostAndFile(
+                testPosts.get(0).getId(), testFiles.get(2).getId());
+
+        assertThat(actualPostPhoto).isEmpty();
+    }
+
     @Test
     void whenFindAllThenReturnCollectionWithPostPhoto() {
         List<PostPhoto> postPhotos = IntStream.rangeClosed(0, 2).mapToObj(
@@ -289,10 +318,60 @@ class HibernatePostPhotoRepositoryTest {
     void whenDeleteThrowExceptionThenNotException() {
         CrudRepository crudRepositoryMock = mock(CrudRepository.class);
         PostPhotoRepository postPhotoRepositoryMock = new HibernatePostPhotoRepository(crudRepositoryMock);
-        doThrow(RuntimeException.class).when(crudRepositoryMock).run(any(), any());
+        doThrow(RuntimeException.class).when(crudRepositoryMock).run(any());
 
         postPhotoRepositoryMock.delete(1);
 
-        verify(crudRepositoryMock, times(1)).run(any(), any());
+        verify(crudRepositoryMock, times(1)).run(any());
+    }
+
+    @Test
+    void whenCreateAllThenAllCreatedInDbAndHaveId() {
+        List<PostPhoto> postPhotos = IntStream.rangeClosed(0, 2).mapToObj(value -> PostPhoto.builder()
+                .post(testPosts.get(0))
+                .photo(testFiles.get(value))
+                .sort(value)
+                .build()).toList();
+
+        Collection<PostPhoto> actual = postPhotoRepository.createAll(postPhotos);
+
+        assertThat(actual).hasSize(3).allMatch(postPhoto -> postPhoto.getId() != null);
+        assertThat(postPhotoRepository.findAll()).hasSize(3);
+    }
+
+    @Test
+    void whenFileReferencedByPostPhotoThenNotDeletedIfUnreferenced() {
+        PostPhoto postPhoto = postPhotoRepository.create(PostPhoto.builder()
+                .post(testPosts.get(0))
+                .photo(testFiles.get(1))
+                .sort(1000)
+                .build());
+
+        assertThat(fileRepository.deleteIfUnreferenced(testFiles.get(1).getId())).isFalse();
+        assertThat(fileRepository.findById(testFiles.get(1).getId())).isPresent();
+        postPhotoRepository.delete(postPhoto.getId());
+        assertThat(fileRepository.findById(testFiles.get(1).getId())).isPresent();
+    }
+
+    @Test
+    void whenCallEveryMethodThenStatementCountsWithinBounds() {
+        StatementCounter statementCounter = new StatementCounter(sessionFactory);
+
+        PostPhoto postPhoto = statementCounter.assertAtMost("HibernatePostPhotoRepository.create", 4,
+                () -> postPhotoRepository.create(new PostPhoto(null, testPosts.get(0), testFiles.get(0), 0)));
+        statementCounter.assertAtMost("HibernatePostPhotoRepository.createAll", 4,
+                () -> postPhotoRepository.createAll(List.of(
+                        new PostPhoto(null, testPosts.get(1), testFiles.get(1), 0),
+                        new PostPhoto(null, testPosts.get(1), testFiles.get(2), 1))));
+        Optional<PostPhoto> found = statementCounter.assertAtMost("HibernatePostPhotoRepository.findById", 3,
+                () -> postPhotoRepository.findById(postPhoto.getId()));
+        statementCounter.assertAtMost("HibernatePostPhotoRepository.findAll", 6, postPhotoRepository::findAll);
+        statementCounter.assertAtMost("HibernatePostPhotoRepository.findPageOrderById", 3,
+                () -> postPhotoRepository.findPageOrderById(null, 2));
+        statementCounter.assertAtMost("HibernatePostPhotoRepository.delete", 4,
+                () -> postPhotoRepository.delete(postPhoto.getId()));
+
+        assertThat(found).isPresent();
+        assertThat(postPhotoRepository.findById(postPhoto.getId())).isEmpty();
     }
-}
\ No newline at end of file
+}
@@ -6,12 +6,14 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.job4j.cars.config.SessionFactoryConfig;
+import ru.job4j.cars.dto.PostCard;
 import ru.job4j.cars.model.*;
 import ru.job4j.cars.repository.*;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -29,6 +31,7 @@ class HibernatePostRepositoryTest {
     private static CarRepository carRepository;
     private static List<Car> testCars;
     private static EngineRepository engineRepository;
+    private static StatementCounter statementCounter;
 
     @BeforeAll
     static void beforeAll() {
@@ -40,6 +43,7 @@ class HibernatePostRepositoryTest {
         postPhotoRepository = new HibernatePostPhotoRepository(crudRepository);
         carRepository = new HibernateCarRepository(crudRepository);
         engineRepository = new HibernateEngineRepository(crudRepository);
+        statementCounter = new StatementCounter(sessionFactory);
         clearDb();
         initTestDb();
     }
@@ -205,15 +209,55 @@ class HibernatePostRepositoryTest {
         ));
     }
 
+    @Test
+    void whenPostsCreatedAtSameTimeThenFindAllOrderByCreatedThenByIdDesc() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Post> posts = IntStream.range(0, 3).mapToObj(value -> postRepository.create(Post.builder()
+                .description("Same time " + value)
+                .created(now)
+                .user(testUsers.get(value))
+                .build())).toList();
+
+        Collection<Post> actualPosts = postRepository.findAllOrderByCreated();
+
+        assertThat(actualPosts.stream().map(Post::getId).toList()).isEqualTo(List.of(
+                posts.get(2).getId(),
+                posts.get(1).getId(),
+                posts.get(0).getId()
+        ));
+    }
+
+    @Test
+    void whenCreatePostAfterCachedFindAllOrderByCreatedThenFindAllReturnNewPost() {
+        Post first = postRepository.create(Post.builder()
+                .description("First")
+                .created(LocalDateTime.now().minusDays(1).truncatedTo(ChronoUnit.SECONDS))
+                .user(testUsers.get(0))
+                .build());
+        Collection<Post> cachedPosts = postRepository.findAllOrderByCreated();
+        Collection<Post> cachedPostsAgain = postRepository.findAllOrderByCreated();
+
+        Post second = postRepository.create(Post.builder()
+                .description("Second")
+                .created(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
+                .user(testUsers.get(1))
+                .build());
+        Collection<Post> actualPosts = postRepository.findAllOrderByCreated();
+
+        assertThat(cachedPosts.stream().map(Post::getId).toList()).isEqualTo(List.of(first.getId()));
+        assertThat(cachedPostsAgain.stream().map(Post::getId).toList()).isEqualTo(List.of(first.getId()));
+        assertThat(actualPosts.stream().map(Post::getId).toList()).isEqualTo(List.of(second.getId(), first.getId()));
+    }
+
     @Test
     void whenFindAllOrderByCreatedProcessExceptionThenReturnCollectionEmpty() {
         CrudRepository crudRepositoryMock = mock(CrudRepository.class);
         HibernatePostRepository postRepositoryMock = new HibernatePostRepository(crudRepositoryMock);
-        doThrow(RuntimeException.class).when(crudRepositoryMock).query(any(), any());
+        doThrow(RuntimeException.class).when(crudRepositoryMock).readOnly(any());
 
         Collection<Post> actualPosts = postRepositoryMock.findAllOrderByCreated();
 
-        verify(crudRepositoryMock, times(1)).query(any(), any());
+        verify(crudRepositoryMock, times(1)).readOnly(any());
         assertThat(actualPosts).isEmpty();
     }
 
@@ -329,13 +373,13 @@ class HibernatePostRepositoryTest {
     void whenFindAllByCreatedBetweenProcessExceptionThenReturnCollectionsEmpty() {
         CrudRepository crudRepositoryMock = mock(CrudRepository.class);
         HibernatePostRepository postRepositoryMock = new HibernatePostRepository(crudRepositoryMock);
-        doThrow(RuntimeException.class).when(crudRepositoryMock).query(any(), any(), any());
+        doThrow(RuntimeException.class).when(crudRepositoryMock).readOnly(any());
 
         Collection<Post> actualPosts = postRepositoryMock.findAllByCreatedBetween(
                 LocalDateTime.now().minusDays(2), LocalDateTime.now()
         );
 
-        verify(crudRepositoryMock, times(1)).query(any(), any(), any());
+        verify(crudRepositoryMock, times(1)).readOnly(any());
         assertThat(actualPosts).isEmpty();
     }
 
@@ -367,18 +411,18 @@ class HibernatePostRepositoryTest {
 
         assertThat(actualPosts).hasSize(3);
         assertThat(actualPosts.stream().map(Post::getId).toList())
-                .isEqualTo(IntStream.of(0, 1, 3).mapToObj(value -> posts.get(value).getId()).toList());
+                .isEqualTo(IntStream.of(3, 1, 0).mapToObj(value -> posts.get(value).getId()).toList());
     }
 
     @Test
     void whenFindAllWherePhotoIsNotNullProcessExceptionThenReturnCollectionEmpty() {
         CrudRepository crudRepositoryMock = mock(CrudRepository.class);
         HibernatePostRepository postRepositoryMock = new HibernatePostRepository(crudRepositoryMock);
-        doThrow(RuntimeException.class).when(crudRepositoryMock).query(any(), any(), any());
+        doThrow(RuntimeException.class).when(crudRepositoryMock).readOnly(any());
 
         Collection<Post> actualPosts = postRepositoryMock.findAllWherePhotoIsNotNull();
 
-        verify(crudRepositoryMock, times(1)).query(any(), any(), any());
+        verify(crudRepositoryMock, times(1)).readOnly(any());
         assertThat(actualPosts).isEmpty();
     }
 
@@ -397,18 +441,32 @@ class HibernatePostRepositoryTest {
 
         assertThat(actualPosts).hasSize(3);
         assertThat(actualPosts.stream().map(Post::getId).toList())
-                .isEqualTo(IntStream.of(0, 1, 3).mapToObj(value -> posts.get(value).getId()).toList());
+                .isEqualTo(IntStream.of(3, 1, 0).mapToObj(value -> posts.get(value).getId()).toList());
+    }
+
+    @Test
+    void whenFindAllByCarNameLikeWithWildcardsThenTheyMatchOnlyThemselves() {
+        IntStream.rangeClosed(0, 3).forEach(value -> postRepository.create(Post.builder()
+                .description("Post description %s".formatted(value))
+                .created(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
+                .user(testUsers.get(value % testUsers.size()))
+                .car(testCars.get(value))
+                .build()));
+
+        assertThat(postRepository.findAllByCarNameLike("%")).isEmpty();
+        assertThat(postRepository.findAllByCarNameLike("л_да")).isEmpty();
+        assertThat(postRepository.findAllByCarNameLike("!")).isEmpty();
     }
 
     @Test
     void whenFindAllByCarNameLikeProcessExceptionThenReturnCollectionEmpty() {
         CrudRepository crudRepositoryMock = mock(CrudRepository.class);
         HibernatePostRepository postRepositoryMock = new HibernatePostRepository(crudRepositoryMock);
-        doThrow(RuntimeException.class).when(crudRepositoryMock).query(any(), any(), any());
+        doThrow(RuntimeException.class).when(crudRepositoryMock).readOnly(any());
 
         Collection<Post> actualPosts = postRepositoryMock.findAllByCarNameLike("лада");
 
-        verify(crudRepositoryMock, times(1)).query(any(), any(), any());
+        verify(crudRepositoryMock, times(1)).readOnly(any());
         assertThat(actualPosts).isEmpty();
     }
 
@@ -456,4 +514,306 @@ class HibernatePostRepositoryTest {
 
         verify(crudRepositoryMock, times(1)).run(any(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenCreateAllThenAllCreatedInDbAndHaveId() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Post> posts = IntStream.rangeClosed(0, 4).mapToObj(value -> Post.builder()
+                .description("Post description %s".formatted(value))
+                .created(now.minusMinutes(value))
+                .user(testUsers.get(value % testUsers.size()))
+                .car(testCars.get(value % testCars.size()))
+                .build()).toList();
+
+        Collection<Post> actualPosts = postRepository.createAll(posts);
+
+        assertThat(actualPosts).hasSize(5).allMatch(post -> post.getId() != 0);
+        assertThat(postRepository.findAllOrderByCreated().stream().map(Post::getId).toList())
+                .isEqualTo(posts.stream().map(Post::getId).toList());
+    }
+
+    @Test
+    void whenCreateAllFromStreamThenFeedRowsCreated() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Stream<Post> posts = IntStream.rangeClosed(0, 2).mapToObj(value -> Post.builder()
+                .description("Streamed post %s".formatted(value))
+                .created(now.minusMinutes(value))
+                .user(testUsers.get(value % testUsers.size()))
+                .build());
+
+        Collection<Post> actualPosts = postRepository.createAll(posts::iterator);
+
+        assertThat(actualPosts).hasSize(3).allMatch(post -> post.getId() != 0);
+        HibernatePostFeedRepository feedRepository = new HibernatePostFeedRepository(new CrudRepository(sessionFactory));
+        assertThat(actualPosts).allMatch(post -> feedRepository.findById(post.getId()).isPresent());
+    }
+
+    @Test
+    void whenCreateAllChunkFailsThenItsPostsNotReturnedAndFeedNotRefreshed() {
+        CrudRepository crudRepositoryMock = mock(CrudRepository.class);
+        PostRepository postRepositoryMock = new HibernatePostRepository(crudRepositoryMock);
+        Post failed = Post.builder().id(1).description("Failed").build();
+        doAnswer(invocation -> {
+            Consumer<BulkChunk<Post>> listener = invocation.getArgument(3);
+            listener.accept(new BulkChunk<>(1, List.of(failed), new RuntimeException("rolled back")));
+            return 0;
+        }).when(crudRepositoryMock).bulk(any(Iterable.class), anyInt(), any(), any());
+
+        Collection<Post> actualPosts = postRepositoryMock.createAll(List.of(failed));
+
+        assertThat(actualPosts).isEmpty();
+        verify(crudRepositoryMock, never()).run(any(Consumer.class));
+    }
+
+    @Test
+    void whenStreamAllOrderByCreatedThenReturnPostsOrderedWithUserAndCar() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Post> posts = IntStream.rangeClosed(0, 3).mapToObj(value -> postRepository.create(Post.builder()
+                .description("Post description %s".formatted(value))
+                .created(now.minusHours(value))
+                .user(testUsers.get(value % testUsers.size()))
+                .car(testCars.get(value))
+                .build())).toList();
+
+        List<Post> actualPosts;
+        try (Stream<Post> stream = postRepository.streamAllOrderByCreated()) {
+            actualPosts = stream.toList();
+        }
+
+        assertThat(actualPosts.stream().map(Post::getId).toList())
+                .isEqualTo(posts.stream().map(Post::getId).toList());
+        assertThat(actualPosts.stream().map(post -> post.getCar().getEngine().getName()).toList())
+                .containsExactly("1.2 л", "1.4 л", "1.8 л", "1.6 л");
+    }
+
+    @Test
+    void whenFindPagesOrderByCreatedThenPagesFollowFeedOrderWithoutGaps() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Post> posts = IntStream.rangeClosed(0, 4).mapToObj(value -> postRepository.create(Post.builder()
+                .description("Post description %s".formatted(value))
+                .created(value < 2 ? now : now.minusHours(value))
+                .user(testUsers.get(value % testUsers.size()))
+                .car(testCars.get(value % testCars.size()))
+                .build())).toList();
+        postPhotoRepository.create(new PostPhoto(null, posts.get(0), testFiles.get(0), 1000));
+
+        Page<Post> first = postRepository.findPageOrderByCreated(null, 2);
+        Page<Post> second = postRepository.findPageOrderByCreated(first.next(), 2);
+        Page<Post> third = postRepository.findPageOrderByCreated(second.next(), 2);
+
+        List<Integer> expectedIds = List.of(
+                posts.get(1).getId(), posts.get(0).getId(),
+                posts.get(2).getId(), posts.get(3).getId(),
+                posts.get(4).getId()
+        );
+        assertThat(Stream.of(first, second, third).flatMap(page -> page.items().stream()).map(Post::getId).toList())
+                .isEqualTo(expectedIds);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.hasNext()).isTrue();
+        assertThat(third.hasNext()).isFalse();
+        assertThat(first.items().get(1).getPhotos()).hasSize(1);
+    }
+
+    @Test
+    void whenFindPageOrderByCreatedProcessExceptionThenReturnEmptyPage() {
+        CrudRepository crudRepositoryMock = mock(CrudRepository.class);
+        HibernatePostRepository postRepositoryMock = new HibernatePostRepository(crudRepositoryMock);
+        doThrow(RuntimeException.class).when(crudRepositoryMock).readOnly(any());
+
+        Page<Post> actualPage = postRepositoryMock.findPageOrderByCreated(null, 10);
+
+        assertThat(actualPage.items()).isEmpty();
+        assertThat(actualPage.hasNext()).isFalse();
+    }
+
+    @Test
+    void whenFindCardPagesOrderByCreatedThenCardsWithExcerptAndCover() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Post withPhotos = postRepository.create(Post.builder()
+                .description("a".repeat(300))
+                .created(now)
+                .user(testUsers.get(0))
+                .car(testCars.get(0))
+                .build());
+        Post withoutCar = postRepository.create(Post.builder()
+                .description("Post without car")
+                .created(now.minusHours(1))
+                .user(testUsers.get(1))
+                .build());
+        postPhotoRepository.create(new PostPhoto(null, withPhotos, testFiles.get(0), 2));
+        postPhotoRepository.create(new PostPhoto(null, withPhotos, testFiles.get(1), 1));
+
+        Page<PostCard> first = postRepository.findCardPageOrderByCreated(null, 1);
+        Page<PostCard> second = postRepository.findCardPageOrderByCreated(first.next(), 1);
+
+        assertThat(first.items()).containsExactly(new PostCard(
+                withPhotos.getId(), "a".repeat(200), now, "ivanov", "Лада Калина", "1.2 л", "path/to/file-2"
+        ));
+        assertThat(second.items()).containsExactly(new PostCard(
+                withoutCar.getId(), "Post without car", now.minusHours(1), "petrov", null, null, null
+        ));
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void whenFindCardPageOrderByCreatedProcessExceptionThenReturnEmptyPage() {
+        CrudRepository crudRepositoryMock = mock(CrudRepository.class);
+        HibernatePostRepository postRepositoryMock = new HibernatePostRepository(crudRepositoryMock);
+        doThrow(RuntimeException.class).when(crudRepositoryMock).query(any(), any(), any(), anyInt());
+
+        Page<PostCard> actualPage = postRepositoryMock.findCardPageOrderByCreated(null, 10);
+
+        verify(crudRepositoryMock, times(1)).query(any(), any(), any(), anyInt());
+        assertThat(actualPage.items()).isEmpty();
+    }
+
+    @Test
+    void whenSearchByCarNamePrefixThenPostsWithCarNameStartsWithTerm() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Post> posts = IntStream.rangeClosed(0, 3).mapToObj(value -> postRepository.create(Post.builder()
+                .description("Post description %s".formatted(value))
+                .created(now.minusHours(value))
+                .user(testUsers.get(value % testUsers.size()))
+                .car(testCars.get(value))
+                .build())).toList();
+
+        List<Post> actualPosts = postRepository.searchByCarName(" ЛАДА", SearchMode.PREFIX, 10);
+
+        assertThat(actualPosts.stream().map(Post::getId).toList())
+                .isEqualTo(IntStream.of(0, 1, 3).mapToObj(value -> posts.get(value).getId()).toList());
+        assertThat(actualPosts.get(0).getCar().getEngine().getName()).isEqualTo("1.2 л");
+    }
+
+    @Test
+    void whenSearchByCarNameSubstringThenExactMatchFirstAndLimited() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Car exactCar = carRepository.create(Car.builder().name("Веста").engine(testCars.get(1).getEngine()).build());
+        Post exact = postRepository.create(Post.builder()
+                .description("Exact")
+                .created(now.minusDays(1))
+                .user(testUsers.get(0))
+                .car(exactCar)
+                .build());
+        Post substring = postRepository.create(Post.builder()
+                .description("Substring")
+                .created(now)
+                .user(testUsers.get(1))
+                .car(testCars.get(1))
+                .build());
+
+        List<Post> actualPosts = postRepository.searchByCarName("веста", SearchMode.SUBSTRING, 2);
+        List<Post> limitedPosts = postRepository.searchByCarName("веста", SearchMode.SUBSTRING, 1);
+        List<Post> escapedPosts = postRepository.searchByCarName("%", SearchMode.SUBSTRING, 10);
+
+        assertThat(actualPosts.stream().map(Post::getId).toList()).isEqualTo(List.of(exact.getId(), substring.getId()));
+        assertThat(limitedPosts.stream().map(Post::getId).toList()).isEqualTo(List.of(exact.getId()));
+        assertThat(escapedPosts).isEmpty();
+    }
+
+    @Test
+    void whenSearchByCarNameProcessExceptionThenReturnEmptyList() {
+        CrudRepository crudRepositoryMock = mock(CrudRepository.class);
+        HibernatePostRepository postRepositoryMock = new HibernatePostRepository(crudRepositoryMock);
+        doThrow(RuntimeException.class).when(crudRepositoryMock).readOnly(any());
+
+        List<Post> actualPosts = postRepositoryMock.searchByCarName("лада", SearchMode.SUBSTRING, 10);
+
+        verify(crudRepositoryMock, times(1)).readOnly(any());
+        assertThat(actualPosts).isEmpty();
+    }
+
+    private static List<Post> createPostsWithPhotos(int count) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Post> posts = IntStream.range(0, count).mapToObj(value -> postRepository.create(Post.builder()
+                .description("Post description %s".formatted(value))
+                .created(now.minusMinutes(value))
+                .user(testUsers.get(value % testUsers.size()))
+                .car(testCars.get(value % testCars.size()))
+                .build())).toList();
+        posts.forEach(post -> IntStream.range(0, post.getId() % testFiles.size() + 1).forEach(value ->
+                postPhotoRepository.create(new PostPhoto(null, post, testFiles.get(value), value))));
+        return posts;
+    }
+
+    @Test
+    void whenFindAllOrderByCreatedFor50PostsWithPhotosThenAtMost3Statements() {
+        List<Post> posts = createPostsWithPhotos(50);
+
+        Collection<Post> actualPosts = statementCounter.assertAtMost(
+                "HibernatePostRepository.findAllOrderByCreated", 3, postRepository::findAllOrderByCreated);
+
+        assertThat(actualPosts).hasSize(50);
+        assertThat(actualPosts).allSatisfy(post -> assertThat(post.getPhotos())
+                .hasSize(post.getId() % testFiles.size() + 1));
+        assertThat(actualPosts.iterator().next().getId()).isEqualTo(posts.get(0).getId());
+    }
+
+    private static Map<String, Integer> countFindStatements(int count) {
+        clearPostAndPostPhotoDb();
+        List<Post> posts = createPostsWithPhotos(count);
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("findById", statementCounter.count("HibernatePostRepository.findById",
+                () -> postRepository.findById(posts.get(0).getId())));
+        counts.put("findAllOrderByCreated", statementCounter.count("HibernatePostRepository.findAllOrderByCreated",
+                postRepository::findAllOrderByCreated));
+        counts.put("findPageOrderByCreated", statementCounter.count("HibernatePostRepository.findPageOrderByCreated",
+                () -> postRepository.findPageOrderByCreated(null, 10)));
+        counts.put("findCardPageOrderByCreated", statementCounter.count("HibernatePostRepository.findCardPageOrderByCreated",
+                () -> postRepository.findCardPageOrderByCreated(null, 10)));
+        counts.put("findAllByCreatedBetween", statementCounter.count("HibernatePostRepository.findAllByCreatedBetween",
+                () -> postRepository.findAllByCreatedBetween(now.minusDays(1), now)));
+        counts.put("findAllWherePhotoIsNotNull", statementCounter.count("HibernatePostRepository.findAllWherePhotoIsNotNull",
+                postRepository::findAllWherePhotoIsNotNull));
+        counts.put("findAllByCarNameLike", statementCounter.count("HibernatePostRepository.findAllByCarNameLike",
+                () -> postRepository.findAllByCarNameLike("лада")));
+        counts.put("searchByCarName", statementCounter.count("HibernatePostRepository.searchByCarName",
+                () -> postRepository.searchByCarName("лада", SearchMode.SUBSTRING, 10)));
+        return counts;
+    }
+
+    @Test
+    void whenFindPostsThenStatementCountNotDependOnPostCount() {
+        Map<String, Integer> fewPosts = countFindStatements(5);
+        Map<String, Integer> manyPosts = countFindStatements(25);
+
+        assertThat(manyPosts).isEqualTo(fewPosts);
+        assertThat(manyPosts).containsEntry("findById", 2)
+                .containsEntry("findAllOrderByCreated", 3)
+                .containsEntry("findPageOrderByCreated", 3)
+                .containsEntry("findCardPageOrderByCreated", 1)
+                .containsEntry("findAllByCreatedBetween", 3)
+                .containsEntry("findAllWherePhotoIsNotNull", 3)
+                .containsEntry("findAllByCarNameLike", 3)
+                .containsEntry("searchByCarName", 3);
+        assertThat(postRepository.searchByCarName("лада", SearchMode.SUBSTRING, 10)).hasSize(10);
+    }
+
+    @Test
+    void whenWritePostsThenStatementCountsWithinBounds() {
+        Post post = statementCounter.assertAtMost("HibernatePostRepository.create", 4,
+                () -> postRepository.create(Post.builder()
+                        .description("count")
+                        .created(LocalDateTime.now())
+                        .user(testUsers.get(0))
+                        .build()));
+        statementCounter.assertAtMost("HibernatePostRepository.createAll", 4,
+                () -> postRepository.createAll(IntStream.range(0, 10).mapToObj(value -> Post.builder()
+                        .description("count %s".formatted(value))
+                        .created(LocalDateTime.now())
+                        .user(testUsers.get(1))
+                        .build()).toList()));
+        post.setDescription("count updated");
+        statementCounter.assertAtMost("HibernatePostRepository.update", 5, () -> postRepository.update(post));
+        long streamed = statementCounter.assertAtMost("HibernatePostRepository.streamAllOrderByCreated", 1, () -> {
+            try (Stream<Post> posts = postRepository.streamAllOrderByCreated()) {
+                return posts.count();
+            }
+        });
+        statementCounter.assertAtMost("HibernatePostRepository.delete", 2, () -> postRepository.delete(post.getId()));
+
+        assertThat(streamed).isEqualTo(11);
+        assertThat(postRepository.findById(post.getId())).isEmpty();
+    }
+}
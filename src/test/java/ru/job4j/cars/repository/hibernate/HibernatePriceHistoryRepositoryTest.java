@@ -6,6 +6,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import ru.job4j.cars.config.SessionFactoryConfig;
+import ru.job4j.cars.dto.PriceStats;
 import ru.job4j.cars.model.Post;
 import ru.job4j.cars.model.PriceHistory;
 import ru.job4j.cars.model.User;
@@ -16,8 +17,10 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -332,10 +335,184 @@ class HibernatePriceHistoryRepositoryTest {
     void whenDeleteProcessExceptionThenNothing() {
         CrudRepository crudRepositoryMock = mock(CrudRepository.class);
         HibernatePriceHistoryRepository priceHistoryRepositoryMock = new HibernatePriceHistoryRepository(crudRepositoryMock);
-        doThrow(RuntimeException.class).when(crudRepositoryMock).run(any(), any());
+        doThrow(RuntimeException.class).when(crudRepositoryMock).run(any());
 
         priceHistoryRepositoryMock.delete(1);
 
-        verify(crudRepositoryMock, times(1)).run(any(), any());
+        verify(crudRepositoryMock, times(1)).run(any());
+    }
+
+    @Test
+    void whenCreateAllThenAllCreatedInDbAndHaveId() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<PriceHistory> priceHistories = IntStream.rangeClosed(0, 3).mapToObj(value -> PriceHistory.builder()
+                .before(100L * value)
+                .after(100L * value + 50)
+                .created(now)
+                .post(testPosts.get(value))
+                .build()).toList();
+
+        Collection<PriceHistory> actual = priceHistoryRepository.createAll(priceHistories);
+
+        assertThat(actual).hasSize(4).allMatch(priceHistory -> priceHistory.getId() != 0);
+        assertThat(priceHistoryRepository.findAll()).hasSize(4);
+    }
+
+    @Test
+    void whenStreamAllThenReturnAllPriceHistoriesWithPost() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<PriceHistory> priceHistories = IntStream.rangeClosed(0, 3).mapToObj(value -> priceHistoryRepository.create(
+                PriceHistory.builder()
+                        .before(value)
+                        .after(value + 1)
+                        .created(now)
+                        .post(testPosts.get(value))
+                        .build()
+        )).toList();
+
+        List<PriceHistory> actual;
+        try (Stream<PriceHistory> stream = priceHistoryRepository.streamAll()) {
+            actual = stream.toList();
+        }
+
+        assertThat(actual.stream().map(PriceHistory::getId).toList())
+                .isEqualTo(priceHistories.stream().map(PriceHistory::getId).toList());
+        assertThat(actual.stream().map(priceHistory -> priceHistory.getPost().getId()).toList())
+                .isEqualTo(testPosts.stream().map(Post::getId).toList());
+    }
+
+    private List<PriceHistory> createPriceChanges(Post post, LocalDateTime start, long... prices) {
+        return IntStream.range(1, prices.length).mapToObj(value -> priceHistoryRepository.create(
+                PriceHistory.builder()
+                        .before(prices[value - 1])
+                        .after(prices[value])
+                        .created(start.plusDays(value))
+                        .post(post)
+                        .build()
+        )).toList();
+    }
+
+    @Test
+    void whenFindPriceAtThenReturnPriceAfterLastChangeBeforeInstant() {
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        createPriceChanges(testPosts.get(0), start, 100, 200, 150, 300);
+
+        Optional<Long> beforeChanges = priceHistoryRepository.findPriceAt(testPosts.get(0).getId(), start);
+        Optional<Long> atSecondChange = priceHistoryRepository.findPriceAt(testPosts.get(0).getId(), start.plusDays(2));
+        Optional<Long> betweenChanges = priceHistoryRepository.findPriceAt(
+                testPosts.get(0).getId(), start.plusDays(2).plusHours(12));
+        Optional<Long> afterChanges = priceHistoryRepository.findPriceAt(testPosts.get(0).getId(), start.plusYears(1));
+
+        assertThat(beforeChanges).isEmpty();
+        assertThat(atSecondChange).contains(150L);
+        assertThat(betweenChanges).contains(150L);
+        assertThat(afterChanges).contains(300L);
+    }
+
+    @Test
+    void whenFindPriceAtProcessExceptionThenReturnOptionalEmpty() {
+        CrudRepository crudRepositoryMock = mock(CrudRepository.class);
+        HibernatePriceHistoryRepository priceHistoryRepositoryMock = new HibernatePriceHistoryRepository(crudRepositoryMock);
+        doThrow(RuntimeException.class).when(crudRepositoryMock).query(any(), any(), any(), anyInt());
+
+        Optional<Long> actualPrice = priceHistoryRepositoryMock.findPriceAt(1, LocalDateTime.now());
+
+        verify(crudRepositoryMock, times(1)).query(any(), any(), any(), anyInt());
+        assertThat(actualPrice).isEmpty();
+    }
+
+    @Test
+    void whenFindLatestPricesThenReturnLastPricePerPostWithHistory() {
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        createPriceChanges(testPosts.get(0), start, 100, 200, 150);
+        createPriceChanges(testPosts.get(1), start, 500, 400);
+        createPriceChanges(testPosts.get(2), start, 700, 800);
+
+        Map<Integer, Long> actualPrices = priceHistoryRepository.findLatestPrices(List.of(
+                testPosts.get(0).getId(), testPosts.get(1).getId(), testPosts.get(3).getId()));
+
+        assertThat(actualPrices).isEqualTo(Map.of(
+                testPosts.get(0).getId(), 150L,
+                testPosts.get(1).getId(), 400L
+        ));
+        assertThat(priceHistoryRepository.findLatestPrices(List.of())).isEmpty();
+    }
+
+    @Test
+    void whenFindLatestPricesProcessExceptionThenReturnMapEmpty() {
+        CrudRepository crudRepositoryMock = mock(CrudRepository.class);
+        HibernatePriceHistoryRepository priceHistoryRepositoryMock = new HibernatePriceHistoryRepository(crudRepositoryMock);
+        doThrow(RuntimeException.class).when(crudRepositoryMock).query(any(), any(), any());
+
+        Map<Integer, Long> actualPrices = priceHistoryRepositoryMock.findLatestPrices(List.of(1, 2));
+
+        verify(crudRepositoryMock, times(1)).query(any(), any(), any());
+        assertThat(actualPrices).isEmpty();
+    }
+
+    @Test
+    void whenFindStatsThenReturnMinMaxFirstLastInWindow() {
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        createPriceChanges(testPosts.get(0), start, 100, 200, 150, 300, 250);
+        int postId = testPosts.get(0).getId();
+
+        Optional<PriceStats> window = priceHistoryRepository.findStats(postId, start.plusDays(2), start.plusDays(3));
+        Optional<PriceStats> all = priceHistoryRepository.findStats(postId, start, start.plusYears(1));
+        Optional<PriceStats> empty = priceHistoryRepository.findStats(postId, start.minusDays(2), start);
+
+        assertThat(window).contains(new PriceStats(postId, 2, 150, 300, 150, 300));
+        assertThat(all).contains(new PriceStats(postId, 4, 150, 300, 200, 250));
+        assertThat(empty).isEmpty();
+    }
+
+    @Test
+    void whenFindStatsProcessExceptionThenReturnOptionalEmpty() {
+        CrudRepository crudRepositoryMock = mock(CrudRepository.class);
+        HibernatePriceHistoryRepository priceHistoryRepositoryMock = new HibernatePriceHistoryRepository(crudRepositoryMock);
+        doThrow(RuntimeException.class).when(crudRepositoryMock).optional(any(), any(), any());
+
+        Optional<PriceStats> actualStats = priceHistoryRepositoryMock.findStats(
+                1, LocalDateTime.now().minusDays(1), LocalDateTime.now());
+
+        verify(crudRepositoryMock, times(1)).optional(any(), any(), any());
+        assertThat(actualStats).isEmpty();
+    }
+
+    @Test
+    void whenCallEveryMethodThenStatementCountsWithinBounds() {
+        StatementCounter statementCounter = new StatementCounter(sessionFactory);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Post post = testPosts.get(0);
+
+        PriceHistory priceHistory = statementCounter.assertAtMost("HibernatePriceHistoryRepository.create", 4,
+                () -> priceHistoryRepository.create(new PriceHistory(0, 100, 90, now.minusDays(2), post)));
+        statementCounter.assertAtMost("HibernatePriceHistoryRepository.createAll", 4,
+                () -> priceHistoryRepository.createAll(List.of(
+                        new PriceHistory(0, 90, 80, now.minusDays(1), post),
+                        new PriceHistory(0, 80, 70, now, testPosts.get(1)))));
+        statementCounter.assertAtMost("HibernatePriceHistoryRepository.findAll", 3, priceHistoryRepository::findAll);
+        statementCounter.assertAtMost("HibernatePriceHistoryRepository.findPageOrderById", 3,
+                () -> priceHistoryRepository.findPageOrderById(null, 2));
+        statementCounter.assertAtMost("HibernatePriceHistoryRepository.streamAll", 1, () -> {
+            try (Stream<PriceHistory> priceHistories = priceHistoryRepository.streamAll()) {
+                return priceHistories.count();
+            }
+        });
+        statementCounter.assertAtMost("HibernatePriceHistoryRepository.findById", 2,
+                () -> priceHistoryRepository.findById(priceHistory.getId()));
+        Optional<Long> price = statementCounter.assertAtMost("HibernatePriceHistoryRepository.findPriceAt", 1,
+                () -> priceHistoryRepository.findPriceAt(post.getId(), now.minusHours(1)));
+        statementCounter.assertAtMost("HibernatePriceHistoryRepository.findLatestPrices", 1,
+                () -> priceHistoryRepository.findLatestPrices(List.of(post.getId(), testPosts.get(1).getId())));
+        statementCounter.assertAtMost("HibernatePriceHistoryRepository.findStats", 1,
+                () -> priceHistoryRepository.findStats(post.getId(), now.minusDays(3), now));
+        priceHistory.setAfter(95);
+        statementCounter.assertAtMost("HibernatePriceHistoryRepository.update", 5,
+                () -> priceHistoryRepository.update(priceHistory));
+        statementCounter.assertAtMost("HibernatePriceHistoryRepository.delete", 4,
+                () -> priceHistoryRepository.delete(priceHistory.getId()));
+
+        assertThat(price).contains(80L);
+        assertThat(priceHistoryRepository.findById(priceHistory.getId())).isEmpty();
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import ru.job4j.cars.config.SessionFactoryConfig;
 import ru.job4j.cars.model.User;
+import ru.job4j.cars.repository.Page;
 
 import java.util.List;
 import java.util.Optional;
@@ -241,4 +242,40 @@ class HibernateUserRepositoryTest {
         assertThat(actualUsers).isEmpty();
         assertThat(actualOptionalUser).isEmpty();
     }
+
+    @Test
+    void whenFindPageOrderByIdThenReturnPagesByCursor() {
+        List<User> users = IntStream.rangeClosed(0, 4)
+                .mapToObj(value -> userRepository.create(new User(0, "user-" + value, "password")))
+                .toList();
+
+        Page<User> first = userRepository.findPageOrderById(null, 3);
+        Page<User> second = userRepository.findPageOrderById(first.next(), 3);
+
+        assertThat(first.items()).usingRecursiveComparison().isEqualTo(users.subList(0, 3));
+        assertThat(second.items()).usingRecursiveComparison().isEqualTo(users.subList(3, 5));
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void whenCallEveryMethodThenStatementCountsWithinBounds() {
+        StatementCounter statementCounter = new StatementCounter(sessionFactory);
+
+        User user = statementCounter.assertAtMost("HibernateUserRepository.create", 2,
+                () -> userRepository.create(new User(0, "count", "password")));
+        user.setPassword("updated");
+        statementCounter.assertAtMost("HibernateUserRepository.update", 4, () -> userRepository.update(user));
+        statementCounter.assertAtMost("HibernateUserRepository.findAllOrderById", 1, userRepository::findAllOrderById);
+        statementCounter.assertAtMost("HibernateUserRepository.findPageOrderById", 1,
+                () -> userRepository.findPageOrderById(null, 2));
+        statementCounter.assertAtMost("HibernateUserRepository.findById", 1, () -> userRepository.findById(user.getId()));
+        statementCounter.assertAtMost("HibernateUserRepository.findByLikeLogin", 1,
+                () -> userRepository.findByLikeLogin("cou"));
+        Optional<User> found = statementCounter.assertAtMost("HibernateUserRepository.findByLogin", 1,
+                () -> userRepository.findByLogin("count"));
+        statementCounter.assertAtMost("HibernateUserRepository.delete", 1, () -> userRepository.delete(user.getId()));
+
+        assertThat(found).isPresent();
+        assertThat(userRepository.findById(user.getId())).isEmpty();
+    }
 }
@@ -0,0 +1,100 @@
+package ru.job4j.cars.repository.hibernate;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.JdbcSettings;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.job4j.cars.model.Post;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Чтение 1M объявлений через streamAllOrderByCreated в маленькой куче.
+ * Запускается отдельным выполнением surefire "heap" с -Xmx${heap.test.xmx}.
+ * База H2 в файле во временном каталоге, объявления и их автомобили создаются SQL-запросами
+ * в самой базе, поэтому в куче теста нет ни списка объявлений, ни данных базы целиком:
+ * тест проходит, только если поток не копит прочитанные объявления.
+ * Для скорости заполнения проверка внешних ключей отключена, индекс ленты - как
+ * в 014_ddl_create_auto_post_created_id_index.sql, чтобы база не сортировала 1M строк.
+ */
+@Tag("heap")
+class PostStreamHeapTest {
+    private static final int POSTS = 1_000_000;
+    private static final int CHUNK = 100_000;
+    private static final long POST_SIZE = 200;
+
+    @TempDir
+    Path directory;
+
+    private SessionFactory sessionFactory() {
+        return new MetadataSources(new StandardServiceRegistryBuilder().configure()
+                .applySetting(JdbcSettings.JAKARTA_JDBC_URL, "jdbc:h2:" + directory.resolve("stream")
+                        + ";MODE=PostgreSQL;CASE_INSENSITIVE_IDENTIFIERS=TRUE")
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create")
+                .applySetting(AvailableSettings.SHOW_SQL, false)
+                .applySetting(AvailableSettings.FORMAT_SQL, false)
+                .applySetting(AvailableSettings.HIGHLIGHT_SQL, false)
+                .build()).buildMetadata().buildSessionFactory();
+    }
+
+    private static void seed(CrudRepository crudRepository) {
+        crudRepository.run(session -> {
+            session.createNativeMutationQuery("set referential_integrity false").executeUpdate();
+            session.createNativeMutationQuery(
+                    "create index auto_post_created_id_idx on auto_post (created desc, id desc)").executeUpdate();
+            session.createNativeMutationQuery("insert into engine(id, name) values (1, 'heap-engine')")
+                    .executeUpdate();
+            session.createNativeMutationQuery("insert into auto_user(id, login, password) values (1, 'heap', 'heap')")
+                    .executeUpdate();
+        });
+        for (int from = 1; from <= POSTS; from += CHUNK) {
+            int start = from;
+            crudRepository.run(session -> {
+                session.createNativeMutationQuery("""
+                                insert into car(id, name, engine_id)
+                                select x, 'heap car ' || x, 1 from system_range(:from, :to)""")
+                        .setParameter("from", start)
+                        .setParameter("to", start + CHUNK - 1)
+                        .executeUpdate();
+                session.createNativeMutationQuery("""
+                                insert into auto_post(id, description, created, auto_user_id, car_id)
+                                select x, 'heap post ' || x, dateadd(minute, -x, timestamp '2024-01-01 00:00:00'), 1, x
+                                from system_range(:from, :to)""")
+                        .setParameter("from", start)
+                        .setParameter("to", start + CHUNK - 1)
+                        .executeUpdate();
+            });
+        }
+    }
+
+    @Test
+    void whenStreamMillionPostsThenAllReadWithinSmallHeap() {
+        assumeTrue(Runtime.getRuntime().maxMemory() < POSTS * POST_SIZE,
+                "heap is too large to prove streaming, run in the surefire heap execution");
+        try (SessionFactory sessionFactory = sessionFactory()) {
+            CrudRepository crudRepository = new CrudRepository(sessionFactory);
+            seed(crudRepository);
+            HibernatePostRepository postRepository = new HibernatePostRepository(crudRepository);
+            AtomicLong count = new AtomicLong();
+            AtomicLong previous = new AtomicLong();
+            try (Stream<Post> posts = postRepository.streamAllOrderByCreated()) {
+                posts.forEach(post -> {
+                    assertThat((long) post.getId()).isGreaterThan(previous.get());
+                    assertThat(post.getCar().getEngine().getName()).isEqualTo("heap-engine");
+                    previous.set(post.getId());
+                    count.incrementAndGet();
+                });
+            }
+            assertThat(count.get()).isEqualTo(POSTS);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package ru.job4j.cars.repository.hibernate;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.config.SessionFactoryConfig;
+import ru.job4j.cars.model.*;
+import ru.job4j.cars.repository.Cursor;
+import ru.job4j.cars.repository.SearchMode;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Планы запросов репозиториев на H2. Запросы с условием не должны читать таблицу целиком:
+ * tableScan допустим только у ведущей таблицы запроса без where.
+ */
+class QueryPlanTest {
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\*\\s*\\S+\\.tableScan\\s*\\*/", Pattern.CASE_INSENSITIVE);
+    private static final List<Pattern> ALLOWED_SCANS = List.of(
+            /* Поиск по вхождению в название автомобиля, на PostgreSQL GIN индекс pg_trgm. */
+            Pattern.compile("lower\\(\\w+\\.name\\) like", Pattern.CASE_INSENSITIVE),
+            /* Поиск пользователей по вхождению в login. */
+            Pattern.compile("lower\\(\\w+\\.login\\) like", Pattern.CASE_INSENSITIVE),
+            /* Объявления с фото: условие проверяется для каждого объявления. */
+            Pattern.compile("\\(select count\\(", Pattern.CASE_INSENSITIVE)
+    );
+    private static final LocalDateTime NOW = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private static SessionFactory sessionFactory;
+    private static CrudRepository crudRepository;
+    private static List<User> users;
+    private static List<Car> cars;
+    private static List<Post> posts;
+
+    @BeforeAll
+    static void beforeAll() {
+        sessionFactory = new SessionFactoryConfig().createSessionFactory();
+        crudRepository = new CrudRepository(sessionFactory);
+        clearDb();
+        seed();
+        crudRepository.run(session -> session.doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("analyze");
+            }
+        }));
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        clearDb();
+        sessionFactory.close();
+    }
+
+    private static void clearDb() {
+        crudRepository.run(session -> {
+            Stream.of("PostPhoto", "PriceHistory", "Participate", "Post", "HistoryOwner", "Owner", "File", "Car", "Engine")
+                    .forEach(entity -> session.createMutationQuery("delete from " + entity).executeUpdate());
+            session.createMutationQuery("delete from User where login like 'plan-%'").executeUpdate();
+        });
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    private static void seed() {
+        HibernateEngineRepository engineRepository = new HibernateEngineRepository(crudRepository);
+        List<Engine> engines = IntStream.range(0, 10)
+                .mapToObj(i -> engineRepository.create(new Engine(null, "plan-engine-" + i))).toList();
+        HibernateUserRepository userRepository = new HibernateUserRepository(crudRepository);
+        users = IntStream.range(0, 20)
+                .mapToObj(i -> userRepository.create(new User(0, "plan-" + i, "password"))).toList();
+        cars = List.copyOf(new HibernateCarRepository(crudRepository).createAll(IntStream.range(0, 200)
+                .mapToObj(i -> Car.builder().name("plan-car-" + i).engine(engines.get(i % engines.size())).build())
+                .toList()));
+        posts = List.copyOf(new HibernatePostRepository(crudRepository).createAll(IntStream.range(0, 1000)
+                .mapToObj(i -> Post.builder()
+                        .description("plan post " + i)
+                        .created(NOW.minusMinutes(i))
+                        .user(users.get(i % users.size()))
+                        .car(cars.get(i % cars.size()))
+                        .build())
+                .toList()));
+        seedPhotosAndPrices();
+        seedOwners();
+    }
+
+    private static void seedPhotosAndPrices() {
+        HibernateFileRepository fileRepository = new HibernateFileRepository(crudRepository);
+        List<File> files = IntStream.range(0, 100)
+                .mapToObj(i -> fileRepository.create(new File(null, "plan-" + i, "plan/path-" + i))).toList();
+        new HibernatePostPhotoRepository(crudRepository).createAll(IntStream.range(0, 500)
+                .mapToObj(i -> new PostPhoto(null, posts.get(i), files.get(i % files.size()), i % 3))
+                .toList());
+        new HibernatePriceHistoryRepository(crudRepository).createAll(IntStream.range(0, 1000)
+                .mapToObj(i -> new PriceHistory(0, 1000 + i, 900 + i, NOW.minusDays(i % 30), posts.get(i % 500)))
+                .toList());
+    }
+
+    private static void seedOwners() {
+        HibernateOwnerRepository ownerRepository = new HibernateOwnerRepository(crudRepository);
+        List<Owner> owners = users.stream()
+                .map(user -> ownerRepository.create(Owner.builder().name(user.getLogin()).user(user).build())).toList();
+        HibernateHistoryOwnerRepository historyOwnerRepository = new HibernateHistoryOwnerRepository(crudRepository);
+        IntStream.range(0, cars.size()).forEach(i -> historyOwnerRepository.create(HistoryOwner.builder()
+                .car(cars.get(i))
+                .owner(owners.get(i % owners.size()))
+                .startAt(NOW.minusYears(1))
+                .build()));
+        HibernateParticipateRepository participateRepository = new HibernateParticipateRepository(crudRepository);
+        IntStream.range(0, 50).forEach(i -> participateRepository.create(
+                new Participate(null, users.get(i % users.size()), posts.get(i))));
+    }
+
+    @Test
+    void whenRunRepositoryQueriesThenFilteredQueriesDoNotScanTables() {
+        RecordingStatementInspector.start();
+        runPostQueries();
+        runReferenceQueries();
+        List<String> statements = RecordingStatementInspector.stop().stream()
+                .filter(sql -> sql.strip().toLowerCase(Locale.ROOT).startsWith("select"))
+                .distinct()
+                .toList();
+
+        Map<String, String> regressions = new LinkedHashMap<>();
+        for (String sql : statements) {
+            if (ALLOWED_SCANS.stream().noneMatch(allowed -> allowed.matcher(sql).find())) {
+                String plan = explain(sql);
+                if (hasFilteredScan(plan)) {
+                    regressions.put(sql, plan);
+                }
+            }
+        }
+
+        assertThat(statements).hasSizeGreaterThan(20);
+        assertThat(regressions).isEmpty();
+    }
+
+    private static void runPostQueries() {
+        HibernatePostRepository postRepository = new HibernatePostRepository(crudRepository);
+        Post post = posts.get(10);
+        postRepository.findById(post.getId());
+        postRepository.findAllOrderByCreated();
+        postRepository.findPageOrderByCreated(Cursor.of(post.getCreated(), post.getId()), 20);
+        postRepository.findCardPageOrderByCreated(null, 20);
+        postRepository.findCardPageOrderByCreated(Cursor.of(post.getCreated(), post.getId()), 20);
+        postRepository.findAllByCreatedBetween(NOW.minusHours(2), NOW.minusHours(1));
+        postRepository.findAllWherePhotoIsNotNull();
+        postRepository.findAllByCarNameLike("car-1");
+        postRepository.searchByCarName("plan-car-1", SearchMode.PREFIX, 10);
+        try (Stream<Post> stream = postRepository.streamAllOrderByCreated()) {
+            stream.limit(10).toList();
+        }
+        HibernatePriceHistoryRepository priceHistoryRepository = new HibernatePriceHistoryRepository(crudRepository);
+        priceHistoryRepository.findAll();
+        priceHistoryRepository.findPageOrderById(Cursor.of(posts.get(0).getId()), 10);
+        priceHistoryRepository.findById(1);
+        try (Stream<PriceHistory> stream = priceHistoryRepository.streamAll()) {
+            stream.limit(10).toList();
+        }
+        HibernatePostPhotoRepository postPhotoRepository = new HibernatePostPhotoRepository(crudRepository);
+        postPhotoRepository.findAll();
+        postPhotoRepository.findPageOrderById(Cursor.of(1), 10);
+        postPhotoRepository.findById(1);
+        HibernateParticipateRepository participateRepository = new HibernateParticipateRepository(crudRepository);
+        participateRepository.findAll();
+        participateRepository.findPageOrderById(Cursor.of(1), 10);
+        participateRepository.findById(1);
+    }
+
+    private static void runReferenceQueries() {
+        HibernateUserRepository userRepository = new HibernateUserRepository(crudRepository);
+        userRepository.findAllOrderById();
+        userRepository.findPageOrderById(Cursor.of(users.get(5).getId()), 5);
+        userRepository.findById(users.get(1).getId());
+        userRepository.findByLikeLogin("plan");
+        userRepository.findByLogin("plan-1");
+        HibernateCarRepository carRepository = new HibernateCarRepository(crudRepository);
+        carRepository.findAll();
+        carRepository.findPageOrderById(Cursor.of(cars.get(5).getId()), 10);
+        crudRepository.readOnly(session -> session.get(Car.class, cars.get(0).getId()).getHistoryOwners().size());
+        HibernateEngineRepository engineRepository = new HibernateEngineRepository(crudRepository);
+        engineRepository.findAll();
+        engineRepository.findPageOrderById(Cursor.of(1), 5);
+        HibernateFileRepository fileRepository = new HibernateFileRepository(crudRepository);
+        fileRepository.findAll();
+        fileRepository.findPageOrderById(Cursor.of(1), 10);
+        try (Stream<File> stream = fileRepository.streamAll()) {
+            stream.limit(10).toList();
+        }
+        HibernateOwnerRepository ownerRepository = new HibernateOwnerRepository(crudRepository);
+        ownerRepository.findAll();
+        ownerRepository.findPageOrderById(Cursor.of(1), 5);
+        ownerRepository.findById(1);
+        HibernateHistoryOwnerRepository historyOwnerRepository = new HibernateHistoryOwnerRepository(crudRepository);
+        historyOwnerRepository.findAll();
+        historyOwnerRepository.findPageOrderById(Cursor.of(1), 10);
+        historyOwnerRepository.findById(1);
+    }
+
+    private static String explain(String sql) {
+        return crudRepository.readOnly(session -> session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("explain " + sql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append(System.lineSeparator());
+                }
+                return plan.toString();
+            }
+        }));
+    }
+
+    /**
+     * Полное чтение таблицы недопустимо, если таблица присоединена (за комментарием плана идет ON)
+     * или в ее select блоке есть where.
+     *
+     * @param plan план H2.
+     * @return true, если есть недопустимое полное чтение.
+     */
+    private static boolean hasFilteredScan(String plan) {
+        Matcher scan = TABLE_SCAN.matcher(plan);
+        while (scan.find()) {
+            boolean joined = plan.substring(scan.end()).stripLeading().regionMatches(true, 0, "ON ", 0, 3);
+            if (joined || blockHasWhere(plan, scan.start())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean blockHasWhere(String plan, int index) {
+        int depth = 0;
+        int from = 0;
+        for (int i = index; i >= 0 && from == 0; i--) {
+            char ch = plan.charAt(i);
+            if (ch == ')') {
+                depth++;
+            } else if (ch == '(' && depth == 0) {
+                from = i + 1;
+            } else if (ch == '(') {
+                depth--;
+            }
+        }
+        depth = 0;
+        for (int i = from; i < plan.length() && depth >= 0; i++) {
+            char ch = plan.charAt(i);
+            if (ch == '(') {
+                depth++;
+            } else if (ch == ')') {
+                depth--;
+            } else if (depth == 0 && plan.regionMatches(true, i, "WHERE ", 0, 6)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.job4j.cars.repository.hibernate;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Записывает SQL, который Hibernate отправляет в базу, между start() и stop().
+ * Подключен в тестовом hibernate.cfg.xml.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+    private static volatile boolean recording;
+
+    public static void start() {
+        STATEMENTS.clear();
+        recording = true;
+    }
+
+    public static List<String> stop() {
+        recording = false;
+        return List.copyOf(STATEMENTS);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (recording) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.job4j.cars.repository.hibernate;
+
+import org.hibernate.SessionFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Считает SQL запросы операции репозитория через RecordingStatementInspector.
+ * Перед операцией кэш второго уровня и кэш запросов очищаются, поэтому число
+ * запросов - худший случай. Число запросов каждой операции попадает в сводку
+ * target/statement-counts.md, в нее пишут все тесты Hibernate*RepositoryTest.
+ */
+public class StatementCounter {
+    private static final Path SUMMARY = Path.of("target", "statement-counts.md");
+    private static final Map<String, Integer> COUNTS = new ConcurrentSkipListMap<>();
+
+    private final SessionFactory sessionFactory;
+
+    public StatementCounter(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Выполнить операцию и проверить, что она отправила в базу не больше max запросов.
+     *
+     * @param operation имя операции в сводке, например HibernatePostRepository.findById.
+     * @param max допустимое число запросов.
+     * @param action операция.
+     * @param <T> тип результата.
+     * @return результат операции.
+     */
+    public <T> T assertAtMost(String operation, int max, Supplier<T> action) {
+        Measured<T> measured = measure(operation, action);
+        assertThat(measured.statements())
+                .as("SQL statements of %s", operation)
+                .hasSizeLessThanOrEqualTo(max);
+        return measured.result();
+    }
+
+    /**
+     * Выполнить операцию без результата и проверить, что она отправила в базу не больше max запросов.
+     *
+     * @param operation имя операции в сводке.
+     * @param max допустимое число запросов.
+     * @param action операция.
+     */
+    public void assertAtMost(String operation, int max, Runnable action) {
+        assertAtMost(operation, max, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Выполнить операцию и посчитать ее запросы, например чтобы сравнить их число на разных объемах данных.
+     *
+     * @param operation имя операции в сводке.
+     * @param action операция.
+     * @return число запросов.
+     */
+    public int count(String operation, Supplier<?> action) {
+        return measure(operation, action).statements().size();
+    }
+
+    private <T> Measured<T> measure(String operation, Supplier<T> action) {
+        sessionFactory.getCache().evictAllRegions();
+        RecordingStatementInspector.start();
+        T result;
+        List<String> statements;
+        try {
+            result = action.get();
+        } finally {
+            statements = RecordingStatementInspector.stop();
+        }
+        record(operation, statements.size());
+        return new Measured<>(result, statements);
+    }
+
+    private static void record(String operation, int count) {
+        COUNTS.put(operation, count);
+        List<String> lines = new ArrayList<>();
+        lines.add("| operation | statements |");
+        lines.add("|---|---|");
+        COUNTS.forEach((name, statements) -> lines.add("| %s | %d |".formatted(name, statements)));
+        try {
+            Files.createDirectories(SUMMARY.getParent());
+            Files.write(SUMMARY, lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Measured<T>(T result, List<String> statements) {
+    }
+}
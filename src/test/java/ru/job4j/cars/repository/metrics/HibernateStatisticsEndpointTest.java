@@ -0,0 +1,81 @@
+package ru.job4j.cars.repository.metrics;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.config.SessionFactoryConfig;
+import ru.job4j.cars.model.Engine;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+import ru.job4j.cars.repository.hibernate.HibernateEngineRepository;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HibernateStatisticsEndpointTest {
+    private static SessionFactory sessionFactory;
+    private static HibernateEngineRepository engineRepository;
+    private static HibernateStatisticsEndpoint endpoint;
+
+    @BeforeAll
+    static void beforeAll() {
+        sessionFactory = new SessionFactoryConfig().createSessionFactory();
+        engineRepository = new HibernateEngineRepository(new CrudRepository(sessionFactory));
+        endpoint = new HibernateStatisticsEndpoint(sessionFactory);
+    }
+
+    @BeforeEach
+    void setUp() {
+        endpoint.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engineRepository.findAll().stream().map(Engine::getId).forEach(engineRepository::delete);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void whenSessionFactoryBuiltThenSlowQueryStatisticsWithConfiguredThreshold() {
+        assertThat(sessionFactory.getStatistics()).isInstanceOfSatisfying(SlowQueryStatistics.class, statistics -> {
+            assertThat(statistics.getThresholdMillis()).isEqualTo(200);
+            assertThat(statistics.getSampleRate()).isEqualTo(1.0);
+            assertThat(statistics.isSlow(200)).isTrue();
+            assertThat(statistics.isSlow(199)).isFalse();
+        });
+    }
+
+    @Test
+    void whenQueryExecutedThenReportHasQueryAndEntityStatistics() {
+        engineRepository.create(new Engine(null, "1.6"));
+        engineRepository.create(new Engine(null, "2.0"));
+
+        engineRepository.findAll();
+        engineRepository.findAll();
+        HibernateStatisticsEndpoint.Report report = endpoint.report();
+
+        assertThat(report.enabled()).isTrue();
+        assertThat(report.start()).isBeforeOrEqualTo(Instant.now());
+        assertThat(report.queries())
+                .filteredOn(query -> query.query().equals("from Engine"))
+                .singleElement()
+                .satisfies(query -> {
+                    assertThat(query.count()).isEqualTo(2);
+                    assertThat(query.rows()).isEqualTo(4);
+                    assertThat(query.maxMillis()).isGreaterThanOrEqualTo(query.avgMillis());
+                });
+        assertThat(report.entities())
+                .filteredOn(entity -> entity.name().equals(Engine.class.getName()))
+                .singleElement()
+                .satisfies(entity -> assertThat(entity.inserts()).isEqualTo(2));
+        assertThat(report.cacheRegions()).extracting(HibernateStatisticsEndpoint.CacheRegion::region)
+                .contains("engine");
+    }
+}
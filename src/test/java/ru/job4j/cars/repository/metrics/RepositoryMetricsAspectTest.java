@@ -0,0 +1,72 @@
+package ru.job4j.cars.repository.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.job4j.cars.model.Engine;
+import ru.job4j.cars.repository.hibernate.CrudRepository;
+import ru.job4j.cars.repository.hibernate.HibernateEngineRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class RepositoryMetricsAspectTest {
+    private MeterRegistry registry;
+    private RepositoryMetricsAspect aspect;
+    private CrudRepository crudRepositoryMock;
+    private HibernateEngineRepository engineRepository;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        aspect = new RepositoryMetricsAspect(registry);
+        crudRepositoryMock = mock(CrudRepository.class);
+        engineRepository = proxy(new HibernateEngineRepository(proxy(crudRepositoryMock)));
+    }
+
+    private <T> T proxy(T target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    @Test
+    void whenFindAllThenOperationTimedAndResultSizeRecorded() {
+        when(crudRepositoryMock.query("from Engine", Engine.class))
+                .thenReturn(List.of(new Engine(1, "1.6"), new Engine(2, "2.0")));
+
+        engineRepository.findAll();
+        engineRepository.findAll();
+
+        assertThat(registry.get("repository.operation")
+                .tags("repository", "HibernateEngineRepository", "method", "findAll")
+                .timer().count()).isEqualTo(2);
+        assertThat(registry.get("repository.result.size")
+                .tags("repository", "HibernateEngineRepository", "method", "findAll")
+                .summary().totalAmount()).isEqualTo(4);
+        assertThat(registry.get("crud.repository.operation")
+                .tags("method", "query")
+                .timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void whenCrudRepositoryThrowExceptionThenErrorCountedForCallingRepositoryMethod() {
+        doThrow(IllegalStateException.class).when(crudRepositoryMock).get(any(), any());
+
+        Optional<Engine> actualEngine = engineRepository.findById(1);
+
+        assertThat(actualEngine).isEmpty();
+        assertThat(registry.get("repository.errors")
+                .tags("repository", "HibernateEngineRepository", "method", "findById", "exception", "IllegalStateException")
+                .counter().count()).isEqualTo(1);
+        assertThat(registry.get("repository.result.size")
+                .tags("repository", "HibernateEngineRepository", "method", "findById")
+                .summary().totalAmount()).isZero();
+    }
+}